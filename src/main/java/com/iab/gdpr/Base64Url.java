@@ -0,0 +1,206 @@
+package com.iab.gdpr;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Base64 (URL and filename safe alphabet) routines that work on caller supplied buffers.
+ *
+ * {@link java.util.Base64} always decodes into a freshly allocated array starting at index 0, which makes it
+ * impossible to decode many consent strings into one shared buffer. Decoding here accepts the same input as
+ * {@link java.util.Base64#getUrlDecoder()}, i.e. padding is optional. Encoding writes unpadded text, as the
+ * consent string format requires, into arrays, byte buffers or any {@link Appendable}.
+ */
+public final class Base64Url {
+
+    private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+    private static final int[] DECODE_TABLE = new int[128];
+    private static final byte[] ENCODE_TABLE = new byte[64];
+
+    static {
+        Arrays.fill(DECODE_TABLE, -1);
+        for (int i = 0; i < ALPHABET.length(); i++) {
+            DECODE_TABLE[ALPHABET.charAt(i)] = i;
+            ENCODE_TABLE[i] = (byte) ALPHABET.charAt(i);
+        }
+    }
+
+    private Base64Url() {
+    }
+
+    /**
+     * Value of a single base64url character
+     * @param c character
+     * @return six bit value of the character
+     * @throws IllegalArgumentException when character is not part of the base64url alphabet
+     */
+    public static int sextet(char c) {
+        final int value = c < 128 ? DECODE_TABLE[c] : -1;
+        if (value < 0)
+            throw new IllegalArgumentException("Illegal base64 character " + Integer.toString(c, 16));
+        return value;
+    }
+
+    /**
+     * Base64url character of a six bit value
+     * @param sextet six bit value, only lowest 6 bits are used
+     * @return ASCII code of the character
+     */
+    public static byte character(int sextet) {
+        return ENCODE_TABLE[sextet & 0x3F];
+    }
+
+    /**
+     * Number of bytes the given base64url text decodes to
+     * @param text base64url text, with or without padding
+     * @return decoded length in bytes
+     * @throws IllegalArgumentException when the length of the text is not a valid base64 length
+     */
+    public static int decodedLength(CharSequence text) {
+        final int chars = unpaddedLength(text);
+        if (chars % 4 == 1)
+            throw new IllegalArgumentException("Last unit does not have enough valid bits");
+        return chars / 4 * 3 + (chars % 4 == 0 ? 0 : chars % 4 - 1);
+    }
+
+    /**
+     * Decode base64url text into destination array
+     * @param text base64url text, with or without padding
+     * @param dst destination array
+     * @param offset offset in the destination array to start writing at
+     * @return number of bytes written
+     * @throws IllegalArgumentException when text is not valid base64url
+     */
+    public static int decode(CharSequence text, byte[] dst, int offset) {
+        final int length = decodedLength(text);
+        final int chars = unpaddedLength(text);
+        int out = offset;
+        int i = 0;
+        for (; i + 4 <= chars; i += 4) {
+            final int unit = sextet(text.charAt(i)) << 18 | sextet(text.charAt(i + 1)) << 12
+                    | sextet(text.charAt(i + 2)) << 6 | sextet(text.charAt(i + 3));
+            dst[out++] = (byte) (unit >> 16);
+            dst[out++] = (byte) (unit >> 8);
+            dst[out++] = (byte) unit;
+        }
+        if (chars - i >= 2) {
+            int unit = sextet(text.charAt(i)) << 18 | sextet(text.charAt(i + 1)) << 12;
+            if (chars - i == 3) unit |= sextet(text.charAt(i + 2)) << 6;
+            dst[out++] = (byte) (unit >> 16);
+            if (chars - i == 3) dst[out++] = (byte) (unit >> 8);
+        }
+        return length;
+    }
+
+    /**
+     * Number of characters of unpadded base64url text for the given number of bytes
+     * @param byteLength number of bytes
+     * @return encoded length in characters
+     */
+    public static int encodedLength(int byteLength) {
+        return byteLength / 3 * 4 + (byteLength % 3 == 0 ? 0 : byteLength % 3 + 1);
+    }
+
+    /**
+     * Encode bytes as unpadded base64url ASCII text into destination array
+     * @param src source array
+     * @param srcOffset offset of the first byte to encode
+     * @param length number of bytes to encode
+     * @param dst destination array, must have room for {@link #encodedLength(int)} bytes
+     * @param dstOffset offset in the destination array to start writing at
+     * @return number of characters written
+     */
+    public static int encode(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset) {
+        final int encodedLength = encodedLength(length);
+        if (dstOffset < 0 || dstOffset + encodedLength > dst.length)
+            throw new IndexOutOfBoundsException("Destination has no room for " + encodedLength + " characters at " + dstOffset);
+        int out = dstOffset;
+        int i = srcOffset;
+        final int end = srcOffset + length;
+        for (; i + 3 <= end; i += 3) {
+            final int unit = (src[i] & 0xFF) << 16 | (src[i + 1] & 0xFF) << 8 | (src[i + 2] & 0xFF);
+            dst[out++] = ENCODE_TABLE[unit >>> 18];
+            dst[out++] = ENCODE_TABLE[(unit >>> 12) & 0x3F];
+            dst[out++] = ENCODE_TABLE[(unit >>> 6) & 0x3F];
+            dst[out++] = ENCODE_TABLE[unit & 0x3F];
+        }
+        if (i < end) {
+            final int unit = (src[i] & 0xFF) << 16 | (i + 1 < end ? (src[i + 1] & 0xFF) << 8 : 0);
+            dst[out++] = ENCODE_TABLE[unit >>> 18];
+            dst[out++] = ENCODE_TABLE[(unit >>> 12) & 0x3F];
+            if (i + 1 < end) dst[out++] = ENCODE_TABLE[(unit >>> 6) & 0x3F];
+        }
+        return encodedLength;
+    }
+
+    /**
+     * Encode bytes as unpadded base64url ASCII text at the position of the destination buffer, advancing it
+     * @param src source array
+     * @param srcOffset offset of the first byte to encode
+     * @param length number of bytes to encode
+     * @param dst destination buffer, must have {@link #encodedLength(int)} bytes remaining
+     * @return number of characters written
+     */
+    public static int encode(byte[] src, int srcOffset, int length, ByteBuffer dst) {
+        final int encodedLength = encodedLength(length);
+        if (dst.remaining() < encodedLength)
+            throw new IndexOutOfBoundsException("Destination has no room for " + encodedLength + " characters");
+        if (dst.hasArray()) {
+            encode(src, srcOffset, length, dst.array(), dst.arrayOffset() + dst.position());
+            dst.position(dst.position() + encodedLength);
+            return encodedLength;
+        }
+        for (int i = 0; i < encodedLength; i++) {
+            dst.put(ENCODE_TABLE[sextetAt(src, srcOffset, srcOffset + length, i)]);
+        }
+        return encodedLength;
+    }
+
+    /**
+     * Append bytes as unpadded base64url text
+     * @param src source array
+     * @param srcOffset offset of the first byte to encode
+     * @param length number of bytes to encode
+     * @param dst destination, i.e. {@link StringBuilder} or {@link java.io.Writer}
+     * @return number of characters appended
+     * @throws UncheckedIOException when destination fails to append
+     */
+    public static int encode(byte[] src, int srcOffset, int length, Appendable dst) {
+        final int encodedLength = encodedLength(length);
+        try {
+            for (int i = 0; i < encodedLength; i++) {
+                dst.append(ALPHABET.charAt(sextetAt(src, srcOffset, srcOffset + length, i)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return encodedLength;
+    }
+
+    /**
+     * Six bits of the source starting at bit 6 * index, zero padded past the end
+     */
+    private static int sextetAt(byte[] src, int srcOffset, int end, int index) {
+        final int bit = index * 6;
+        final int byteIndex = srcOffset + (bit >>> 3);
+        final int shift = bit & 7;
+        int pair = (src[byteIndex] & 0xFF) << 8;
+        // Second byte is only needed when the sextet crosses a byte boundary
+        if (shift > 2 && byteIndex + 1 < end) pair |= src[byteIndex + 1] & 0xFF;
+        return (pair >>> (10 - shift)) & 0x3F;
+    }
+
+    private static int unpaddedLength(CharSequence text) {
+        int chars = text.length();
+        int padding = 0;
+        while (chars > 0 && text.charAt(chars - 1) == '=' && padding < 2) {
+            chars--;
+            padding++;
+        }
+        if (padding > 0 && (chars + padding) % 4 != 0)
+            throw new IllegalArgumentException("Input byte array has incorrect ending byte");
+        return chars;
+    }
+}
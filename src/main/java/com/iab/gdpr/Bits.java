@@ -113,9 +113,9 @@ public class Bits {
      *            number of bits to interpret
      * @return the long value create by interpretation of provided bits
      * @throws VendorConsentException
-     *             when the bits cannot fit in an int sized field
+     *             when the bits cannot fit in a long sized field
      */
-    private long getLong(int startInclusive, int size) throws VendorConsentException {
+    public long getLong(int startInclusive, int size) throws VendorConsentException {
         if (size > Long.SIZE) {
             throw new VendorConsentParseException("can't fit bit range in long: " + size);
         }
@@ -223,17 +223,70 @@ public class Bits {
         }
     }
 
+    /**
+     * Writes a range of bits from words in bulk, a byte at a time where the range is byte aligned
+     *
+     * @param startInclusive:
+     *            the nth bit in the bitstring from which to start writing
+     * @param size:
+     *            the number of bits to write
+     * @param words:
+     *            bits to write, bit i of the range is bit (i % 64) of words[i / 64]; missing words are zeros
+     */
+    public void setBits(int startInclusive, int size, long[] words) {
+        int i = 0;
+        // Leading bits up to the first byte boundary
+        while (i < size && (startInclusive + i) % 8 != 0) {
+            writeBit(startInclusive + i, wordBit(words, i));
+            i++;
+        }
+        // Whole bytes, first bit of the range is the most significant bit of a byte
+        int byteIndex = (startInclusive + i) / 8;
+        for (; i + 8 <= size; i += 8) {
+            setByte(byteIndex++, (byte) (Integer.reverse(wordByte(words, i)) >>> 24));
+        }
+        // Trailing bits
+        for (; i < size; i++) {
+            writeBit(startInclusive + i, wordBit(words, i));
+        }
+    }
+
+    private static boolean wordBit(long[] words, int index) {
+        final int word = index >>> 6;
+        return word < words.length && (words[word] & (1L << index)) != 0;
+    }
+
+    private static int wordByte(long[] words, int index) {
+        final int word = index >>> 6;
+        final int shift = index & 63;
+        long value = word < words.length ? words[word] >>> shift : 0;
+        if (shift > 56 && word + 1 < words.length) value |= words[word + 1] << (64 - shift);
+        return (int) value & 0xFF;
+    }
+
+    private void writeBit(int index, boolean value) {
+        if (value)
+            setBit(index);
+        else
+            unsetBit(index);
+    }
+
+    /**
+     * Writes the nth byte of the bit string
+     */
+    void setByte(int byteIndex, byte value) {
+        bytes[byteIndex] = value;
+    }
+
     public byte[] toByteArray() {
         return bytes;
     }
 
     private void setNumber(int startInclusive, int size, long to) {
+        // Bits are overwritten, not only set, so that a field can be written more than once
         for (int i = size - 1; i >= 0; i--) {
-            int index = startInclusive + i;
-            int byteIndex = index / 8;
-            int shift = (byteIndex + 1) * 8 - index - 1;
-            bytes[byteIndex] |= (to % 2) << shift;
-            to /= 2;
+            writeBit(startInclusive + i, (to & 1) != 0);
+            to >>>= 1;
         }
     }
 
@@ -0,0 +1,65 @@
+package com.iab.gdpr;
+
+import com.iab.gdpr.exception.VendorConsentParseException;
+
+import java.util.Arrays;
+
+/**
+ * {@link Bits} over a region of a larger array, bit 0 is the most significant bit of the first byte of the region.
+ * Used to encode consents into and read them from shared arrays without copying, plain {@link Bits} stays a
+ * single array so reads of decoded consents pay no offset.
+ */
+public final class BitsRegion extends Bits {
+
+    private final byte[] bytes;
+    private final int offset;
+    private final int length;
+
+    /**
+     * @param b:
+     *            backing array
+     * @param offset:
+     *            first byte of the region
+     * @param length:
+     *            number of bytes in the region
+     */
+    public BitsRegion(byte[] b, int offset, int length) {
+        super(b);
+        if (offset < 0 || length < 0 || offset + length > b.length)
+            throw new IndexOutOfBoundsException("Invalid region " + offset + "+" + length + " of array of length " + b.length);
+        this.bytes = b;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public boolean getBit(int index) {
+        int byteIndex = index / 8;
+        if (byteIndex > length - 1)
+            throw new VendorConsentParseException("Expected consent string to contain at least " + byteIndex + "bytes, but found only " + length + " bytes");
+        return (bytes[offset + byteIndex] & (0x80 >>> (index % 8))) != 0;
+    }
+
+    @Override
+    public void setBit(int index) {
+        bytes[offset + index / 8] |= 0x80 >>> (index % 8);
+    }
+
+    @Override
+    public void unsetBit(int index) {
+        bytes[offset + index / 8] &= ~(0x80 >>> (index % 8));
+    }
+
+    @Override
+    void setByte(int byteIndex, byte value) {
+        bytes[offset + byteIndex] = value;
+    }
+
+    /**
+     * @return copy of the region
+     */
+    @Override
+    public byte[] toByteArray() {
+        return Arrays.copyOfRange(bytes, offset, offset + length);
+    }
+}
@@ -0,0 +1,186 @@
+package com.iab.gdpr;
+
+/**
+ * MurmurHash3 x64 128 bit variant, used to derive compact keys from consent content.
+ *
+ * Output is the same as the reference implementation (MurmurHash3_x64_128) with h1 as the first and h2 as the
+ * second long.
+ */
+public final class Murmur3 {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private Murmur3() {
+    }
+
+    /**
+     * @param data data to hash
+     * @param seed seed
+     * @return 128 bit hash as two longs
+     */
+    public static long[] hash128(byte[] data, long seed) {
+        return hash128(data, 0, data.length, seed);
+    }
+
+    /**
+     * @param data data to hash
+     * @param offset offset of the first byte to hash
+     * @param length number of bytes to hash
+     * @param seed seed
+     * @return 128 bit hash as two longs
+     */
+    public static long[] hash128(byte[] data, int offset, int length, long seed) {
+        long h1 = seed;
+        long h2 = seed;
+        final int blocks = length >>> 4;
+
+        for (int i = 0; i < blocks; i++) {
+            final int block = offset + (i << 4);
+            long k1 = getLongLittleEndian(data, block);
+            long k2 = getLongLittleEndian(data, block + 8);
+
+            k1 *= C1; k1 = Long.rotateLeft(k1, 31); k1 *= C2; h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27); h1 += h2; h1 = h1 * 5 + 0x52dce729;
+
+            k2 *= C2; k2 = Long.rotateLeft(k2, 33); k2 *= C1; h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31); h2 += h1; h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        // Remaining 1 to 15 bytes, first 8 of them are little endian k1 and the rest k2
+        final int tail = offset + (blocks << 4);
+        final int remaining = length & 15;
+        if (remaining > 8) {
+            long k2 = 0;
+            for (int i = remaining - 1; i >= 8; i--) k2 = (k2 << 8) | ((long) data[tail + i] & 0xff);
+            k2 *= C2; k2 = Long.rotateLeft(k2, 33); k2 *= C1; h2 ^= k2;
+        }
+        if (remaining > 0) {
+            long k1 = 0;
+            for (int i = Math.min(remaining, 8) - 1; i >= 0; i--) k1 = (k1 << 8) | ((long) data[tail + i] & 0xff);
+            k1 *= C1; k1 = Long.rotateLeft(k1, 31); k1 *= C2; h1 ^= k1;
+        }
+
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        h2 += h1;
+        return new long[]{h1, h2};
+    }
+
+    /**
+     * @param data data to hash
+     * @param seed seed
+     * @return first 64 bits of the 128 bit hash
+     */
+    public static long hash64(byte[] data, long seed) {
+        return hash128(data, 0, data.length, seed)[0];
+    }
+
+    /**
+     * Finalization mix of MurmurHash3, spreads all bits of the input over the output
+     * @param k value to mix
+     * @return mixed value
+     */
+    public static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    /**
+     * @param seed seed
+     * @return hasher computing the same 128 bit hash as {@link #hash128(byte[], long)} from bytes fed one at a time
+     */
+    public static Hasher128 newHasher128(long seed) {
+        return new Hasher128(seed);
+    }
+
+    /**
+     * Incremental 128 bit hash, for data that is produced on the fly and never held in an array.
+     * Hashers are not thread safe.
+     */
+    public static final class Hasher128 {
+        private long h1;
+        private long h2;
+        private long k1;
+        private long k2;
+        private int length;
+
+        private Hasher128(long seed) {
+            this.h1 = seed;
+            this.h2 = seed;
+        }
+
+        /**
+         * @param b byte to add, only lowest 8 bits are used
+         * @return this hasher
+         */
+        public Hasher128 putByte(int b) {
+            final int position = length & 15;
+            if (position < 8) {
+                k1 |= ((long) b & 0xff) << (position << 3);
+            } else {
+                k2 |= ((long) b & 0xff) << ((position - 8) << 3);
+            }
+            length++;
+            if ((length & 15) == 0) {
+                long k1 = this.k1;
+                long k2 = this.k2;
+                k1 *= C1; k1 = Long.rotateLeft(k1, 31); k1 *= C2; h1 ^= k1;
+                h1 = Long.rotateLeft(h1, 27); h1 += h2; h1 = h1 * 5 + 0x52dce729;
+
+                k2 *= C2; k2 = Long.rotateLeft(k2, 33); k2 *= C1; h2 ^= k2;
+                h2 = Long.rotateLeft(h2, 31); h2 += h1; h2 = h2 * 5 + 0x38495ab5;
+                this.k1 = 0;
+                this.k2 = 0;
+            }
+            return this;
+        }
+
+        /**
+         * @return 128 bit hash of all bytes added so far as two longs
+         */
+        public long[] hash() {
+            long h1 = this.h1;
+            long h2 = this.h2;
+            final int tail = length & 15;
+            if (tail > 8) {
+                long k2 = this.k2;
+                k2 *= C2; k2 = Long.rotateLeft(k2, 33); k2 *= C1; h2 ^= k2;
+            }
+            if (tail > 0) {
+                long k1 = this.k1;
+                k1 *= C1; k1 = Long.rotateLeft(k1, 31); k1 *= C2; h1 ^= k1;
+            }
+
+            h1 ^= length;
+            h2 ^= length;
+            h1 += h2;
+            h2 += h1;
+            h1 = fmix64(h1);
+            h2 = fmix64(h2);
+            h1 += h2;
+            h2 += h1;
+            return new long[]{h1, h2};
+        }
+    }
+
+    private static long getLongLittleEndian(byte[] data, int index) {
+        return ((long) data[index] & 0xff)
+                | ((long) data[index + 1] & 0xff) << 8
+                | ((long) data[index + 2] & 0xff) << 16
+                | ((long) data[index + 3] & 0xff) << 24
+                | ((long) data[index + 4] & 0xff) << 32
+                | ((long) data[index + 5] & 0xff) << 40
+                | ((long) data[index + 6] & 0xff) << 48
+                | ((long) data[index + 7] & 0xff) << 56;
+    }
+}
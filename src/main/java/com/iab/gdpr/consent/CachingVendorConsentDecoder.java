@@ -0,0 +1,558 @@
+package com.iab.gdpr.consent;
+
+import com.iab.gdpr.Murmur3;
+import com.iab.gdpr.consent.implementation.v1.ByteBufferBackedVendorConsent;
+import com.iab.gdpr.consent.implementation.v1.CompactVendorConsent;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link VendorConsentDecoder} with a bounded cache of decoded consents, for traffic where the same consent strings
+ * are seen over and over.
+ *
+ * The cache is split into segments, each guarded by its own lock and holding its entries in least recently used
+ * order. Admission is frequency aware (TinyLFU): every lookup is recorded in a small count-min sketch of each
+ * segment, and when the segment is full a new consent only replaces the least recently used ones if it was
+ * seen more often than them. A burst of one-off strings therefore does not push hot consents out of the cache.
+ *
+ * The cache is bounded either by number of entries or by weight, where the weight of an entry is the estimated
+ * retained size of the decoded consent and its string in bytes.
+ *
+ * Optionally each thread also keeps a small direct mapped cache of the consents it decoded recently, consulted
+ * before the shared cache. Lookups that hit it take no lock and touch no shared memory apart from the counters,
+ * so decoding scales with the number of threads. Its hits are buffered per thread and recorded in the shared cache
+ * in batches, so that consents served by it keep their frequency and recency there. See
+ * {@link Builder#withThreadLocalCacheSize(int)}.
+ *
+ * The most frequent cached consents can be written to a snapshot file on shutdown and loaded back on startup,
+ * see {@link #writeSnapshot(Path, int)} and {@link #loadSnapshot(Path, Duration)}.
+ *
+ * Cached consents are handed to every caller that decodes the same string, so they are immutable copies:
+ * {@link VendorConsent#toByteArray()} of a cached consent returns a new array on every call.
+ *
+ * Instances are thread safe and are created with {@link Builder}.
+ */
+public class CachingVendorConsentDecoder {
+
+    private static final Base64.Encoder SNAPSHOT_KEY_ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final boolean weighted;
+    private final ThreadLocal<LocalCache> localCache;
+    // Incremented on invalidation, thread local caches of older generations are cleared on next use
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private final LongAdder localHitCount = new LongAdder();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder rejectionCount = new LongAdder();
+
+    private CachingVendorConsentDecoder(long maximum, boolean weighted, int concurrencyLevel, int threadLocalCacheSize) {
+        this.weighted = weighted;
+        this.localCache = threadLocalCacheSize == 0 ? null : ThreadLocal.withInitial(() -> new LocalCache(threadLocalCacheSize));
+        // Power of two number of segments, each allowed at least one entry
+        int segmentCount = Integer.highestOneBit(Math.max(1, concurrencyLevel));
+        final long minimumPerSegment = weighted ? 4096 : 1;
+        while (segmentCount > 1 && maximum / segmentCount < minimumPerSegment) segmentCount >>= 1;
+        this.segments = new Segment[segmentCount];
+        this.segmentMask = segmentCount - 1;
+        for (int i = 0; i < segmentCount; i++) {
+            final long segmentMaximum = maximum / segmentCount + (i < maximum % segmentCount ? 1 : 0);
+            // Sketch sized for the expected number of entries, assuming about half a kilobyte per weighted entry
+            final long expectedEntries = weighted ? segmentMaximum / 512 : segmentMaximum;
+            segments[i] = new Segment(segmentMaximum, expectedEntries);
+        }
+    }
+
+    /**
+     * Decode consent string, returning cached consent when the same string was decoded before
+     * @param consentString Base64 encoded consent string
+     * @return decoded consent
+     */
+    public VendorConsent fromBase64String(String consentString) {
+        if (consentString == null || consentString.isEmpty())
+            throw new IllegalArgumentException("Null or empty consent string passed as an argument");
+
+        final long hash = Murmur3.fmix64(consentString.hashCode());
+        final LocalCache local = localCache == null ? null : localCache.get();
+        if (local != null) {
+            final VendorConsent cached = local.get(consentString, hash, generation.get());
+            if (cached != null) {
+                localHitCount.increment();
+                if (local.recordAccess(consentString, hash)) recordAccesses(local);
+                return cached;
+            }
+        }
+
+        final Segment segment = segments[(int) (hash >>> 32) & segmentMask];
+        VendorConsent vendorConsent = segment.get(consentString, hash);
+        if (vendorConsent != null) {
+            hitCount.increment();
+        } else {
+            missCount.increment();
+            // Decode outside of the lock, racing threads may both decode the same string
+            vendorConsent = VendorConsentDecoder.immutable(VendorConsentDecoder.fromBase64String(consentString));
+            segment.admit(consentString, hash, vendorConsent, weigh(consentString, vendorConsent));
+        }
+        if (local != null) local.put(consentString, hash, vendorConsent);
+        return vendorConsent;
+    }
+
+    /**
+     * Record buffered thread local hits in the shared cache, taking the lock of each segment once
+     */
+    private void recordAccesses(LocalCache local) {
+        for (int i = 0; i < local.accessCount; i++) {
+            if (local.accessedStrings[i] == null) continue;
+            final int segmentIndex = (int) (local.accessedHashes[i] >>> 32) & segmentMask;
+            segments[segmentIndex].recordAccesses(local, i, segmentIndex);
+        }
+        local.accessCount = 0;
+    }
+
+    private long weigh(String consentString, VendorConsent vendorConsent) {
+        if (!weighted) return 1;
+        // String object, its char array and the map entry
+        final long keyBytes = 24 + ((16L + consentString.length() * 2L + 7) & ~7L) + 40;
+        if (vendorConsent instanceof ByteBufferBackedVendorConsent)
+            return keyBytes + ((ByteBufferBackedVendorConsent) vendorConsent).estimatedRetainedBytes();
+        if (vendorConsent instanceof CompactVendorConsent)
+            return keyBytes + ((CompactVendorConsent) vendorConsent).estimatedRetainedBytes();
+        return keyBytes + 64 + vendorConsent.toByteArray().length;
+    }
+
+    /**
+     * Remove all cached consents, including thread local ones, counters and frequencies are kept
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Write most frequent cached consents with their frequencies to a snapshot file. The file is replaced
+     * atomically where the file system supports it.
+     * @param path snapshot file
+     * @param maxEntries maximum number of consents to write
+     * @return number of consents written
+     * @throws IOException when snapshot cannot be written
+     */
+    public int writeSnapshot(Path path, int maxEntries) throws IOException {
+        if (maxEntries < 0) throw new IllegalArgumentException("Invalid value for maxEntries:" + maxEntries);
+        final List<ConsentCacheSnapshot.Entry> entries = new ArrayList<>();
+        for (Segment segment : segments) {
+            segment.collect(entries);
+        }
+        entries.sort(Comparator.comparingInt((ConsentCacheSnapshot.Entry entry) -> entry.frequency).reversed());
+        final List<ConsentCacheSnapshot.Entry> hottest = entries.subList(0, Math.min(maxEntries, entries.size()));
+        ConsentCacheSnapshot.write(path, hottest, Instant.now());
+        return hottest.size();
+    }
+
+    /**
+     * Load consents from a snapshot file written by {@link #writeSnapshot(Path, int)}, in order of frequency
+     * while there is room in the cache. Missing, corrupt and stale snapshots are ignored. Loaded consents are
+     * keyed by their unpadded Base64 string.
+     * @param path snapshot file
+     * @param maxAge snapshots older than this are ignored
+     * @return number of consents loaded into the cache
+     * @throws IOException when snapshot exists but cannot be read
+     */
+    public int loadSnapshot(Path path, Duration maxAge) throws IOException {
+        int loaded = 0;
+        for (ConsentCacheSnapshot.Entry entry : ConsentCacheSnapshot.read(path, maxAge, Instant.now())) {
+            final VendorConsent vendorConsent;
+            try {
+                vendorConsent = VendorConsentDecoder.immutable(VendorConsentDecoder.fromByteArray(entry.bytes));
+            } catch (RuntimeException e) {
+                continue;
+            }
+            final String consentString = SNAPSHOT_KEY_ENCODER.encodeToString(entry.bytes);
+            final long hash = Murmur3.fmix64(consentString.hashCode());
+            final Segment segment = segments[(int) (hash >>> 32) & segmentMask];
+            if (segment.load(consentString, hash, vendorConsent, weigh(consentString, vendorConsent), entry.frequency))
+                loaded++;
+        }
+        return loaded;
+    }
+
+    /**
+     * @return number of cached consents
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return total weight of cached consents, equal to {@link #size()} when cache is bounded by entry count
+     */
+    public long weight() {
+        long weight = 0;
+        for (Segment segment : segments) {
+            weight += segment.weight();
+        }
+        return weight;
+    }
+
+    /**
+     * @return number of lookups that returned a consent from the thread local cache
+     */
+    public long getLocalHitCount() {
+        return localHitCount.sum();
+    }
+
+    /**
+     * @return number of lookups that returned a consent from the shared cache
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * @return share of all lookups served by the thread local cache, between 0 and 1
+     */
+    public double getLocalHitRate() {
+        final long local = localHitCount.sum();
+        final long requests = local + hitCount.sum() + missCount.sum();
+        return requests == 0 ? 0 : (double) local / requests;
+    }
+
+    /**
+     * @return share of lookups reaching the shared cache that it served, between 0 and 1
+     */
+    public double getHitRate() {
+        final long hits = hitCount.sum();
+        final long requests = hits + missCount.sum();
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    /**
+     * @return number of lookups that had to decode the consent string
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * @return number of cached consents removed to make room for more frequent ones
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * @return number of decoded consents not cached because they were less frequent than cached ones
+     */
+    public long getRejectionCount() {
+        return rejectionCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "CachingVendorConsentDecoder{" +
+                "Size=" + size() +
+                ", Weight=" + weight() +
+                ", LocalHits=" + getLocalHitCount() +
+                ", Hits=" + getHitCount() +
+                ", Misses=" + getMissCount() +
+                ", Evictions=" + getEvictionCount() +
+                ", Rejections=" + getRejectionCount() +
+                "}";
+    }
+
+    private static final class Entry {
+        final VendorConsent vendorConsent;
+        final long hash;
+        final long weight;
+
+        Entry(VendorConsent vendorConsent, long hash, long weight) {
+            this.vendorConsent = vendorConsent;
+            this.hash = hash;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Direct mapped cache owned by one thread, a newer consent replaces the older one of the same slot. It holds
+     * the same immutable instances as the shared cache.
+     */
+    private static final class LocalCache {
+        private static final int ACCESS_BUFFER_SIZE = 16;
+
+        private final String[] consentStrings;
+        private final VendorConsent[] vendorConsents;
+        private final int mask;
+        private int generation;
+        // Hits not yet recorded in the shared cache
+        final String[] accessedStrings = new String[ACCESS_BUFFER_SIZE];
+        final long[] accessedHashes = new long[ACCESS_BUFFER_SIZE];
+        int accessCount;
+
+        LocalCache(int size) {
+            this.consentStrings = new String[size];
+            this.vendorConsents = new VendorConsent[size];
+            this.mask = size - 1;
+        }
+
+        /**
+         * @return true when the access buffer is full and has to be recorded
+         */
+        boolean recordAccess(String consentString, long hash) {
+            accessedStrings[accessCount] = consentString;
+            accessedHashes[accessCount] = hash;
+            return ++accessCount == ACCESS_BUFFER_SIZE;
+        }
+
+        VendorConsent get(String consentString, long hash, int currentGeneration) {
+            if (generation != currentGeneration) {
+                Arrays.fill(consentStrings, null);
+                Arrays.fill(vendorConsents, null);
+                generation = currentGeneration;
+                return null;
+            }
+            final int slot = (int) hash & mask;
+            return consentString.equals(consentStrings[slot]) ? vendorConsents[slot] : null;
+        }
+
+        void put(String consentString, long hash, VendorConsent vendorConsent) {
+            final int slot = (int) hash & mask;
+            consentStrings[slot] = consentString;
+            vendorConsents[slot] = vendorConsent;
+        }
+    }
+
+    private final class Segment {
+        private final long maximum;
+        // Access ordered, eldest entry is the least recently used
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final FrequencySketch sketch;
+        private long weight;
+
+        Segment(long maximum, long expectedEntries) {
+            this.maximum = maximum;
+            this.sketch = new FrequencySketch(expectedEntries);
+        }
+
+        synchronized VendorConsent get(String consentString, long hash) {
+            sketch.increment(hash);
+            final Entry entry = entries.get(consentString);
+            return entry == null ? null : entry.vendorConsent;
+        }
+
+        /**
+         * Record buffered hits of this segment from index on, as if they were looked up here, and mark them done
+         */
+        synchronized void recordAccesses(LocalCache local, int from, int segmentIndex) {
+            for (int i = from; i < local.accessCount; i++) {
+                final long hash = local.accessedHashes[i];
+                if (local.accessedStrings[i] == null || ((int) (hash >>> 32) & segmentMask) != segmentIndex) continue;
+                sketch.increment(hash);
+                entries.get(local.accessedStrings[i]);
+                local.accessedStrings[i] = null;
+            }
+        }
+
+        synchronized void admit(String consentString, long hash, VendorConsent vendorConsent, long entryWeight) {
+            if (entryWeight > maximum || entries.containsKey(consentString)) return;
+
+            // Find least recently used entries that would have to go, keep them if any is more frequent
+            final int candidateFrequency = sketch.frequency(hash);
+            long excess = weight + entryWeight - maximum;
+            int victims = 0;
+            final Iterator<Entry> iterator = entries.values().iterator();
+            while (excess > 0) {
+                final Entry victim = iterator.next();
+                if (sketch.frequency(victim.hash) >= candidateFrequency) {
+                    rejectionCount.increment();
+                    return;
+                }
+                excess -= victim.weight;
+                victims++;
+            }
+
+            final Iterator<Map.Entry<String, Entry>> eviction = entries.entrySet().iterator();
+            for (int i = 0; i < victims; i++) {
+                weight -= eviction.next().getValue().weight;
+                eviction.remove();
+                evictionCount.increment();
+            }
+            entries.put(consentString, new Entry(vendorConsent, hash, entryWeight));
+            weight += entryWeight;
+        }
+
+        synchronized boolean load(String consentString, long hash, VendorConsent vendorConsent, long entryWeight, int frequency) {
+            for (int i = 0; i < frequency; i++) {
+                sketch.increment(hash);
+            }
+            if (weight + entryWeight > maximum || entries.containsKey(consentString)) return false;
+            entries.put(consentString, new Entry(vendorConsent, hash, entryWeight));
+            weight += entryWeight;
+            return true;
+        }
+
+        synchronized void collect(List<ConsentCacheSnapshot.Entry> snapshot) {
+            for (Entry entry : entries.values()) {
+                snapshot.add(new ConsentCacheSnapshot.Entry(sketch.frequency(entry.hash), entry.vendorConsent.toByteArray()));
+            }
+        }
+
+        synchronized void clear() {
+            entries.clear();
+            weight = 0;
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+        synchronized long weight() {
+            return weight;
+        }
+    }
+
+    /**
+     * Count-min sketch of 4 bit counters, four counters per key. All counters are halved after a sample of
+     * ten times the expected number of entries, so that frequencies follow recent traffic.
+     */
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int tableMask;
+        private final long sampleSize;
+        private long additions;
+
+        FrequencySketch(long expectedEntries) {
+            final int width = (int) Math.min(1 << 24, Math.max(16, Long.highestOneBit(Math.max(1, expectedEntries) - 1) << 1));
+            this.table = new long[width];
+            this.tableMask = width - 1;
+            this.sampleSize = 10L * Math.max(expectedEntries, 16);
+        }
+
+        int frequency(long hash) {
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < SEEDS.length; i++) {
+                final long h = Murmur3.fmix64(hash + SEEDS[i]);
+                final int shift = counterShift(i, h);
+                frequency = Math.min(frequency, (int) ((table[(int) h & tableMask] >>> shift) & 0xF));
+            }
+            return frequency;
+        }
+
+        void increment(long hash) {
+            boolean added = false;
+            for (int i = 0; i < SEEDS.length; i++) {
+                final long h = Murmur3.fmix64(hash + SEEDS[i]);
+                final int index = (int) h & tableMask;
+                final int shift = counterShift(i, h);
+                if (((table[index] >>> shift) & 0xF) != 0xF) {
+                    table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (table[i] >>> 1) & RESET_MASK;
+                }
+                additions /= 2;
+            }
+        }
+
+        /**
+         * Each of the four hash functions uses its own quarter of a long, one of four counters in it
+         */
+        private static int counterShift(int i, long h) {
+            return ((i << 2) + (int) ((h >>> 40) & 3)) << 2;
+        }
+    }
+
+    /**
+     * Builder of {@link CachingVendorConsentDecoder}
+     */
+    public static class Builder {
+        private long maximumSize = -1;
+        private long maximumWeight = -1;
+        private int concurrencyLevel = 16;
+        private int threadLocalCacheSize = 0;
+
+        /**
+         * Bound cache by number of consents
+         * @param maximumSize maximum number of cached consents
+         * @return builder
+         */
+        public Builder withMaximumSize(long maximumSize) {
+            if (maximumSize <= 0) throw new IllegalArgumentException("Invalid value for maximumSize:" + maximumSize);
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * Bound cache by estimated retained bytes of cached consents
+         * @param maximumWeight maximum total weight in bytes
+         * @return builder
+         */
+        public Builder withMaximumWeight(long maximumWeight) {
+            if (maximumWeight <= 0) throw new IllegalArgumentException("Invalid value for maximumWeight:" + maximumWeight);
+            this.maximumWeight = maximumWeight;
+            return this;
+        }
+
+        /**
+         * @param concurrencyLevel expected number of threads using the cache concurrently, rounded down to
+         *                         a power of two number of lock segments
+         * @return builder
+         */
+        public Builder withConcurrencyLevel(int concurrencyLevel) {
+            if (concurrencyLevel <= 0) throw new IllegalArgumentException("Invalid value for concurrencyLevel:" + concurrencyLevel);
+            this.concurrencyLevel = concurrencyLevel;
+            return this;
+        }
+
+        /**
+         * Keep recently decoded consents also in a direct mapped cache of each thread, in front of the shared cache.
+         * Meant for a fixed pool of request threads; thread local caches are not bounded by maximum size or weight.
+         * @param threadLocalCacheSize number of slots per thread, rounded up to a power of two, 0 to disable
+         * @return builder
+         */
+        public Builder withThreadLocalCacheSize(int threadLocalCacheSize) {
+            if (threadLocalCacheSize < 0 || threadLocalCacheSize > 1 << 16)
+                throw new IllegalArgumentException("Invalid value for threadLocalCacheSize:" + threadLocalCacheSize);
+            this.threadLocalCacheSize = threadLocalCacheSize <= 1 ? threadLocalCacheSize : Integer.highestOneBit(threadLocalCacheSize - 1) << 1;
+            return this;
+        }
+
+        /**
+         * @return caching decoder
+         * @throws IllegalStateException when neither or both of maximum size and maximum weight are set
+         */
+        public CachingVendorConsentDecoder build() {
+            if ((maximumSize < 0) == (maximumWeight < 0))
+                throw new IllegalStateException("Exactly one of maximumSize and maximumWeight must be set");
+            return maximumSize > 0
+                    ? new CachingVendorConsentDecoder(maximumSize, false, concurrencyLevel, threadLocalCacheSize)
+                    : new CachingVendorConsentDecoder(maximumWeight, true, concurrencyLevel, threadLocalCacheSize);
+        }
+    }
+}
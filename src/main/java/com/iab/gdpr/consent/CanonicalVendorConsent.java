@@ -0,0 +1,224 @@
+package com.iab.gdpr.consent;
+
+import com.iab.gdpr.Murmur3;
+import com.iab.gdpr.consent.query.VendorWords;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Canonical form of the semantic content of a vendor consent.
+ *
+ * Two consents have equal canonical forms when they have the same version, vendor list version, consent language,
+ * allowed purposes and allowed vendors, no matter whether vendors are bit field or range encoded, in which order
+ * or how range entries are split, or which max VendorId was used. Consent record timestamps, CMP and consent screen
+ * are left out unless requested with {@link Field}.
+ *
+ * The canonical form serializes to a fixed layout ({@link #toByteArray()}), from which 64 and 128 bit keys are
+ * derived, so equivalent consents can share one cache or dedup entry.
+ */
+public final class CanonicalVendorConsent {
+
+    /**
+     * Header fields that are only part of the canonical form when requested
+     */
+    public enum Field {
+        CONSENT_RECORD_CREATED,
+        CONSENT_RECORD_LAST_UPDATED,
+        CMP_ID,
+        CMP_VERSION,
+        CONSENT_SCREEN
+    }
+
+    private static final long KEY_SEED = 0x1ab_0001L;
+
+    private final Set<Field> fields;
+    private final int version;
+    private final int vendorListVersion;
+    private final String consentLanguage;
+    private final int allowedPurposesBits;
+    // Allowed vendors without trailing empty words
+    private final long[] vendorWords;
+    // Values of optional fields, zero when not included
+    private final long consentRecordCreated;
+    private final long consentRecordLastUpdated;
+    private final int cmpId;
+    private final int cmpVersion;
+    private final int consentScreen;
+    private final byte[] bytes;
+
+    private CanonicalVendorConsent(VendorConsent vendorConsent, Set<Field> fields) {
+        this.fields = Collections.unmodifiableSet(fields.isEmpty() ? EnumSet.noneOf(Field.class) : EnumSet.copyOf(fields));
+        this.version = vendorConsent.getVersion();
+        this.vendorListVersion = vendorConsent.getVendorListVersion();
+        this.consentLanguage = vendorConsent.getConsentLanguage();
+        this.allowedPurposesBits = vendorConsent.getAllowedPurposesBits();
+
+        final long[] words = VendorWords.of(vendorConsent);
+        int length = words.length;
+        while (length > 0 && words[length - 1] == 0) length--;
+        this.vendorWords = length == words.length ? words : Arrays.copyOf(words, length);
+
+        this.consentRecordCreated = fields.contains(Field.CONSENT_RECORD_CREATED) ? vendorConsent.getConsentRecordCreated().toEpochMilli() : 0;
+        this.consentRecordLastUpdated = fields.contains(Field.CONSENT_RECORD_LAST_UPDATED) ? vendorConsent.getConsentRecordLastUpdated().toEpochMilli() : 0;
+        this.cmpId = fields.contains(Field.CMP_ID) ? vendorConsent.getCmpId() : 0;
+        this.cmpVersion = fields.contains(Field.CMP_VERSION) ? vendorConsent.getCmpVersion() : 0;
+        this.consentScreen = fields.contains(Field.CONSENT_SCREEN) ? vendorConsent.getConsentScreen() : 0;
+        this.bytes = serialize();
+    }
+
+    /**
+     * Canonical form of the consent content without timestamps, CMP and consent screen
+     * @param vendorConsent vendor consent
+     * @param included optional header fields to include
+     * @return canonical form
+     */
+    public static CanonicalVendorConsent of(VendorConsent vendorConsent, Field... included) {
+        return of(vendorConsent, included.length == 0 ? EnumSet.noneOf(Field.class) : EnumSet.copyOf(Arrays.asList(included)));
+    }
+
+    /**
+     * Canonical form of the consent content without timestamps, CMP and consent screen
+     * @param vendorConsent vendor consent
+     * @param included optional header fields to include
+     * @return canonical form
+     */
+    public static CanonicalVendorConsent of(VendorConsent vendorConsent, Set<Field> included) {
+        return new CanonicalVendorConsent(vendorConsent, included);
+    }
+
+    /**
+     * Check whether two consents have the same semantic content
+     * @param first first consent
+     * @param second second consent
+     * @param included optional header fields to compare
+     * @return true if canonical forms of consents are equal
+     */
+    public static boolean equivalent(VendorConsent first, VendorConsent second, Field... included) {
+        return of(first, included).equals(of(second, included));
+    }
+
+    private byte[] serialize() {
+        // Fixed header, optional fields in Field order and then vendor words, all little endian
+        final ByteBuffer buffer = ByteBuffer.allocate(1 + 2 + 2 + 4 + 1 + fields.size() * Long.BYTES + vendorWords.length * Long.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put((byte) version);
+        buffer.putShort((short) vendorListVersion);
+        buffer.put((byte) consentLanguage.charAt(0)).put((byte) consentLanguage.charAt(1));
+        buffer.putInt(allowedPurposesBits);
+        int fieldBits = 0;
+        for (Field field : fields) {
+            fieldBits |= 1 << field.ordinal();
+        }
+        buffer.put((byte) fieldBits);
+        for (Field field : fields) {
+            buffer.putLong(getField(field));
+        }
+        for (long word : vendorWords) {
+            buffer.putLong(word);
+        }
+        return buffer.array();
+    }
+
+    private long getField(Field field) {
+        switch (field) {
+            case CONSENT_RECORD_CREATED:
+                return consentRecordCreated;
+            case CONSENT_RECORD_LAST_UPDATED:
+                return consentRecordLastUpdated;
+            case CMP_ID:
+                return cmpId;
+            case CMP_VERSION:
+                return cmpVersion;
+            default:
+                return consentScreen;
+        }
+    }
+
+    /**
+     * @return optional header fields included in this canonical form
+     */
+    public Set<Field> getIncludedFields() {
+        return fields;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public int getVendorListVersion() {
+        return vendorListVersion;
+    }
+
+    public String getConsentLanguage() {
+        return consentLanguage;
+    }
+
+    public int getAllowedPurposesBits() {
+        return allowedPurposesBits;
+    }
+
+    /**
+     * @param vendorId VendorId
+     * @return true if vendor is allowed
+     */
+    public boolean isVendorAllowed(int vendorId) {
+        return VendorWords.isSet(vendorWords, vendorId);
+    }
+
+    /**
+     * @return copy of the words of allowed vendors, in bit order of {@link VendorWords}, without trailing empty words
+     */
+    public long[] getVendorWords() {
+        return vendorWords.clone();
+    }
+
+    /**
+     * @return copy of the canonical serialization, equal for all consents with the same canonical form
+     */
+    public byte[] toByteArray() {
+        return bytes.clone();
+    }
+
+    /**
+     * @return 64 bit key of the canonical form
+     */
+    public long key64() {
+        return Murmur3.hash64(bytes, KEY_SEED);
+    }
+
+    /**
+     * @return 128 bit key of the canonical form as two longs
+     */
+    public long[] key128() {
+        return Murmur3.hash128(bytes, KEY_SEED);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return Arrays.equals(bytes, ((CanonicalVendorConsent) o).bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(bytes);
+    }
+
+    @Override
+    public String toString() {
+        return "CanonicalVendorConsent{" +
+                "Version=" + version +
+                ", VendorListVersion=" + vendorListVersion +
+                ", ConsentLanguage=" + consentLanguage +
+                ", AllowedPurposesBits=" + Integer.toBinaryString(allowedPurposesBits) +
+                ", AllowedVendors=" + VendorWords.count(vendorWords) +
+                ", IncludedFields=" + fields +
+                "}";
+    }
+}
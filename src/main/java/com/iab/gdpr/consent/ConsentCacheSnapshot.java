@@ -0,0 +1,147 @@
+package com.iab.gdpr.consent;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshot of cached consents, used to warm up {@link CachingVendorConsentDecoder} after restart.
+ *
+ * Layout, big endian:
+ * <pre>
+ * int   magic "GCS1"
+ * short format version
+ * long  creation time, epoch millis
+ * int   number of entries
+ * entries, most frequent first:
+ *   byte  frequency
+ *   short length of consent bytes
+ *   bytes consent bytes
+ * long  CRC32 of everything above
+ * </pre>
+ *
+ * Snapshots are written to a temporary file and moved in place, the temporary file is removed when either fails.
+ * They are read with a single memory mapped read.
+ */
+final class ConsentCacheSnapshot {
+
+    static final int MAGIC = 0x47435331;
+    static final short FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 2 + 8 + 4;
+    private static final int TRAILER_SIZE = 8;
+
+    static final class Entry {
+        final int frequency;
+        final byte[] bytes;
+
+        Entry(int frequency, byte[] bytes) {
+            this.frequency = frequency;
+            this.bytes = bytes;
+        }
+    }
+
+    private ConsentCacheSnapshot() {
+    }
+
+    static void write(Path path, List<Entry> entries, Instant created) throws IOException {
+        final Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            final CRC32 crc = new CRC32();
+            try (OutputStream file = Files.newOutputStream(temporary);
+                 BufferedOutputStream buffered = new BufferedOutputStream(file);
+                 CheckedOutputStream checked = new CheckedOutputStream(buffered, crc)) {
+                final DataOutputStream out = new DataOutputStream(checked);
+                out.writeInt(MAGIC);
+                out.writeShort(FORMAT_VERSION);
+                out.writeLong(created.toEpochMilli());
+                out.writeInt(entries.size());
+                for (Entry entry : entries) {
+                    out.writeByte(entry.frequency);
+                    out.writeShort(entry.bytes.length);
+                    out.write(entry.bytes);
+                }
+                out.flush();
+                // Trailer is written past the checked stream
+                new DataOutputStream(buffered).writeLong(crc.getValue());
+            }
+            try {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Don't leave a partial snapshot behind
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Read snapshot
+     * @param path snapshot file
+     * @param maxAge maximum age of the snapshot
+     * @param now current time
+     * @return entries, or empty list when file is missing, corrupt, of unknown format or older than maxAge
+     * @throws IOException when file exists but cannot be read
+     */
+    static List<Entry> read(Path path, Duration maxAge, Instant now) throws IOException {
+        final MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE + TRAILER_SIZE || channel.size() > Integer.MAX_VALUE)
+                return Collections.emptyList();
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return Collections.emptyList();
+        }
+
+        final int contentSize = buffer.capacity() - TRAILER_SIZE;
+        final CRC32 crc = new CRC32();
+        final ByteBuffer content = buffer.duplicate();
+        content.limit(contentSize);
+        crc.update(content);
+        if (buffer.getLong(contentSize) != crc.getValue()) return Collections.emptyList();
+
+        try {
+            buffer.limit(contentSize);
+            if (buffer.getInt() != MAGIC || buffer.getShort() != FORMAT_VERSION) return Collections.emptyList();
+            final Instant created = Instant.ofEpochMilli(buffer.getLong());
+            if (Duration.between(created, now).compareTo(maxAge) > 0) return Collections.emptyList();
+            final int count = buffer.getInt();
+            if (count < 0) return Collections.emptyList();
+            final List<Entry> entries = new ArrayList<>(Math.min(count, contentSize / 3));
+            for (int i = 0; i < count; i++) {
+                final int frequency = buffer.get() & 0xFF;
+                final byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+                buffer.get(bytes);
+                entries.add(new Entry(frequency, bytes));
+            }
+            return buffer.hasRemaining() ? Collections.emptyList() : entries;
+        } catch (BufferUnderflowException | DateTimeException | ArithmeticException e) {
+            // Creation time out of the range of Instant arithmetic is treated as corrupt
+            return Collections.emptyList();
+        }
+    }
+}
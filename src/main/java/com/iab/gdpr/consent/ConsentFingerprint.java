@@ -0,0 +1,133 @@
+package com.iab.gdpr.consent;
+
+import com.iab.gdpr.Base64Url;
+import com.iab.gdpr.Murmur3;
+import com.iab.gdpr.consent.implementation.v1.ByteBufferBackedVendorConsent;
+
+/**
+ * 128 bit fingerprint of the encoded bytes of a consent, for cache keys, shard routing and dedup.
+ *
+ * The fingerprint is MurmurHash3 x64 128 of the decoded consent bytes. It can be computed from the bytes or
+ * straight from the Base64 consent string: the string is decoded on the fly into the hash, so both give the same
+ * value without allocating the decoded bytes. {@link #asLong()} is the 64 bit fingerprint.
+ *
+ * Consents with equal bytes have equal fingerprints. Consents that are semantically equal but encoded differently
+ * don't, see {@link CanonicalVendorConsent} for that.
+ */
+public final class ConsentFingerprint {
+
+    private static final long SEED = 0x1ab_0002L;
+
+    private final long high;
+    private final long low;
+
+    private ConsentFingerprint(long[] hash) {
+        this.high = hash[0];
+        this.low = hash[1];
+    }
+
+    /**
+     * @param bytes consent bytes
+     * @return fingerprint of the bytes
+     */
+    public static ConsentFingerprint of(byte[] bytes) {
+        return of(bytes, 0, bytes.length);
+    }
+
+    /**
+     * @param bytes array holding consent bytes
+     * @param offset offset of the first consent byte
+     * @param length number of consent bytes
+     * @return fingerprint of the bytes
+     */
+    public static ConsentFingerprint of(byte[] bytes, int offset, int length) {
+        return new ConsentFingerprint(Murmur3.hash128(bytes, offset, length, SEED));
+    }
+
+    /**
+     * Fingerprint of the consent bytes, memoized by implementations that support it
+     * @param vendorConsent vendor consent
+     * @return fingerprint of {@link VendorConsent#toByteArray()}
+     */
+    public static ConsentFingerprint of(VendorConsent vendorConsent) {
+        if (vendorConsent instanceof ByteBufferBackedVendorConsent)
+            return ((ByteBufferBackedVendorConsent) vendorConsent).fingerprint();
+        return of(vendorConsent.toByteArray());
+    }
+
+    /**
+     * Fingerprint computed from the Base64 consent string without decoding it into an array
+     * @param consentString Base64 encoded consent string, with or without padding
+     * @return same fingerprint as of the decoded bytes
+     * @throws IllegalArgumentException when string is not valid Base64
+     */
+    public static ConsentFingerprint fromBase64String(CharSequence consentString) {
+        if (consentString == null || consentString.length() == 0)
+            throw new IllegalArgumentException("Null or empty consent string passed as an argument");
+        final int length = Base64Url.decodedLength(consentString);
+        final Murmur3.Hasher128 hasher = Murmur3.newHasher128(SEED);
+        int buffer = 0;
+        int bufferedBits = 0;
+        int written = 0;
+        for (int i = 0; written < length; i++) {
+            buffer = (buffer << 6) | Base64Url.sextet(consentString.charAt(i));
+            bufferedBits += 6;
+            if (bufferedBits >= 8) {
+                bufferedBits -= 8;
+                hasher.putByte(buffer >>> bufferedBits);
+                buffer &= (1 << bufferedBits) - 1;
+                written++;
+            }
+        }
+        return new ConsentFingerprint(hasher.hash());
+    }
+
+    /**
+     * 64 bit fingerprint of the Base64 consent string, see {@link #fromBase64String(CharSequence)}
+     * @param consentString Base64 encoded consent string
+     * @return 64 bit fingerprint
+     */
+    public static long fingerprint64(CharSequence consentString) {
+        return fromBase64String(consentString).asLong();
+    }
+
+    /**
+     * @return 64 bit fingerprint, the high half of the 128 bit fingerprint
+     */
+    public long asLong() {
+        return high;
+    }
+
+    /**
+     * @return high 64 bits of the fingerprint
+     */
+    public long getHigh() {
+        return high;
+    }
+
+    /**
+     * @return low 64 bits of the fingerprint
+     */
+    public long getLow() {
+        return low;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final ConsentFingerprint that = (ConsentFingerprint) o;
+        return high == that.high && low == that.low;
+    }
+
+    @Override
+    public int hashCode() {
+        // Bits of the hash are already well distributed
+        return (int) high;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+}
@@ -0,0 +1,224 @@
+package com.iab.gdpr.consent;
+
+import com.iab.gdpr.Murmur3;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable table of pre-decoded consents for a fixed set of frequent consent strings.
+ *
+ * The table is a minimal perfect hash (hash and displace): the strings are spread over small buckets, and every
+ * bucket gets a displacement that places each of its strings into its own slot, so that the strings take exactly
+ * as many slots as there are strings. A lookup hashes the string once, reads the displacement of its bucket and
+ * compares the string to the one in its slot. There are no locks and no bookkeeping on lookup.
+ *
+ * Consents in the table are immutable copies of the ones {@link VendorConsentDecoder} returns for the strings, so
+ * they encode back to the same strings and are equal to consents decoded elsewhere, and no caller can change them
+ * through {@link VendorConsent#toByteArray()}. Consents of strings outside of the set are decoded with
+ * {@link VendorConsentDecoder} on every call.
+ *
+ * Tables are built with {@link Builder}, typically from a corpus file of the most frequent consent strings.
+ */
+public final class HotConsentTable {
+
+    private static final long DISPLACEMENT_MULTIPLIER = 0x9e3779b97f4a7c15L;
+    private static final int BUCKET_SIZE = 4;
+
+    private final long seed;
+    private final int[] displacements;
+    private final String[] consentStrings;
+    private final VendorConsent[] vendorConsents;
+
+    private HotConsentTable(long seed, int[] displacements, String[] consentStrings, VendorConsent[] vendorConsents) {
+        this.seed = seed;
+        this.displacements = displacements;
+        this.consentStrings = consentStrings;
+        this.vendorConsents = vendorConsents;
+    }
+
+    /**
+     * Return pre-decoded consent of the string, or decode it when it is not in the table
+     * @param consentString Base64 encoded consent string
+     * @return decoded consent
+     */
+    public VendorConsent fromBase64String(String consentString) {
+        final VendorConsent vendorConsent = get(consentString);
+        return vendorConsent != null ? vendorConsent : VendorConsentDecoder.fromBase64String(consentString);
+    }
+
+    /**
+     * @param consentString Base64 encoded consent string
+     * @return pre-decoded consent of the string, or null when it is not in the table
+     */
+    public VendorConsent get(String consentString) {
+        if (consentString == null || consentString.isEmpty())
+            throw new IllegalArgumentException("Null or empty consent string passed as an argument");
+        if (consentStrings.length == 0) return null;
+        final long hash = hash(consentString, seed);
+        final int slot = slot(hash, displacements[bucket(hash, displacements.length)], consentStrings.length);
+        return consentString.equals(consentStrings[slot]) ? vendorConsents[slot] : null;
+    }
+
+    /**
+     * @return number of consent strings in the table
+     */
+    public int size() {
+        return consentStrings.length;
+    }
+
+    private static long hash(String consentString, long seed) {
+        long hash = seed;
+        for (int i = 0; i < consentString.length(); i++) {
+            hash = (hash + consentString.charAt(i)) * DISPLACEMENT_MULTIPLIER;
+        }
+        return Murmur3.fmix64(hash ^ consentString.length());
+    }
+
+    private static int bucket(long hash, int bucketCount) {
+        return (int) ((hash >>> 33) % bucketCount);
+    }
+
+    private static int slot(long hash, int displacement, int slotCount) {
+        return (int) ((Murmur3.fmix64(hash + displacement * DISPLACEMENT_MULTIPLIER) >>> 1) % slotCount);
+    }
+
+    @Override
+    public String toString() {
+        return "HotConsentTable{" +
+                "Size=" + size() +
+                ", Buckets=" + displacements.length +
+                "}";
+    }
+
+    /**
+     * Builder of {@link HotConsentTable}
+     */
+    public static class Builder {
+        private final Set<String> consentStrings = new LinkedHashSet<>();
+
+        /**
+         * @param consentString Base64 encoded consent string to include in the table
+         * @return builder
+         */
+        public Builder withConsentString(String consentString) {
+            if (consentString == null || consentString.isEmpty())
+                throw new IllegalArgumentException("Null or empty consent string passed as an argument");
+            consentStrings.add(consentString);
+            return this;
+        }
+
+        /**
+         * @param consentStrings Base64 encoded consent strings to include in the table
+         * @return builder
+         */
+        public Builder withConsentStrings(Collection<String> consentStrings) {
+            consentStrings.forEach(this::withConsentString);
+            return this;
+        }
+
+        /**
+         * Include consent strings of a corpus file, one string per line. Blank lines and lines starting
+         * with # are skipped.
+         * @param corpus corpus file in UTF-8
+         * @return builder
+         * @throws IOException when corpus cannot be read
+         */
+        public Builder withCorpus(Path corpus) throws IOException {
+            try (BufferedReader reader = Files.newBufferedReader(corpus, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (!line.isEmpty() && line.charAt(0) != '#') withConsentString(line);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Decode all consent strings and place them into the table
+         * @return hot consent table
+         * @throws IllegalArgumentException when one of the consent strings cannot be decoded
+         */
+        public HotConsentTable build() {
+            final String[] keys = consentStrings.toArray(new String[0]);
+            final VendorConsent[] values = new VendorConsent[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                try {
+                    values[i] = VendorConsentDecoder.immutable(VendorConsentDecoder.fromBase64String(keys[i]));
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException("Invalid consent string: " + keys[i], e);
+                }
+            }
+            if (keys.length == 0) return new HotConsentTable(0, new int[1], keys, values);
+
+            // Extremely unlikely to fail for a seed, in which case another one is tried
+            for (long seed = 0x1ab_0003L; ; seed += DISPLACEMENT_MULTIPLIER) {
+                final HotConsentTable table = place(seed, keys, values);
+                if (table != null) return table;
+            }
+        }
+
+        private static HotConsentTable place(long seed, String[] keys, VendorConsent[] values) {
+            final int slotCount = keys.length;
+            final int bucketCount = (slotCount + BUCKET_SIZE - 1) / BUCKET_SIZE;
+            final long[] hashes = new long[slotCount];
+            final List<List<Integer>> buckets = new ArrayList<>(bucketCount);
+            for (int i = 0; i < bucketCount; i++) buckets.add(new ArrayList<>(BUCKET_SIZE));
+            for (int i = 0; i < slotCount; i++) {
+                hashes[i] = hash(keys[i], seed);
+                buckets.get(bucket(hashes[i], bucketCount)).add(i);
+            }
+
+            // Largest buckets first, while most slots are still free
+            final Integer[] order = new Integer[bucketCount];
+            for (int i = 0; i < bucketCount; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> Integer.compare(buckets.get(b).size(), buckets.get(a).size()));
+
+            final int[] displacements = new int[bucketCount];
+            final String[] consentStrings = new String[slotCount];
+            final VendorConsent[] vendorConsents = new VendorConsent[slotCount];
+            final boolean[] taken = new boolean[slotCount];
+            final int[] slots = new int[BUCKET_SIZE * 8];
+            // Last buckets find one of few free slots, about slotCount tries each
+            final long maxDisplacement = Math.min(Integer.MAX_VALUE, Math.max(1 << 16, 32L * slotCount));
+            for (int bucket : order) {
+                final List<Integer> members = buckets.get(bucket);
+                if (members.isEmpty()) break;
+                if (members.size() > slots.length) return null;
+                int displacement = 0;
+                while (!fits(members, hashes, displacement, taken, slots)) {
+                    if (++displacement == maxDisplacement) return null;
+                }
+                displacements[bucket] = displacement;
+                for (int i = 0; i < members.size(); i++) {
+                    taken[slots[i]] = true;
+                    consentStrings[slots[i]] = keys[members.get(i)];
+                    vendorConsents[slots[i]] = values[members.get(i)];
+                }
+            }
+            return new HotConsentTable(seed, displacements, consentStrings, vendorConsents);
+        }
+
+        private static boolean fits(List<Integer> members, long[] hashes, int displacement, boolean[] taken, int[] slots) {
+            for (int i = 0; i < members.size(); i++) {
+                final int slot = slot(hashes[members.get(i)], displacement, taken.length);
+                if (taken[slot]) return false;
+                for (int j = 0; j < i; j++) {
+                    if (slots[j] == slot) return false;
+                }
+                slots[i] = slot;
+            }
+            return true;
+        }
+    }
+}
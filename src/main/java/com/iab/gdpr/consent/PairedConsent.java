@@ -0,0 +1,105 @@
+package com.iab.gdpr.consent;
+
+import com.iab.gdpr.Purpose;
+
+import java.time.Instant;
+
+/**
+ * Vendor consent and publisher purposes consent of the same user, decoded together.
+ *
+ * Both consent strings start with the same header (version through vendor list version), so header values are
+ * exposed once for the pair. Combination of {@link PairedConsent#isVendorPurposeAllowed(int, int)} and
+ * {@link PairedConsent#isCustomPurposeAllowed(int)} answers both vendor and publisher questions for a request.
+ *
+ */
+public interface PairedConsent {
+
+    /**
+     *
+     * @return the version of consent string format
+     */
+    int getVersion();
+
+    /**
+     * @return the {@link Instant} at which the consent strings were created
+     */
+    Instant getConsentRecordCreated();
+
+    /**
+     *
+     * @return the {@link Instant} at which consent strings were last updated
+     */
+    Instant getConsentRecordLastUpdated();
+
+    /**
+     *
+     * @return the Consent Manager Provider ID that last updated the consent strings
+     */
+    int getCmpId();
+
+    /**
+     *
+     * @return the Consent Manager Provider version
+     */
+    int getCmpVersion();
+
+    /**
+     *
+     * @return the screen number in the CMP where consent was given
+     */
+    int getConsentScreen();
+
+    /**
+     *
+     * @return the two-letter ISO639-1 language code that CMP asked for consent in
+     */
+    String getConsentLanguage();
+
+    /**
+     *
+     * @return version of vendor list used in most recent consent strings update.
+     */
+    int getVendorListVersion();
+
+    /**
+     *
+     * @return the vendor consent part of the pair
+     */
+    VendorConsent getVendorConsent();
+
+    /**
+     *
+     * @return the publisher purposes consent part of the pair
+     */
+    PublisherPurposesConsent getPublisherPurposesConsent();
+
+    /**
+     * Check whether vendor with specified ID is allowed to use purpose with specified ID
+     * @param vendorId vendor ID
+     * @param purposeId purpose ID
+     * @return true if both vendor and purpose are allowed in the vendor consent, false otherwise
+     */
+    boolean isVendorPurposeAllowed(int vendorId, int purposeId);
+
+    /**
+     * Check whether vendor with specified ID is allowed to use specified purpose
+     * @param vendorId vendor ID
+     * @param purpose purpose to check
+     * @return true if both vendor and purpose are allowed in the vendor consent, false otherwise
+     */
+    boolean isVendorPurposeAllowed(int vendorId, Purpose purpose);
+
+    /**
+     * Check whether publisher is allowed to use standard purpose with specified ID
+     * @param purposeId purpose ID
+     * @return true if purpose is allowed in the publisher purposes consent, false otherwise
+     */
+    boolean isPublisherPurposeAllowed(int purposeId);
+
+    /**
+     * Check whether publisher is allowed to use custom purpose with specified ID
+     * @param customPurposeId custom purpose ID
+     * @return true if custom purpose is allowed in the publisher purposes consent, false otherwise
+     */
+    boolean isCustomPurposeAllowed(int customPurposeId);
+}
@@ -0,0 +1,59 @@
+package com.iab.gdpr.consent;
+
+import com.iab.gdpr.Bits;
+import com.iab.gdpr.consent.implementation.v1.SharedHeaderPairedConsent;
+
+import java.util.Base64;
+
+import static com.iab.gdpr.GdprConstants.VERSION_BIT_OFFSET;
+import static com.iab.gdpr.GdprConstants.VERSION_BIT_SIZE;
+
+/**
+ * {@link PairedConsent} decoder from a vendor consent and a publisher purposes consent Base64 string.
+ * Right now only version 1 is know, but eventually this can be extended to support new versions
+ */
+public class PairedConsentDecoder {
+
+    private static final Base64.Decoder BASE64_DECODER = Base64.getUrlDecoder();
+
+    public static PairedConsent fromBase64Strings(String vendorConsentString, String publisherPurposesConsentString) {
+        if (isNullOrEmpty(vendorConsentString) || isNullOrEmpty(publisherPurposesConsentString))
+            throw new IllegalArgumentException("Null or empty consent string passed as an argument");
+
+        return fromByteArrays(BASE64_DECODER.decode(vendorConsentString), BASE64_DECODER.decode(publisherPurposesConsentString));
+    }
+
+    public static PairedConsent fromByteArrays(byte[] vendorConsentBytes, byte[] publisherPurposesConsentBytes) {
+        if (vendorConsentBytes == null || vendorConsentBytes.length == 0
+                || publisherPurposesConsentBytes == null || publisherPurposesConsentBytes.length == 0)
+            throw new IllegalArgumentException("Null or empty consent bytes passed as an argument");
+
+        final Bits vendorBits = new Bits(vendorConsentBytes);
+        final Bits publisherBits = new Bits(publisherPurposesConsentBytes);
+        final int version = getVersion(vendorBits);
+        switch (version) {
+            case 1:
+                return new SharedHeaderPairedConsent(vendorBits, publisherBits);
+            default:
+                throw new IllegalStateException("Unsupported version: " + version);
+        }
+    }
+
+    /**
+     * Get the version field from bitmap
+     * @param bits bitmap
+     * @return a version number
+     */
+    private static int getVersion(Bits bits) {
+        return bits.getInt(VERSION_BIT_OFFSET, VERSION_BIT_SIZE);
+    }
+
+    /**
+     * Utility method to check whether string is empty or null
+     * @param string value to check
+     * @return a boolean value of the check
+     */
+    private static boolean isNullOrEmpty(String string) {
+        return string == null || string.isEmpty();
+    }
+}
@@ -2,6 +2,7 @@ package com.iab.gdpr.consent;
 
 import com.iab.gdpr.Bits;
 import com.iab.gdpr.consent.implementation.v1.ByteBufferBackedVendorConsent;
+import com.iab.gdpr.consent.implementation.v1.CompactVendorConsent;
 
 import java.util.Base64;
 
@@ -37,6 +38,17 @@ public class VendorConsentDecoder {
         }
     }
 
+    /**
+     * Immutable form of the consent, for consents handed out to many callers by interners and caches
+     * @param vendorConsent vendor consent
+     * @return consent with the same values whose bytes cannot be changed through {@link VendorConsent#toByteArray()}
+     */
+    static VendorConsent immutable(VendorConsent vendorConsent) {
+        if (vendorConsent instanceof ByteBufferBackedVendorConsent)
+            return ((ByteBufferBackedVendorConsent) vendorConsent).toImmutable();
+        return CompactVendorConsent.freeze(vendorConsent);
+    }
+
     /**
      * Get the version field from bitmap
      * @param bits bitmap
@@ -1,5 +1,8 @@
 package com.iab.gdpr.consent;
 
+import com.iab.gdpr.Base64Url;
+
+import java.nio.ByteBuffer;
 import java.util.Base64;
 
 /**
@@ -19,4 +22,47 @@ public class VendorConsentEncoder {
         return ENCODER.encodeToString(vendorConsent.toByteArray());
     }
 
+    /**
+     * Length of the Base64 string of vendor consent, so that buffers can be sized up front
+     * @param vendorConsent vendor consent
+     * @return number of characters of the Base64 encoded string
+     */
+    public static int encodedLength(VendorConsent vendorConsent) {
+        return Base64Url.encodedLength(vendorConsent.toByteArray().length);
+    }
+
+    /**
+     * Encode vendor consent as Base64 ASCII text into destination array
+     * @param vendorConsent vendor consent
+     * @param dst destination array, must have room for {@link #encodedLength(VendorConsent)} bytes
+     * @param offset offset in the destination array to start writing at
+     * @return number of characters written
+     */
+    public static int encode(VendorConsent vendorConsent, byte[] dst, int offset) {
+        final byte[] bytes = vendorConsent.toByteArray();
+        return Base64Url.encode(bytes, 0, bytes.length, dst, offset);
+    }
+
+    /**
+     * Encode vendor consent as Base64 ASCII text at the position of the destination buffer, advancing it
+     * @param vendorConsent vendor consent
+     * @param dst destination buffer, must have {@link #encodedLength(VendorConsent)} bytes remaining
+     * @return number of characters written
+     */
+    public static int encode(VendorConsent vendorConsent, ByteBuffer dst) {
+        final byte[] bytes = vendorConsent.toByteArray();
+        return Base64Url.encode(bytes, 0, bytes.length, dst);
+    }
+
+    /**
+     * Append Base64 string of vendor consent
+     * @param vendorConsent vendor consent
+     * @param dst destination, i.e. {@link StringBuilder} or {@link java.io.Writer}
+     * @return number of characters appended
+     */
+    public static int encode(VendorConsent vendorConsent, Appendable dst) {
+        final byte[] bytes = vendorConsent.toByteArray();
+        return Base64Url.encode(bytes, 0, bytes.length, dst);
+    }
+
 }
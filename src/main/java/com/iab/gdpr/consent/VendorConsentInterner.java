@@ -0,0 +1,219 @@
+package com.iab.gdpr.consent;
+
+import com.iab.gdpr.Base64Url;
+import com.iab.gdpr.consent.implementation.v1.ByteBufferBackedVendorConsent;
+import com.iab.gdpr.consent.implementation.v1.CompactVendorConsent;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Interner of decoded vendor consents: consents with identical bytes are replaced by one shared instance.
+ *
+ * Interned consents are keyed by their {@link ConsentFingerprint} and held through weak references, so a consent
+ * is dropped from the interner once nothing else uses it. Strings whose fingerprint is already interned are
+ * resolved without decoding, since the fingerprint is computed straight from the Base64 string. A fingerprint
+ * match is always confirmed by comparing bytes.
+ *
+ * Shared consents are immutable copies, {@link VendorConsent#toByteArray()} of a shared consent returns a new array
+ * on every call, so no caller can change the consent seen by the others. Interners are thread safe.
+ */
+public class VendorConsentInterner {
+
+    private final ConcurrentHashMap<ConsentFingerprint, WeakEntry> entries = new ConcurrentHashMap<>();
+    private final ReferenceQueue<VendorConsent> queue = new ReferenceQueue<>();
+    private final int maximumSize;
+
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder dedupCount = new LongAdder();
+    private final LongAdder savedBytes = new LongAdder();
+
+    /**
+     * Interner without bound on number of distinct consents, held only weakly
+     */
+    public VendorConsentInterner() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Interner holding at most maximumSize distinct consents, new consents are not interned while full
+     * @param maximumSize maximum number of distinct interned consents
+     */
+    public VendorConsentInterner(int maximumSize) {
+        if (maximumSize <= 0) throw new IllegalArgumentException("Invalid value for maximumSize:" + maximumSize);
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Decode consent string into shared instance
+     * @param consentString Base64 encoded consent string
+     * @return interned consent equal to the decoded string
+     */
+    public VendorConsent fromBase64String(String consentString) {
+        if (consentString == null || consentString.isEmpty())
+            throw new IllegalArgumentException("Null or empty consent string passed as an argument");
+        final ConsentFingerprint fingerprint = ConsentFingerprint.fromBase64String(consentString);
+        final VendorConsent interned = get(fingerprint);
+        if (interned != null && matches(consentString, interned.toByteArray())) {
+            requestCount.increment();
+            dedupCount.increment();
+            savedBytes.add(estimatedRetainedBytes(interned));
+            return interned;
+        }
+        return intern(VendorConsentDecoder.fromBase64String(consentString), fingerprint);
+    }
+
+    /**
+     * Decode consent bytes into shared instance
+     * @param bytes consent bytes
+     * @return interned consent equal to the decoded bytes
+     */
+    public VendorConsent fromByteArray(byte[] bytes) {
+        return intern(VendorConsentDecoder.fromByteArray(bytes));
+    }
+
+    /**
+     * Return shared instance of the consent
+     * @param vendorConsent vendor consent
+     * @return earlier interned consent with the same bytes, otherwise an immutable copy of vendorConsent that is
+     * interned, or vendorConsent itself when the interner is full
+     */
+    public VendorConsent intern(VendorConsent vendorConsent) {
+        return intern(vendorConsent, ConsentFingerprint.of(vendorConsent));
+    }
+
+    private VendorConsent intern(VendorConsent vendorConsent, ConsentFingerprint fingerprint) {
+        requestCount.increment();
+        expungeStaleEntries();
+        VendorConsent shared = null;
+        while (true) {
+            final WeakEntry existing = entries.get(fingerprint);
+            final VendorConsent interned = existing == null ? null : existing.get();
+            if (interned != null) {
+                if (!sameBytes(interned, vendorConsent)) {
+                    // Fingerprint collision, keep the first consent interned
+                    return vendorConsent;
+                }
+                if (interned != vendorConsent) {
+                    dedupCount.increment();
+                    savedBytes.add(estimatedRetainedBytes(vendorConsent));
+                }
+                return interned;
+            }
+            if (existing == null && entries.size() >= maximumSize) return vendorConsent;
+
+            if (shared == null) shared = VendorConsentDecoder.immutable(vendorConsent);
+            final WeakEntry entry = new WeakEntry(fingerprint, shared, queue);
+            final boolean stored = existing == null
+                    ? entries.putIfAbsent(fingerprint, entry) == null
+                    : entries.replace(fingerprint, existing, entry);
+            if (stored) return shared;
+        }
+    }
+
+    private static boolean sameBytes(VendorConsent first, VendorConsent second) {
+        // Byte buffer backed consents compare their arrays without copying them
+        if (first instanceof ByteBufferBackedVendorConsent && second instanceof ByteBufferBackedVendorConsent)
+            return first.equals(second);
+        return Arrays.equals(first.toByteArray(), second.toByteArray());
+    }
+
+    private VendorConsent get(ConsentFingerprint fingerprint) {
+        final WeakEntry entry = entries.get(fingerprint);
+        return entry == null ? null : entry.get();
+    }
+
+    private void expungeStaleEntries() {
+        WeakEntry entry;
+        while ((entry = (WeakEntry) queue.poll()) != null) {
+            entries.remove(entry.fingerprint, entry);
+        }
+    }
+
+    /**
+     * Compare Base64 string with bytes without decoding the string into an array
+     */
+    private static boolean matches(CharSequence consentString, byte[] bytes) {
+        if (Base64Url.decodedLength(consentString) != bytes.length) return false;
+        int buffer = 0;
+        int bufferedBits = 0;
+        int compared = 0;
+        for (int i = 0; compared < bytes.length; i++) {
+            buffer = (buffer << 6) | Base64Url.sextet(consentString.charAt(i));
+            bufferedBits += 6;
+            if (bufferedBits >= 8) {
+                bufferedBits -= 8;
+                if ((byte) (buffer >>> bufferedBits) != bytes[compared++]) return false;
+                buffer &= (1 << bufferedBits) - 1;
+            }
+        }
+        return true;
+    }
+
+    private static long estimatedRetainedBytes(VendorConsent vendorConsent) {
+        if (vendorConsent instanceof ByteBufferBackedVendorConsent)
+            return ((ByteBufferBackedVendorConsent) vendorConsent).estimatedRetainedBytes();
+        if (vendorConsent instanceof CompactVendorConsent)
+            return ((CompactVendorConsent) vendorConsent).estimatedRetainedBytes();
+        return 32 + ((16L + vendorConsent.toByteArray().length + 7) & ~7L);
+    }
+
+    /**
+     * @return number of distinct consents currently interned
+     */
+    public int size() {
+        expungeStaleEntries();
+        return entries.size();
+    }
+
+    /**
+     * @return number of consents passed through this interner
+     */
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    /**
+     * @return number of consents replaced by an already interned instance
+     */
+    public long getDedupCount() {
+        return dedupCount.sum();
+    }
+
+    /**
+     * @return share of consents replaced by an already interned instance, between 0 and 1
+     */
+    public double getDedupRatio() {
+        final long requests = requestCount.sum();
+        return requests == 0 ? 0 : (double) dedupCount.sum() / requests;
+    }
+
+    /**
+     * @return estimated bytes of heap not retained thanks to the shared instances
+     */
+    public long getSavedBytes() {
+        return savedBytes.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "VendorConsentInterner{" +
+                "Size=" + size() +
+                ", Requests=" + getRequestCount() +
+                ", DedupRatio=" + getDedupRatio() +
+                ", SavedBytes=" + getSavedBytes() +
+                "}";
+    }
+
+    private static final class WeakEntry extends WeakReference<VendorConsent> {
+        final ConsentFingerprint fingerprint;
+
+        WeakEntry(ConsentFingerprint fingerprint, VendorConsent vendorConsent, ReferenceQueue<VendorConsent> queue) {
+            super(vendorConsent, queue);
+            this.fingerprint = fingerprint;
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.iab.gdpr.consent.batch;
+
+import com.iab.gdpr.Base64Url;
+import com.iab.gdpr.consent.VendorConsent;
+import com.iab.gdpr.consent.implementation.v1.VendorConsentBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static com.iab.gdpr.GdprConstants.*;
+
+/**
+ * Parallel encoder of large numbers of vendor consents into Base64 consent strings, i.e. for migrations of stored
+ * consents to a new vendor list.
+ *
+ * Input is a {@link Spliterator} (use {@code stream.spliterator()} for streams) of either consent specs, each
+ * applied to a {@link VendorConsentBuilder}, or of decoded consents with a transformation. Items are read in batches,
+ * every batch is split into slices encoded on a {@link ForkJoinPool}, and encoded slices are written to an
+ * {@link OutputStream} as ASCII lines or passed one string at a time to a callback. Each slice keeps its binary and
+ * text buffers from batch to batch, so steady state encoding allocates little more than the builders and strings.
+ *
+ * Output is in input order unless the encoder is built unordered, in which case slices are written as soon as they
+ * are done and callbacks are invoked from pool threads, so they must be thread safe.
+ *
+ * Encoders are thread safe, but a single call is not meant to share its output stream with other calls.
+ */
+public final class BulkVendorConsentEncoder {
+
+    static final int SLICE_SIZE = 1024;
+    // Longest possible version 1 consent: range section with the maximum number of start and end entries
+    private static final int MAX_ENCODED_SIZE = Math.max(
+            (RANGE_ENTRY_OFFSET + ((1 << NUM_ENTRIES_SIZE) - 1) * (1 + 2 * VENDOR_ID_SIZE) + 7) / 8,
+            (VENDOR_BITFIELD_OFFSET + (1 << MAX_VENDOR_ID_SIZE) - 1 + 7) / 8);
+
+    private final ForkJoinPool pool;
+    private final int batchSize;
+    private final boolean ordered;
+
+    private BulkVendorConsentEncoder(ForkJoinPool pool, int batchSize, boolean ordered) {
+        this.pool = pool;
+        this.batchSize = batchSize;
+        this.ordered = ordered;
+    }
+
+    /**
+     * Build and encode a consent for every spec, writing one consent string per line
+     * @param specs consent specs
+     * @param spec sets fields of a new builder from a spec
+     * @param out output stream, not closed
+     * @param <T> type of spec
+     * @return number of encoded consents
+     * @throws IOException when output cannot be written
+     */
+    public <T> long encode(Spliterator<T> specs, BiConsumer<? super T, VendorConsentBuilder> spec, OutputStream out) throws IOException {
+        return run(specs, builderEncoder(spec), new StreamEmitter(out));
+    }
+
+    /**
+     * Build and encode a consent for every spec, passing consent strings to callback
+     * @param specs consent specs
+     * @param spec sets fields of a new builder from a spec
+     * @param callback receives consent strings
+     * @param <T> type of spec
+     * @return number of encoded consents
+     */
+    public <T> long encode(Spliterator<T> specs, BiConsumer<? super T, VendorConsentBuilder> spec, Consumer<? super String> callback) {
+        return runUnchecked(specs, builderEncoder(spec), new CallbackEmitter(callback));
+    }
+
+    /**
+     * Transform and encode every consent, writing one consent string per line
+     * @param vendorConsents decoded consents
+     * @param transformation creates new consent from existing one, i.e. with {@link com.iab.gdpr.consent.implementation.v1.VendorConsentPatch}
+     * @param out output stream, not closed
+     * @return number of encoded consents
+     * @throws IOException when output cannot be written
+     */
+    public long transform(Spliterator<? extends VendorConsent> vendorConsents,
+                          Function<? super VendorConsent, ? extends VendorConsent> transformation, OutputStream out) throws IOException {
+        return run(vendorConsents, consentEncoder(transformation), new StreamEmitter(out));
+    }
+
+    /**
+     * Transform and encode every consent, passing consent strings to callback
+     * @param vendorConsents decoded consents
+     * @param transformation creates new consent from existing one
+     * @param callback receives consent strings
+     * @return number of encoded consents
+     */
+    public long transform(Spliterator<? extends VendorConsent> vendorConsents,
+                          Function<? super VendorConsent, ? extends VendorConsent> transformation, Consumer<? super String> callback) {
+        return runUnchecked(vendorConsents, consentEncoder(transformation), new CallbackEmitter(callback));
+    }
+
+    private static <T> ItemEncoder<T> builderEncoder(BiConsumer<? super T, VendorConsentBuilder> spec) {
+        return (item, slice) -> {
+            final VendorConsentBuilder builder = new VendorConsentBuilder();
+            spec.accept(item, builder);
+            if (slice.binary == null) slice.binary = new byte[MAX_ENCODED_SIZE];
+            slice.binaryLength = builder.buildInto(slice.binary, 0);
+            return slice.binary;
+        };
+    }
+
+    private static ItemEncoder<VendorConsent> consentEncoder(Function<? super VendorConsent, ? extends VendorConsent> transformation) {
+        return (item, slice) -> {
+            final byte[] bytes = transformation.apply(item).toByteArray();
+            slice.binaryLength = bytes.length;
+            return bytes;
+        };
+    }
+
+    private <T> long runUnchecked(Spliterator<? extends T> items, ItemEncoder<T> encoder, Emitter emitter) {
+        try {
+            return run(items, encoder, emitter);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private <T> long run(Spliterator<? extends T> items, ItemEncoder<T> encoder, Emitter emitter) throws IOException {
+        final Batch<T> batch = new Batch<>(batchSize);
+        final Slice[] slices = new Slice[(batchSize + SLICE_SIZE - 1) / SLICE_SIZE];
+        for (int i = 0; i < slices.length; i++) slices[i] = new Slice();
+
+        long count = 0;
+        while (batch.fill(items)) {
+            final EncodeTask<T> task = new EncodeTask<>(batch, encoder, slices, 0, (batch.size + SLICE_SIZE - 1) / SLICE_SIZE,
+                    ordered ? null : emitter);
+            try {
+                if (batch.size > SLICE_SIZE) {
+                    pool.invoke(task);
+                } else {
+                    task.compute();
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (ordered) {
+                for (int i = 0; i * SLICE_SIZE < batch.size; i++) {
+                    emitter.emit(slices[i]);
+                }
+            }
+            count += batch.size;
+        }
+        return count;
+    }
+
+    private interface ItemEncoder<T> {
+        /**
+         * Encode item into binary consent, returned array holds it in the first slice.binaryLength bytes
+         */
+        byte[] encode(T item, Slice slice);
+    }
+
+    /**
+     * Items of the current batch, read sequentially from the spliterator
+     */
+    private static final class Batch<T> implements Consumer<T> {
+        final Object[] items;
+        int size;
+
+        Batch(int capacity) {
+            this.items = new Object[capacity];
+        }
+
+        @Override
+        public void accept(T item) {
+            items[size++] = item;
+        }
+
+        boolean fill(Spliterator<? extends T> spliterator) {
+            Arrays.fill(items, 0, size, null);
+            size = 0;
+            while (size < items.length && spliterator.tryAdvance(this)) {
+                // items are added by accept
+            }
+            return size > 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        T get(int index) {
+            return (T) items[index];
+        }
+    }
+
+    /**
+     * Encoded consent strings of up to {@link #SLICE_SIZE} items, each followed by a new line
+     */
+    private static final class Slice {
+        byte[] binary; // scratch for builders, allocated on first use
+        int binaryLength;
+        byte[] text = new byte[SLICE_SIZE * 64];
+        int textLength;
+        final int[] ends = new int[SLICE_SIZE];
+        int count;
+
+        <T> void encode(Batch<T> batch, ItemEncoder<T> encoder, int from, int to) {
+            textLength = 0;
+            count = 0;
+            for (int index = from; index < to; index++) {
+                final byte[] bytes = encoder.encode(batch.get(index), this);
+                final int length = Base64Url.encodedLength(binaryLength);
+                if (textLength + length + 1 > text.length)
+                    text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + length + 1));
+                Base64Url.encode(bytes, 0, binaryLength, text, textLength);
+                textLength += length;
+                ends[count++] = textLength;
+                text[textLength++] = '\n';
+            }
+        }
+    }
+
+    private static final class EncodeTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Batch<T> batch;
+        private final ItemEncoder<T> encoder;
+        private final Slice[] slices;
+        private final int fromSlice;
+        private final int toSlice;
+        private final Emitter emitter; // null when slices are emitted in order after the batch
+
+        EncodeTask(Batch<T> batch, ItemEncoder<T> encoder, Slice[] slices, int fromSlice, int toSlice, Emitter emitter) {
+            this.batch = batch;
+            this.encoder = encoder;
+            this.slices = slices;
+            this.fromSlice = fromSlice;
+            this.toSlice = toSlice;
+            this.emitter = emitter;
+        }
+
+        @Override
+        protected void compute() {
+            if (toSlice - fromSlice > 1) {
+                final int middle = (fromSlice + toSlice) >>> 1;
+                invokeAll(new EncodeTask<>(batch, encoder, slices, fromSlice, middle, emitter),
+                        new EncodeTask<>(batch, encoder, slices, middle, toSlice, emitter));
+                return;
+            }
+            final Slice slice = slices[fromSlice];
+            slice.encode(batch, encoder, fromSlice * SLICE_SIZE, Math.min(batch.size, (fromSlice + 1) * SLICE_SIZE));
+            if (emitter != null) {
+                try {
+                    emitter.emit(slice);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    private interface Emitter {
+        void emit(Slice slice) throws IOException;
+    }
+
+    private static final class StreamEmitter implements Emitter {
+        private final OutputStream out;
+
+        StreamEmitter(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void emit(Slice slice) throws IOException {
+            synchronized (this) {
+                out.write(slice.text, 0, slice.textLength);
+            }
+        }
+    }
+
+    private static final class CallbackEmitter implements Emitter {
+        private final Consumer<? super String> callback;
+
+        CallbackEmitter(Consumer<? super String> callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public void emit(Slice slice) {
+            int start = 0;
+            for (int i = 0; i < slice.count; i++) {
+                callback.accept(new String(slice.text, start, slice.ends[i] - start, StandardCharsets.US_ASCII));
+                start = slice.ends[i] + 1;
+            }
+        }
+    }
+
+    /**
+     * Builder of {@link BulkVendorConsentEncoder}
+     */
+    public static class Builder {
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+        private int batchSize = 64 * SLICE_SIZE;
+        private boolean ordered = true;
+
+        /**
+         * @param pool pool to encode on, common pool by default
+         * @return builder
+         */
+        public Builder withPool(ForkJoinPool pool) {
+            this.pool = Objects.requireNonNull(pool, "Argument pool is null");
+            return this;
+        }
+
+        /**
+         * @param batchSize number of items read and held in memory at a time
+         * @return builder
+         */
+        public Builder withBatchSize(int batchSize) {
+            if (batchSize <= 0) throw new IllegalArgumentException("Invalid value for batchSize:" + batchSize);
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * @param ordered true to output consents in input order, default; false to output them as they are encoded
+         * @return builder
+         */
+        public Builder withOrdered(boolean ordered) {
+            this.ordered = ordered;
+            return this;
+        }
+
+        /**
+         * @return bulk encoder
+         */
+        public BulkVendorConsentEncoder build() {
+            return new BulkVendorConsentEncoder(pool, batchSize, ordered);
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package com.iab.gdpr.consent.batch;
+
+import com.iab.gdpr.Base64Url;
+import com.iab.gdpr.BitsRegion;
+import com.iab.gdpr.Purpose;
+import com.iab.gdpr.consent.ConsentFingerprint;
+import com.iab.gdpr.consent.VendorConsent;
+import com.iab.gdpr.consent.implementation.v1.ByteBufferBackedVendorConsent;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Batch of version 1 vendor consents decoded into a single contiguous byte arena.
+ *
+ * Consent at index i occupies arena bytes from offsets[i] (inclusive) to offsets[i + 1] (exclusive). All accessors
+ * take the index of the consent in the batch and parse fields on demand with a
+ * {@link ByteBufferBackedVendorConsent} over the {@link BitsRegion} of the consent, so a whole batch costs
+ * the arena, the offset table and the batch object itself.
+ *
+ * When a {@link VendorConsent} is needed, a {@link View} can be created once and moved between indexes.
+ */
+public final class VendorConsentBatch {
+
+    private static final int VERSION = 1;
+
+    private final byte[] arena;
+    private final int[] offsets;
+
+    private VendorConsentBatch(byte[] arena, int[] offsets) {
+        this.arena = arena;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Decode list of Base64 consent strings into a batch
+     * @param consentStrings consent strings
+     * @return batch with consent at index i decoded from consentStrings.get(i)
+     */
+    public static VendorConsentBatch fromBase64Strings(List<? extends CharSequence> consentStrings) {
+        final int[] offsets = new int[consentStrings.size() + 1];
+        for (int i = 0; i < consentStrings.size(); i++) {
+            final CharSequence consentString = consentStrings.get(i);
+            if (consentString == null || consentString.length() == 0)
+                throw new IllegalArgumentException("Null or empty consent string passed at index " + i);
+            offsets[i + 1] = offsets[i] + Base64Url.decodedLength(consentString);
+        }
+
+        final byte[] arena = new byte[offsets[consentStrings.size()]];
+        for (int i = 0; i < consentStrings.size(); i++) {
+            Base64Url.decode(consentStrings.get(i), arena, offsets[i]);
+        }
+        return validated(new VendorConsentBatch(arena, offsets));
+    }
+
+    /**
+     * Copy list of consent byte arrays into a batch
+     * @param consents consent bytes
+     * @return batch with consent at index i copied from consents.get(i)
+     */
+    public static VendorConsentBatch fromByteArrays(List<byte[]> consents) {
+        final int[] offsets = new int[consents.size() + 1];
+        for (int i = 0; i < consents.size(); i++) {
+            final byte[] bytes = consents.get(i);
+            if (bytes == null || bytes.length == 0)
+                throw new IllegalArgumentException("Null or empty consent bytes passed at index " + i);
+            offsets[i + 1] = offsets[i] + bytes.length;
+        }
+
+        final byte[] arena = new byte[offsets[consents.size()]];
+        for (int i = 0; i < consents.size(); i++) {
+            System.arraycopy(consents.get(i), 0, arena, offsets[i], consents.get(i).length);
+        }
+        return validated(new VendorConsentBatch(arena, offsets));
+    }
+
+    private static VendorConsentBatch validated(VendorConsentBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            final int version = batch.getVersion(i);
+            if (version != VERSION)
+                throw new IllegalStateException("Unsupported version: " + version + " at index " + i);
+        }
+        return batch;
+    }
+
+    /**
+     * @return number of consents in this batch
+     */
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * @param index index of the consent
+     * @return length in bytes of the consent at index
+     */
+    public int getLength(int index) {
+        return offsets[index + 1] - offsets[index];
+    }
+
+    public int getVersion(int index) {
+        return consent(index).getVersion();
+    }
+
+    public Instant getConsentRecordCreated(int index) {
+        return consent(index).getConsentRecordCreated();
+    }
+
+    public Instant getConsentRecordLastUpdated(int index) {
+        return consent(index).getConsentRecordLastUpdated();
+    }
+
+    public int getCmpId(int index) {
+        return consent(index).getCmpId();
+    }
+
+    public int getCmpVersion(int index) {
+        return consent(index).getCmpVersion();
+    }
+
+    public int getConsentScreen(int index) {
+        return consent(index).getConsentScreen();
+    }
+
+    public String getConsentLanguage(int index) {
+        return consent(index).getConsentLanguage();
+    }
+
+    public int getVendorListVersion(int index) {
+        return consent(index).getVendorListVersion();
+    }
+
+    public int getAllowedPurposesBits(int index) {
+        return consent(index).getAllowedPurposesBits();
+    }
+
+    public Set<Integer> getAllowedPurposeIds(int index) {
+        return consent(index).getAllowedPurposeIds();
+    }
+
+    public int getMaxVendorId(int index) {
+        return consent(index).getMaxVendorId();
+    }
+
+    public boolean isPurposeAllowed(int index, int purposeId) {
+        return consent(index).isPurposeAllowed(purposeId);
+    }
+
+    public boolean isPurposeAllowed(int index, Purpose purpose) {
+        return consent(index).isPurposeAllowed(purpose);
+    }
+
+    public boolean isVendorAllowed(int index, int vendorId) {
+        return consent(index).isVendorAllowed(vendorId);
+    }
+
+    public Set<Integer> getAllowedVendorIds(int index) {
+        return consent(index).getAllowedVendorIds();
+    }
+
+    /**
+     * @param index index of the consent
+     * @return copy of the consent bytes at index
+     */
+    public byte[] toByteArray(int index) {
+        return Arrays.copyOfRange(arena, offsets[index], offsets[index + 1]);
+    }
+
+    /**
+     * @param index index of the consent
+     * @return read-only buffer over the consent bytes at index, without copying. Buffers of equal consents are
+     * equal and have equal hash codes.
+     */
+    public ByteBuffer toByteBuffer(int index) {
+        return ByteBuffer.wrap(arena, offsets[index], getLength(index)).asReadOnlyBuffer();
+    }
+
+    /**
+     * @param index index of the consent
+     * @return fingerprint of the consent bytes at index, computed in place without copying
+     */
+    public ConsentFingerprint fingerprint(int index) {
+        return ConsentFingerprint.of(arena, offsets[index], getLength(index));
+    }
+
+    /**
+     * @return new view positioned at the first consent of this batch
+     */
+    public View newView() {
+        return new View();
+    }
+
+    /**
+     * Consent at index parsed in place, over the arena region of the consent
+     */
+    private ByteBufferBackedVendorConsent consent(int index) {
+        return new ByteBufferBackedVendorConsent(new BitsRegion(arena, offsets[index], getLength(index)));
+    }
+
+    /**
+     * {@link VendorConsent} view of a single consent of the batch. View can be repositioned with
+     * {@link View#moveTo(int)}, so one instance can be used to walk the whole batch. Views are not thread safe.
+     */
+    public final class View implements VendorConsent {
+        private int index;
+        private ByteBufferBackedVendorConsent consent;
+
+        private View() {
+        }
+
+        /**
+         * Position this view at the consent with specified index
+         * @param index index of the consent in the batch
+         * @return this view
+         */
+        public View moveTo(int index) {
+            if (index < 0 || index >= size())
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            this.index = index;
+            this.consent = consent(index);
+            return this;
+        }
+
+        private ByteBufferBackedVendorConsent current() {
+            // Positioned at the first consent lazily, so views of empty batches can be created
+            return consent != null ? consent : moveTo(index).consent;
+        }
+
+        /**
+         * @return index of the consent this view is positioned at
+         */
+        public int index() {
+            return index;
+        }
+
+        @Override
+        public int getVersion() {
+            return current().getVersion();
+        }
+
+        @Override
+        public Instant getConsentRecordCreated() {
+            return current().getConsentRecordCreated();
+        }
+
+        @Override
+        public Instant getConsentRecordLastUpdated() {
+            return current().getConsentRecordLastUpdated();
+        }
+
+        @Override
+        public int getCmpId() {
+            return current().getCmpId();
+        }
+
+        @Override
+        public int getCmpVersion() {
+            return current().getCmpVersion();
+        }
+
+        @Override
+        public int getConsentScreen() {
+            return current().getConsentScreen();
+        }
+
+        @Override
+        public String getConsentLanguage() {
+            return current().getConsentLanguage();
+        }
+
+        @Override
+        public int getVendorListVersion() {
+            return current().getVendorListVersion();
+        }
+
+        @Override
+        public Set<Integer> getAllowedPurposeIds() {
+            return current().getAllowedPurposeIds();
+        }
+
+        @Override
+        public Set<Purpose> getAllowedPurposes() {
+            return current().getAllowedPurposes();
+        }
+
+        @Override
+        public int getAllowedPurposesBits() {
+            return current().getAllowedPurposesBits();
+        }
+
+        @Override
+        public Set<Integer> getAllowedVendorIds() {
+            return current().getAllowedVendorIds();
+        }
+
+        @Override
+        public int getMaxVendorId() {
+            return current().getMaxVendorId();
+        }
+
+        @Override
+        public boolean isPurposeAllowed(int purposeId) {
+            return current().isPurposeAllowed(purposeId);
+        }
+
+        @Override
+        public boolean isPurposeAllowed(Purpose purpose) {
+            return current().isPurposeAllowed(purpose);
+        }
+
+        @Override
+        public boolean isVendorAllowed(int vendorId) {
+            return current().isVendorAllowed(vendorId);
+        }
+
+        @Override
+        public byte[] toByteArray() {
+            return current().toByteArray();
+        }
+
+        @Override
+        public String toString() {
+            return "VendorConsentBatch.View{" +
+                    "Index=" + index +
+                    ",Version=" + getVersion() +
+                    ",Created=" + getConsentRecordCreated() +
+                    ",LastUpdated=" + getConsentRecordLastUpdated() +
+                    ",CmpId=" + getCmpId() +
+                    ",CmpVersion=" + getCmpVersion() +
+                    ",ConsentScreen=" + getConsentScreen() +
+                    ",ConsentLanguage=" + getConsentLanguage() +
+                    ",VendorListVersion=" + getVendorListVersion() +
+                    ",PurposesAllowed=" + getAllowedPurposeIds() +
+                    ",MaxVendorId=" + getMaxVendorId() +
+                    "}";
+        }
+    }
+}
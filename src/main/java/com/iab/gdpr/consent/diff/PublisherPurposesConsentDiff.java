@@ -0,0 +1,122 @@
+package com.iab.gdpr.consent.diff;
+
+import com.iab.gdpr.consent.PublisherPurposesConsent;
+import com.iab.gdpr.consent.implementation.v1.PrecomputedPublisherPurposesConsent;
+import com.iab.gdpr.consent.query.VendorWords;
+
+import java.util.PrimitiveIterator;
+
+/**
+ * Difference between two versions of a publisher purposes consent: standard and custom purposes that were granted
+ * (allowed in the new version only) and revoked (allowed in the old version only).
+ *
+ * Purposes are reported as masks where bit (purposeId - 1) is set for a changed purpose. Up to 64 custom purposes
+ * are compared.
+ */
+public final class PublisherPurposesConsentDiff {
+
+    private final int grantedPurposesMask;
+    private final int revokedPurposesMask;
+    private final long grantedCustomPurposesMask;
+    private final long revokedCustomPurposesMask;
+
+    private PublisherPurposesConsentDiff(int grantedPurposesMask, int revokedPurposesMask,
+                                         long grantedCustomPurposesMask, long revokedCustomPurposesMask) {
+        this.grantedPurposesMask = grantedPurposesMask;
+        this.revokedPurposesMask = revokedPurposesMask;
+        this.grantedCustomPurposesMask = grantedCustomPurposesMask;
+        this.revokedCustomPurposesMask = revokedCustomPurposesMask;
+    }
+
+    /**
+     * Compare two versions of a publisher purposes consent
+     * @param before old version
+     * @param after new version
+     * @return difference
+     */
+    public static PublisherPurposesConsentDiff of(PublisherPurposesConsent before, PublisherPurposesConsent after) {
+        final PrecomputedPublisherPurposesConsent old = PrecomputedPublisherPurposesConsent.of(before);
+        final PrecomputedPublisherPurposesConsent current = PrecomputedPublisherPurposesConsent.of(after);
+
+        final int changedPurposes = old.getAllowedPurposesMask() ^ current.getAllowedPurposesMask();
+        final long changedCustomPurposes = old.getCustomAllowedPurposesMask() ^ current.getCustomAllowedPurposesMask();
+        return new PublisherPurposesConsentDiff(
+                current.getAllowedPurposesMask() & changedPurposes,
+                old.getAllowedPurposesMask() & changedPurposes,
+                current.getCustomAllowedPurposesMask() & changedCustomPurposes,
+                old.getCustomAllowedPurposesMask() & changedCustomPurposes);
+    }
+
+    /**
+     * @return true if neither standard nor custom purposes changed
+     */
+    public boolean isEmpty() {
+        return (grantedPurposesMask | revokedPurposesMask) == 0 && (grantedCustomPurposesMask | revokedCustomPurposesMask) == 0;
+    }
+
+    /**
+     * @return mask of purposes allowed in new version only, bit (purposeId - 1) is set for a granted purpose
+     */
+    public int getGrantedPurposesMask() {
+        return grantedPurposesMask;
+    }
+
+    /**
+     * @return mask of purposes allowed in old version only, bit (purposeId - 1) is set for a revoked purpose
+     */
+    public int getRevokedPurposesMask() {
+        return revokedPurposesMask;
+    }
+
+    /**
+     * @return mask of custom purposes allowed in new version only, bit (purposeId - 1) is set for a granted purpose
+     */
+    public long getGrantedCustomPurposesMask() {
+        return grantedCustomPurposesMask;
+    }
+
+    /**
+     * @return mask of custom purposes allowed in old version only, bit (purposeId - 1) is set for a revoked purpose
+     */
+    public long getRevokedCustomPurposesMask() {
+        return revokedCustomPurposesMask;
+    }
+
+    /**
+     * @return PurposeIds allowed in new version only, in ascending order
+     */
+    public PrimitiveIterator.OfInt grantedPurposeIds() {
+        return VendorWords.iterator(new long[]{grantedPurposesMask});
+    }
+
+    /**
+     * @return PurposeIds allowed in old version only, in ascending order
+     */
+    public PrimitiveIterator.OfInt revokedPurposeIds() {
+        return VendorWords.iterator(new long[]{revokedPurposesMask});
+    }
+
+    /**
+     * @return custom PurposeIds allowed in new version only, in ascending order
+     */
+    public PrimitiveIterator.OfInt grantedCustomPurposeIds() {
+        return VendorWords.iterator(new long[]{grantedCustomPurposesMask});
+    }
+
+    /**
+     * @return custom PurposeIds allowed in old version only, in ascending order
+     */
+    public PrimitiveIterator.OfInt revokedCustomPurposeIds() {
+        return VendorWords.iterator(new long[]{revokedCustomPurposesMask});
+    }
+
+    @Override
+    public String toString() {
+        return "PublisherPurposesConsentDiff{" +
+                "GrantedPurposes=" + Integer.toBinaryString(grantedPurposesMask) +
+                ", RevokedPurposes=" + Integer.toBinaryString(revokedPurposesMask) +
+                ", GrantedCustomPurposes=" + Long.toBinaryString(grantedCustomPurposesMask) +
+                ", RevokedCustomPurposes=" + Long.toBinaryString(revokedCustomPurposesMask) +
+                "}";
+    }
+}
@@ -0,0 +1,167 @@
+package com.iab.gdpr.consent.diff;
+
+import com.iab.gdpr.consent.VendorConsent;
+import com.iab.gdpr.consent.query.VendorWords;
+
+import java.util.PrimitiveIterator;
+
+import static com.iab.gdpr.GdprConstants.PURPOSES_SIZE;
+
+/**
+ * Difference between two versions of a vendor consent: vendors and purposes that were granted (allowed in the new
+ * version only) and revoked (allowed in the old version only).
+ *
+ * Both vendor sections are read into words with {@link VendorWords} and compared a word at a time, so no set of
+ * VendorIds is created. Vendors are reported in the bit order of {@link VendorWords} and purposes as masks where
+ * bit (purposeId - 1) is set for a changed purpose.
+ */
+public final class VendorConsentDiff {
+
+    private final long[] grantedVendors;
+    private final long[] revokedVendors;
+    private final int grantedPurposesMask;
+    private final int revokedPurposesMask;
+
+    private VendorConsentDiff(long[] grantedVendors, long[] revokedVendors, int grantedPurposesMask, int revokedPurposesMask) {
+        this.grantedVendors = grantedVendors;
+        this.revokedVendors = revokedVendors;
+        this.grantedPurposesMask = grantedPurposesMask;
+        this.revokedPurposesMask = revokedPurposesMask;
+    }
+
+    /**
+     * Compare two versions of a vendor consent
+     * @param before old version
+     * @param after new version
+     * @return difference
+     */
+    public static VendorConsentDiff of(VendorConsent before, VendorConsent after) {
+        final int wordCount = VendorWords.wordCount(Math.max(before.getMaxVendorId(), after.getMaxVendorId()));
+        final long[] granted = new long[wordCount];
+        final long[] revoked = new long[wordCount];
+        VendorWords.readInto(before, revoked);
+        VendorWords.readInto(after, granted);
+        for (int i = 0; i < wordCount; i++) {
+            final long changed = granted[i] ^ revoked[i];
+            granted[i] &= changed;
+            revoked[i] &= changed;
+        }
+
+        final int beforePurposes = purposesMask(before.getAllowedPurposesBits());
+        final int afterPurposes = purposesMask(after.getAllowedPurposesBits());
+        final int changedPurposes = beforePurposes ^ afterPurposes;
+        return new VendorConsentDiff(granted, revoked, afterPurposes & changedPurposes, beforePurposes & changedPurposes);
+    }
+
+    /**
+     * @param allowedPurposesBits purposes with PurposeId 1 in the highest bit
+     * @return purposes with PurposeId 1 in the lowest bit
+     */
+    static int purposesMask(int allowedPurposesBits) {
+        return Integer.reverse(allowedPurposesBits) >>> (Integer.SIZE - PURPOSES_SIZE);
+    }
+
+    /**
+     * @return true if neither vendors nor purposes changed
+     */
+    public boolean isEmpty() {
+        return grantedPurposesMask == 0 && revokedPurposesMask == 0
+                && VendorWords.count(grantedVendors) == 0 && VendorWords.count(revokedVendors) == 0;
+    }
+
+    /**
+     * @param vendorId VendorId
+     * @return true if vendor is allowed in new version only
+     */
+    public boolean isVendorGranted(int vendorId) {
+        return VendorWords.isSet(grantedVendors, vendorId);
+    }
+
+    /**
+     * @param vendorId VendorId
+     * @return true if vendor is allowed in old version only
+     */
+    public boolean isVendorRevoked(int vendorId) {
+        return VendorWords.isSet(revokedVendors, vendorId);
+    }
+
+    /**
+     * @return number of vendors allowed in new version only
+     */
+    public int getGrantedVendorCount() {
+        return VendorWords.count(grantedVendors);
+    }
+
+    /**
+     * @return number of vendors allowed in old version only
+     */
+    public int getRevokedVendorCount() {
+        return VendorWords.count(revokedVendors);
+    }
+
+    /**
+     * @return VendorIds allowed in new version only, in ascending order
+     */
+    public PrimitiveIterator.OfInt grantedVendorIds() {
+        return VendorWords.iterator(grantedVendors);
+    }
+
+    /**
+     * @return VendorIds allowed in old version only, in ascending order
+     */
+    public PrimitiveIterator.OfInt revokedVendorIds() {
+        return VendorWords.iterator(revokedVendors);
+    }
+
+    /**
+     * @return copy of the words of vendors allowed in new version only
+     */
+    public long[] getGrantedVendorWords() {
+        return grantedVendors.clone();
+    }
+
+    /**
+     * @return copy of the words of vendors allowed in old version only
+     */
+    public long[] getRevokedVendorWords() {
+        return revokedVendors.clone();
+    }
+
+    /**
+     * @return mask of purposes allowed in new version only, bit (purposeId - 1) is set for a granted purpose
+     */
+    public int getGrantedPurposesMask() {
+        return grantedPurposesMask;
+    }
+
+    /**
+     * @return mask of purposes allowed in old version only, bit (purposeId - 1) is set for a revoked purpose
+     */
+    public int getRevokedPurposesMask() {
+        return revokedPurposesMask;
+    }
+
+    /**
+     * @return PurposeIds allowed in new version only, in ascending order
+     */
+    public PrimitiveIterator.OfInt grantedPurposeIds() {
+        return VendorWords.iterator(new long[]{grantedPurposesMask});
+    }
+
+    /**
+     * @return PurposeIds allowed in old version only, in ascending order
+     */
+    public PrimitiveIterator.OfInt revokedPurposeIds() {
+        return VendorWords.iterator(new long[]{revokedPurposesMask});
+    }
+
+    @Override
+    public String toString() {
+        return "VendorConsentDiff{" +
+                "GrantedVendors=" + getGrantedVendorCount() +
+                ", RevokedVendors=" + getRevokedVendorCount() +
+                ", GrantedPurposes=" + Integer.toBinaryString(grantedPurposesMask) +
+                ", RevokedPurposes=" + Integer.toBinaryString(revokedPurposesMask) +
+                "}";
+    }
+}
@@ -3,6 +3,7 @@ package com.iab.gdpr.consent.implementation.v1;
 
 import com.iab.gdpr.Bits;
 import com.iab.gdpr.Purpose;
+import com.iab.gdpr.consent.ConsentFingerprint;
 import com.iab.gdpr.consent.VendorConsent;
 import com.iab.gdpr.exception.VendorConsentParseException;
 
@@ -25,12 +26,23 @@ import static com.iab.gdpr.GdprConstants.*;
  * In the environment where decoded consent string is kept for longer time with numerous isPurposeAllowed()/isVendorAllowed()
  * calls a different implementation may be needed that would cache results of those calls.
  *
+ * {@link #toByteArray()} returns the backing array, so the consent changes when the array is modified. Consents
+ * shared between many callers should be turned into an immutable copy with {@link #toImmutable()} first.
+ *
  */
 public class ByteBufferBackedVendorConsent implements VendorConsent {
     private final Bits bits;
+    private final boolean immutable; // backing array is owned by this consent and never handed out
+    // Computed on first use, racing threads compute the same value
+    private volatile ConsentFingerprint fingerprint;
 
     public ByteBufferBackedVendorConsent(Bits bits) {
+        this(bits, false);
+    }
+
+    private ByteBufferBackedVendorConsent(Bits bits, boolean immutable) {
         this.bits = bits;
+        this.immutable = immutable;
     }
 
     @Override
@@ -167,9 +179,63 @@ public class ByteBufferBackedVendorConsent implements VendorConsent {
         }
     }
 
+    /**
+     * @return backing array of this consent, or a copy of it when this consent is immutable
+     */
     @Override
     public byte[] toByteArray() {
-        return bits.toByteArray();
+        return immutable ? bits.toByteArray().clone() : bits.toByteArray();
+    }
+
+    /**
+     * Create copy of this consent that is safe to share: it owns a copy of the bytes and {@link #toByteArray()}
+     * returns a new copy on every call
+     * @return immutable consent with the same bytes, or this consent when it is immutable already
+     */
+    public ByteBufferBackedVendorConsent toImmutable() {
+        if (immutable) return this;
+        return new ByteBufferBackedVendorConsent(new Bits(bits.toByteArray().clone()), true);
+    }
+
+    /**
+     * @return true if bytes of this consent cannot be changed through {@link #toByteArray()}
+     */
+    public boolean isImmutable() {
+        return immutable;
+    }
+
+    /**
+     * Create compact, fully decoded copy of this consent that is better suited for long term storage
+     * @return compact vendor consent
+     * @see CompactVendorConsent#freeze(VendorConsent)
+     */
+    public CompactVendorConsent freeze() {
+        return CompactVendorConsent.freeze(this);
+    }
+
+    /**
+     * Fingerprint of the consent bytes, computed once and memoized. For consents that are not immutable it does not
+     * follow changes made to the array returned by {@link #toByteArray()} after the first call.
+     * @return fingerprint
+     */
+    public ConsentFingerprint fingerprint() {
+        ConsentFingerprint result = fingerprint;
+        if (result == null) {
+            result = ConsentFingerprint.of(bits.toByteArray());
+            fingerprint = result;
+        }
+        return result;
+    }
+
+    /**
+     * Estimate number of bytes retained by this object (including {@link Bits} and the byte array)
+     * on 64 bit JVM with compressed oops
+     * @return estimated retained size in bytes
+     */
+    public long estimatedRetainedBytes() {
+        // consent object is object header + two references + boolean, Bits is object header + one reference
+        // and memoized fingerprint is object header + two longs
+        return 24 + 16 + ((16L + bits.toByteArray().length + 7) & ~7L) + (fingerprint == null ? 0 : 32);
     }
 
     /**
@@ -236,6 +302,7 @@ public class ByteBufferBackedVendorConsent implements VendorConsent {
 
     @Override
     public int hashCode() {
+        // Derived from the current bytes every time, the backing array is exposed through toByteArray()
         return Arrays.hashCode(bits.toByteArray());
     }
 
@@ -0,0 +1,393 @@
+package com.iab.gdpr.consent.implementation.v1;
+
+import com.iab.gdpr.Bits;
+import com.iab.gdpr.Purpose;
+import com.iab.gdpr.consent.VendorConsent;
+import com.iab.gdpr.consent.range.RangeEntries;
+import com.iab.gdpr.consent.range.RangeEntry;
+import com.iab.gdpr.consent.range.RangeEntryCursor;
+import com.iab.gdpr.exception.VendorConsentParseException;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.iab.gdpr.GdprConstants.*;
+
+/**
+ * Immutable, fully decoded implementation of {@link VendorConsent} meant to be kept around for a long time
+ * (i.e. in caches).
+ *
+ * All header fields are held as primitives and the vendor section is re-encoded into a single int array using
+ * whichever of the following is smallest for the allowed vendor set:
+ * <ul>
+ *     <li>bit field with one bit per vendor</li>
+ *     <li>sorted list of [start, end] intervals of allowed (or denied) vendors</li>
+ *     <li>sorted list of allowed (or denied) vendor IDs</li>
+ * </ul>
+ *
+ * The consent bytes are not kept. {@link #toByteArray()} encodes the consent again on every call, with the vendor
+ * encoding type and default consent of the original. Range entries are written sorted and merged, so a consent
+ * whose range entries were not is encoded into different bytes that decode to the same values.
+ *
+ * Two compact consents are equal when they encode into the same bytes.
+ *
+ * Use {@link #freeze(VendorConsent)} to create an instance from any other {@link VendorConsent}.
+ */
+public final class CompactVendorConsent implements VendorConsent {
+
+    private static final byte BIT_FIELD = 0;
+    private static final byte INTERVALS = 1;
+    private static final byte LIST = 2;
+
+    private final long consentRecordCreated;
+    private final long consentRecordLastUpdated;
+    private final int vendorListVersion;
+    private final int allowedPurposesBits;
+    private final int maxVendorId;
+    private final short cmpId;
+    private final short cmpVersion;
+    private final short consentLanguage;
+    private final byte version;
+    private final byte consentScreen;
+    private final byte vendorEncoding;
+    private final boolean vendorsNegated; // true if vendors describe denied rather than allowed vendors
+    private final boolean rangeEncoding; // vendor encoding type of the original consent
+    private final boolean defaultConsent; // default consent of the original consent, false for bit field encoding
+    private final int[] vendors;
+    private final int hashCode;
+
+    private CompactVendorConsent(Bits bits, RangeEntryCursor cursor, byte vendorEncoding, boolean vendorsNegated, int[] vendors) {
+        this.version = (byte) bits.getInt(VERSION_BIT_OFFSET, VERSION_BIT_SIZE);
+        this.consentRecordCreated = bits.getInstantFromEpochDeciseconds(CREATED_BIT_OFFSET, CREATED_BIT_SIZE).toEpochMilli() / 100;
+        this.consentRecordLastUpdated = bits.getInstantFromEpochDeciseconds(UPDATED_BIT_OFFSET, UPDATED_BIT_SIZE).toEpochMilli() / 100;
+        this.cmpId = (short) bits.getInt(CMP_ID_OFFSET, CMP_ID_SIZE);
+        this.cmpVersion = (short) bits.getInt(CMP_VERSION_OFFSET, CMP_VERSION_SIZE);
+        this.consentScreen = (byte) bits.getInt(CONSENT_SCREEN_SIZE_OFFSET, CONSENT_SCREEN_SIZE);
+        this.consentLanguage = (short) bits.getInt(CONSENT_LANGUAGE_OFFSET, CONSENT_LANGUAGE_SIZE);
+        this.vendorListVersion = bits.getInt(VENDOR_LIST_VERSION_OFFSET, VENDOR_LIST_VERSION_SIZE);
+        this.allowedPurposesBits = bits.getInt(PURPOSES_OFFSET, PURPOSES_SIZE);
+        this.maxVendorId = bits.getInt(MAX_VENDOR_ID_OFFSET, MAX_VENDOR_ID_SIZE);
+        this.vendorEncoding = vendorEncoding;
+        this.vendorsNegated = vendorsNegated;
+        this.rangeEncoding = cursor.isRangeEncoding();
+        this.defaultConsent = cursor.isDefaultConsent();
+        this.vendors = vendors;
+        this.hashCode = computeHashCode();
+    }
+
+    /**
+     * Create compact representation of the vendor consent
+     * @param vendorConsent vendor consent
+     * @return compact vendor consent with the same values as the argument
+     * @throws VendorConsentParseException when vendor section of the consent is corrupt
+     */
+    public static CompactVendorConsent freeze(VendorConsent vendorConsent) {
+        if (vendorConsent instanceof CompactVendorConsent) return (CompactVendorConsent) vendorConsent;
+
+        final Bits bits = new Bits(vendorConsent.toByteArray());
+        final RangeEntryCursor cursor = new RangeEntryCursor(bits);
+        final int maxVendorId = cursor.getMaxVendorId();
+        final int[] allowed = allowedVendorWords(cursor, maxVendorId);
+
+        // Count allowed vendors and runs of allowed and denied vendors
+        int allowedCount = 0;
+        int allowedRuns = 0;
+        int deniedRuns = 0;
+        boolean previous = false;
+        for (int vendorId = 1; vendorId <= maxVendorId; vendorId++) {
+            final boolean current = isSet(allowed, vendorId);
+            if (current) allowedCount++;
+            if (vendorId == 1 || current != previous) {
+                if (current) allowedRuns++;
+                else deniedRuns++;
+            }
+            previous = current;
+        }
+
+        // Pick the smallest representation, bit field wins ties since it has constant lookup time
+        byte encoding = BIT_FIELD;
+        boolean negated = false;
+        int size = allowed.length;
+        final int[] candidateSizes = {2 * allowedRuns, 2 * deniedRuns, allowedCount, maxVendorId - allowedCount};
+        for (int i = 0; i < candidateSizes.length; i++) {
+            if (candidateSizes[i] < size) {
+                size = candidateSizes[i];
+                encoding = i < 2 ? INTERVALS : LIST;
+                negated = i % 2 == 1;
+            }
+        }
+
+        final int[] vendors = encoding == BIT_FIELD ? allowed : new int[size];
+        if (encoding != BIT_FIELD) {
+            int index = 0;
+            for (int vendorId = 1; vendorId <= maxVendorId; vendorId++) {
+                if (isSet(allowed, vendorId) == negated) continue;
+                if (encoding == LIST) {
+                    vendors[index++] = vendorId;
+                } else if (index == 0 || vendors[index - 1] != vendorId - 1) {
+                    vendors[index++] = vendorId;
+                    vendors[index++] = vendorId;
+                } else {
+                    vendors[index - 1] = vendorId;
+                }
+            }
+        }
+        return new CompactVendorConsent(bits, cursor, encoding, negated, vendors);
+    }
+
+    /**
+     * Estimate number of bytes retained by this object on 64 bit JVM with compressed oops
+     * @return estimated retained size in bytes
+     */
+    public long estimatedRetainedBytes() {
+        // object header + 2 longs + 5 ints + 3 shorts + 3 bytes + 3 booleans + array reference
+        final long objectSize = align(12 + 2 * 8 + 5 * 4 + 3 * 2 + 3 + 3 + 4);
+        return objectSize + align(16 + 4L * vendors.length);
+    }
+
+    @Override
+    public int getVersion() {
+        return version;
+    }
+
+    @Override
+    public Instant getConsentRecordCreated() {
+        return Instant.ofEpochMilli(consentRecordCreated * 100);
+    }
+
+    @Override
+    public Instant getConsentRecordLastUpdated() {
+        return Instant.ofEpochMilli(consentRecordLastUpdated * 100);
+    }
+
+    @Override
+    public int getCmpId() {
+        return cmpId;
+    }
+
+    @Override
+    public int getCmpVersion() {
+        return cmpVersion;
+    }
+
+    @Override
+    public int getConsentScreen() {
+        return consentScreen;
+    }
+
+    @Override
+    public String getConsentLanguage() {
+        final char first = (char) ((consentLanguage >>> 6) + 65);
+        final char second = (char) ((consentLanguage & 0x3F) + 65);
+        return new String(new char[]{first, second}).toUpperCase();
+    }
+
+    @Override
+    public int getVendorListVersion() {
+        return vendorListVersion;
+    }
+
+    @Override
+    public Set<Integer> getAllowedPurposeIds() {
+        final Set<Integer> allowedPurposes = new HashSet<>();
+        for (int purposeId = 1; purposeId <= PURPOSES_SIZE; purposeId++) {
+            if (isPurposeAllowed(purposeId)) {
+                allowedPurposes.add(purposeId);
+            }
+        }
+        return allowedPurposes;
+    }
+
+    @Override
+    public Set<Purpose> getAllowedPurposes() {
+        return getAllowedPurposeIds().stream().map(Purpose::valueOf).collect(Collectors.toSet());
+    }
+
+    @Override
+    public int getAllowedPurposesBits() {
+        return allowedPurposesBits;
+    }
+
+    @Override
+    public Set<Integer> getAllowedVendorIds() {
+        final Set<Integer> allowedVendorIds = new HashSet<>();
+        for (int vendorId = 1; vendorId <= maxVendorId; vendorId++) {
+            if (isVendorAllowed(vendorId)) {
+                allowedVendorIds.add(vendorId);
+            }
+        }
+        return allowedVendorIds;
+    }
+
+    @Override
+    public int getMaxVendorId() {
+        return maxVendorId;
+    }
+
+    @Override
+    public boolean isPurposeAllowed(int purposeId) {
+        if (purposeId < 1 || purposeId > PURPOSES_SIZE) return false;
+        return (allowedPurposesBits & (1 << (PURPOSES_SIZE - purposeId))) != 0;
+    }
+
+    @Override
+    public boolean isPurposeAllowed(Purpose purpose) {
+        return isPurposeAllowed(purpose.getId());
+    }
+
+    @Override
+    public boolean isVendorAllowed(int vendorId) {
+        if (vendorId < 1 || vendorId > maxVendorId) return false;
+
+        switch (vendorEncoding) {
+            case BIT_FIELD:
+                return isSet(vendors, vendorId);
+            case INTERVALS:
+                return isInInterval(vendorId) != vendorsNegated;
+            default:
+                return (Arrays.binarySearch(vendors, vendorId) >= 0) != vendorsNegated;
+        }
+    }
+
+    /**
+     * Encode this consent, with the vendor encoding type and default consent of the consent it was frozen from
+     * @return newly encoded consent bytes
+     */
+    @Override
+    public byte[] toByteArray() {
+        final BitSet vendorIds = new BitSet(maxVendorId + 1);
+        for (int vendorId = 1; vendorId <= maxVendorId; vendorId++) {
+            if (isVendorAllowed(vendorId) != defaultConsent) vendorIds.set(vendorId);
+        }
+        final List<RangeEntry> rangeEntries = rangeEncoding ? RangeEntries.of(vendorIds) : null;
+        final int bitSize = rangeEncoding
+                ? RANGE_ENTRY_OFFSET + RangeEntries.size(rangeEntries)
+                : VENDOR_BITFIELD_OFFSET + maxVendorId;
+
+        final Bits bits = new Bits(new byte[(bitSize + 7) / 8]);
+        bits.setInt(VERSION_BIT_OFFSET, VERSION_BIT_SIZE, version);
+        bits.setInstantToEpochDeciseconds(CREATED_BIT_OFFSET, CREATED_BIT_SIZE, getConsentRecordCreated());
+        bits.setInstantToEpochDeciseconds(UPDATED_BIT_OFFSET, UPDATED_BIT_SIZE, getConsentRecordLastUpdated());
+        bits.setInt(CMP_ID_OFFSET, CMP_ID_SIZE, cmpId);
+        bits.setInt(CMP_VERSION_OFFSET, CMP_VERSION_SIZE, cmpVersion);
+        bits.setInt(CONSENT_SCREEN_SIZE_OFFSET, CONSENT_SCREEN_SIZE, consentScreen);
+        bits.setInt(CONSENT_LANGUAGE_OFFSET, CONSENT_LANGUAGE_SIZE, consentLanguage);
+        bits.setInt(VENDOR_LIST_VERSION_OFFSET, VENDOR_LIST_VERSION_SIZE, vendorListVersion);
+        bits.setInt(PURPOSES_OFFSET, PURPOSES_SIZE, allowedPurposesBits);
+        bits.setInt(MAX_VENDOR_ID_OFFSET, MAX_VENDOR_ID_SIZE, maxVendorId);
+        if (rangeEncoding) {
+            bits.setInt(ENCODING_TYPE_OFFSET, ENCODING_TYPE_SIZE, VENDOR_ENCODING_RANGE);
+            if (defaultConsent) bits.setBit(DEFAULT_CONSENT_OFFSET);
+            bits.setInt(NUM_ENTRIES_OFFSET, NUM_ENTRIES_SIZE, rangeEntries.size());
+            int currentOffset = RANGE_ENTRY_OFFSET;
+            for (RangeEntry rangeEntry : rangeEntries) {
+                currentOffset = rangeEntry.appendTo(bits, currentOffset);
+            }
+        } else {
+            bits.setBits(VENDOR_BITFIELD_OFFSET, maxVendorId, vendorIds.get(1, maxVendorId + 1).toLongArray());
+        }
+        return bits.toByteArray();
+    }
+
+    private boolean isInInterval(int vendorId) {
+        // Find last interval with start <= vendorId
+        int low = 0;
+        int high = vendors.length / 2 - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (vendors[2 * mid] <= vendorId) low = mid + 1;
+            else high = mid - 1;
+        }
+        return high >= 0 && vendors[2 * high + 1] >= vendorId;
+    }
+
+    private static boolean isSet(int[] words, int vendorId) {
+        return (words[(vendorId - 1) >>> 5] & (1 << ((vendorId - 1) & 31))) != 0;
+    }
+
+    private static int[] allowedVendorWords(RangeEntryCursor cursor, int maxVendorId) {
+        final int[] words = new int[(maxVendorId + 31) >>> 5];
+        while (cursor.next()) {
+            for (int vendorId = Math.max(cursor.getStartVendorId(), 1); vendorId <= cursor.getEndVendorId(); vendorId++) {
+                words[(vendorId - 1) >>> 5] |= 1 << ((vendorId - 1) & 31);
+            }
+        }
+        if (cursor.isDefaultConsent()) {
+            for (int i = 0; i < words.length; i++) words[i] = ~words[i];
+            if ((maxVendorId & 31) != 0) words[words.length - 1] &= (1 << (maxVendorId & 31)) - 1;
+        }
+        return words;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CompactVendorConsent that = (CompactVendorConsent) o;
+        return hashCode == that.hashCode &&
+                consentRecordCreated == that.consentRecordCreated &&
+                consentRecordLastUpdated == that.consentRecordLastUpdated &&
+                vendorListVersion == that.vendorListVersion &&
+                allowedPurposesBits == that.allowedPurposesBits &&
+                maxVendorId == that.maxVendorId &&
+                cmpId == that.cmpId &&
+                cmpVersion == that.cmpVersion &&
+                consentLanguage == that.consentLanguage &&
+                version == that.version &&
+                consentScreen == that.consentScreen &&
+                vendorEncoding == that.vendorEncoding &&
+                vendorsNegated == that.vendorsNegated &&
+                rangeEncoding == that.rangeEncoding &&
+                defaultConsent == that.defaultConsent &&
+                Arrays.equals(vendors, that.vendors);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    private int computeHashCode() {
+        int result = Long.hashCode(consentRecordCreated);
+        result = 31 * result + Long.hashCode(consentRecordLastUpdated);
+        result = 31 * result + vendorListVersion;
+        result = 31 * result + allowedPurposesBits;
+        result = 31 * result + maxVendorId;
+        result = 31 * result + cmpId;
+        result = 31 * result + cmpVersion;
+        result = 31 * result + consentLanguage;
+        result = 31 * result + version;
+        result = 31 * result + consentScreen;
+        result = 31 * result + vendorEncoding;
+        result = 31 * result + Boolean.hashCode(vendorsNegated);
+        result = 31 * result + Boolean.hashCode(rangeEncoding);
+        result = 31 * result + Boolean.hashCode(defaultConsent);
+        result = 31 * result + Arrays.hashCode(vendors);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "CompactVendorConsent{" +
+                "Version=" + getVersion() +
+                ",Created=" + getConsentRecordCreated() +
+                ",LastUpdated=" + getConsentRecordLastUpdated() +
+                ",CmpId=" + getCmpId() +
+                ",CmpVersion=" + getCmpVersion() +
+                ",ConsentScreen=" + getConsentScreen() +
+                ",ConsentLanguage=" + getConsentLanguage() +
+                ",VendorListVersion=" + getVendorListVersion() +
+                ",PurposesAllowed=" + getAllowedPurposeIds() +
+                ",MaxVendorId=" + getMaxVendorId() +
+                "}";
+    }
+}
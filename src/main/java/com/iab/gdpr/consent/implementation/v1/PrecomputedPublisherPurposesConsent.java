@@ -0,0 +1,223 @@
+package com.iab.gdpr.consent.implementation.v1;
+
+
+import com.iab.gdpr.Bits;
+import com.iab.gdpr.Purpose;
+import com.iab.gdpr.consent.PublisherPurposesConsent;
+import com.iab.gdpr.exception.VendorConsentParseException;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.iab.gdpr.GdprConstants.*;
+
+/**
+ * Implementation of {@link PublisherPurposesConsent} that decodes standard and custom purposes once, at construction
+ * time, into int and long masks. Header fields are still parsed on demand from the byte buffer.
+ *
+ * This is the implementation to use when decoded publisher purposes consent is kept around and
+ * isPurposeAllowed()/isCustomPurposeAllowed() are called many times: each check is a single mask test.
+ * Unlike {@link ByteBufferBackedPublisherPurposesConsent} it can also return custom purpose bits for more than
+ * 32 custom purposes through {@link #getCustomAllowedPurposesBitsAsLong()}.
+ */
+public class PrecomputedPublisherPurposesConsent implements PublisherPurposesConsent {
+    private final Bits bits;
+    private final int allowedPurposesBits;
+    private final int purposesMask; // bit (purposeId - 1) set when purpose is allowed
+    private final int numberCustomPurposes;
+    private final long customAllowedPurposesBits;
+    private final long customPurposesMask; // bit (purposeId - 1) set when custom purpose is allowed
+
+    public PrecomputedPublisherPurposesConsent(Bits bits) {
+        this.bits = bits;
+        this.allowedPurposesBits = bits.getInt(PUBLISHER_PURPOSES_OFFSET, PURPOSES_SIZE);
+        this.purposesMask = Integer.reverse(allowedPurposesBits) >>> (Integer.SIZE - PURPOSES_SIZE);
+        this.numberCustomPurposes = bits.getInt(NUMBER_CUSTOM_PURPOSES_OFFSET, NUMBER_CUSTOM_PURPOSES_SIZE);
+        this.customAllowedPurposesBits = bits.getLong(CUSTOM_PURPOSES_BITFIELD_OFFSET, numberCustomPurposes);
+        this.customPurposesMask = numberCustomPurposes == 0 ? 0 : Long.reverse(customAllowedPurposesBits) >>> (Long.SIZE - numberCustomPurposes);
+    }
+
+    /**
+     * Create precomputed copy of any publisher purposes consent
+     * @param publisherPurposesConsent publisher purposes consent
+     * @return precomputed publisher purposes consent with the same values
+     */
+    public static PrecomputedPublisherPurposesConsent of(PublisherPurposesConsent publisherPurposesConsent) {
+        if (publisherPurposesConsent instanceof PrecomputedPublisherPurposesConsent)
+            return (PrecomputedPublisherPurposesConsent) publisherPurposesConsent;
+        return new PrecomputedPublisherPurposesConsent(new Bits(publisherPurposesConsent.toByteArray()));
+    }
+
+    @Override
+    public int getVersion() {
+        return bits.getInt(VERSION_BIT_OFFSET, VERSION_BIT_SIZE);
+    }
+
+    @Override
+    public Instant getConsentRecordCreated() {
+        return bits.getInstantFromEpochDeciseconds(CREATED_BIT_OFFSET, CREATED_BIT_SIZE);
+    }
+
+    @Override
+    public Instant getConsentRecordLastUpdated() {
+        return bits.getInstantFromEpochDeciseconds(UPDATED_BIT_OFFSET, UPDATED_BIT_SIZE);
+    }
+
+    @Override
+    public int getCmpId() {
+        return bits.getInt(CMP_ID_OFFSET, CMP_ID_SIZE);
+    }
+
+    @Override
+    public int getCmpVersion() {
+        return bits.getInt(CMP_VERSION_OFFSET, CMP_VERSION_SIZE);
+    }
+
+    @Override
+    public int getConsentScreen() {
+        return bits.getInt(CONSENT_SCREEN_SIZE_OFFSET, CONSENT_SCREEN_SIZE);
+    }
+
+    @Override
+    public String getConsentLanguage() {
+        return bits.getSixBitString(CONSENT_LANGUAGE_OFFSET, CONSENT_LANGUAGE_SIZE);
+    }
+
+    @Override
+    public int getVendorListVersion() {
+        return bits.getInt(VENDOR_LIST_VERSION_OFFSET, VENDOR_LIST_VERSION_SIZE);
+    }
+
+    @Override
+    public int getPublisherPurposesVersion() {
+        return bits.getInt(PUBLISHER_PURPOSES_LIST_VERSION_OFFSET, PUBLISHER_PURPOSES_LIST_VERSION_SIZE);
+    }
+
+    @Override
+    public Set<Integer> getAllowedPurposeIds() {
+        return maskToIds(purposesMask);
+    }
+
+    @Override
+    public Set<Purpose> getAllowedPurposes() {
+        return getAllowedPurposeIds().stream().map(Purpose::valueOf).collect(Collectors.toSet());
+    }
+
+    @Override
+    public int getAllowedPurposesBits() {
+        return allowedPurposesBits;
+    }
+
+    @Override
+    public boolean isPurposeAllowed(int purposeId) {
+        if (purposeId < 1 || purposeId > PURPOSES_SIZE) return false;
+        return (purposesMask & (1 << (purposeId - 1))) != 0;
+    }
+
+    @Override
+    public boolean isPurposeAllowed(Purpose purpose) {
+        return isPurposeAllowed(purpose.getId());
+    }
+
+    @Override
+    public byte[] toByteArray() {
+        return bits.toByteArray();
+    }
+
+    @Override
+    public Set<Integer> getCustomAllowedPurposeIds() {
+        return maskToIds(customPurposesMask);
+    }
+
+    /**
+     *
+     * @return an integer equivalent of custom allowed purpose id bits according to this consent string
+     * @throws VendorConsentParseException when consent string has more than 32 custom purposes,
+     * use {@link #getCustomAllowedPurposesBitsAsLong()} instead
+     */
+    @Override
+    public int getCustomAllowedPurposesBits() {
+        if (numberCustomPurposes > Integer.SIZE) {
+            throw new VendorConsentParseException("can't fit bit range in int " + numberCustomPurposes);
+        }
+        return (int) customAllowedPurposesBits;
+    }
+
+    /**
+     *
+     * @return a long equivalent of custom allowed purpose id bits according to this consent string
+     */
+    public long getCustomAllowedPurposesBitsAsLong() {
+        return customAllowedPurposesBits;
+    }
+
+    /**
+     *
+     * @return mask of allowed custom purposes where bit (purposeId - 1) is set when custom purpose is allowed
+     */
+    public long getCustomAllowedPurposesMask() {
+        return customPurposesMask;
+    }
+
+    /**
+     *
+     * @return mask of allowed purposes where bit (purposeId - 1) is set when purpose is allowed
+     */
+    public int getAllowedPurposesMask() {
+        return purposesMask;
+    }
+
+    /**
+     *
+     * @return number of custom purposes in this consent string
+     */
+    public int getNumberCustomPurposes() {
+        return numberCustomPurposes;
+    }
+
+    @Override
+    public boolean isCustomPurposeAllowed(int purposeId) {
+        if (purposeId < 1 || purposeId > numberCustomPurposes) return false;
+        return (customPurposesMask & (1L << (purposeId - 1))) != 0;
+    }
+
+    private static Set<Integer> maskToIds(long mask) {
+        final Set<Integer> ids = new HashSet<>(Long.bitCount(mask) * 2);
+        for (long remaining = mask; remaining != 0; remaining &= remaining - 1) {
+            ids.add(Long.numberOfTrailingZeros(remaining) + 1);
+        }
+        return ids;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PrecomputedPublisherPurposesConsent that = (PrecomputedPublisherPurposesConsent) o;
+        return Arrays.equals(bits.toByteArray(), that.bits.toByteArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(bits.toByteArray());
+    }
+
+    @Override
+    public String toString() {
+        return "PrecomputedPublisherPurposesConsent{" +
+                "Version=" + getVersion() +
+                ",Created=" + getConsentRecordCreated() +
+                ",LastUpdated=" + getConsentRecordLastUpdated() +
+                ",CmpId=" + getCmpId() +
+                ",CmpVersion=" + getCmpVersion() +
+                ",ConsentScreen=" + getConsentScreen() +
+                ",ConsentLanguage=" + getConsentLanguage() +
+                ",VendorListVersion=" + getVendorListVersion() +
+                ",PurposesAllowed=" + getAllowedPurposeIds() +
+                ",CustomPurposesAllowed=" + getCustomAllowedPurposeIds() +
+                "}";
+    }
+}
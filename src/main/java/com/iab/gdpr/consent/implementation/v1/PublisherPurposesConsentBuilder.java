@@ -6,10 +6,8 @@ import com.iab.gdpr.consent.PublisherPurposesConsent;
 import com.iab.gdpr.exception.VendorConsentCreateException;
 
 import java.time.Instant;
-import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import static com.iab.gdpr.GdprConstants.*;
 
@@ -28,8 +26,9 @@ public class PublisherPurposesConsentBuilder {
     private String consentLanguage;
     private int vendorListVersion;
     private int publisherPurposesListVersion;
-    private Set<Integer> allowedPurposes = new HashSet<>(PURPOSES_SIZE);
-    private Set<Integer> customAllowedPurposes = new HashSet<>(CUSTOM_PURPOSES_SIZE);
+    private int allowedPurposesMask; // bit (purposeId - 1) set when purpose is allowed
+    private long customAllowedPurposesMask; // bit (purposeId - 1) set when custom purpose is allowed
+    private int numberCustomPurposes;
 
     /**
      * With creation date
@@ -131,7 +130,11 @@ public class PublisherPurposesConsentBuilder {
         final boolean invalidPurposeIdFound = allowedPurposeIds.stream().anyMatch(purposeId -> purposeId < 0 || purposeId > PURPOSES_SIZE);
         if (invalidPurposeIdFound) throw new IllegalArgumentException("Invalid purpose ID found");
 
-        this.allowedPurposes = allowedPurposeIds;
+        int mask = 0;
+        for (int purposeId : allowedPurposeIds) {
+            if (purposeId > 0) mask |= 1 << (purposeId - 1);
+        }
+        this.allowedPurposesMask = mask;
         return this;
     }
 
@@ -145,7 +148,24 @@ public class PublisherPurposesConsentBuilder {
         // Validate
         Objects.requireNonNull(allowedPurposes, "Argument allowedPurposes is null");
 
-        this.allowedPurposes = allowedPurposes.stream().map(Purpose::getId).collect(Collectors.toSet());
+        int mask = 0;
+        for (Purpose purpose : allowedPurposes) {
+            if (purpose.getId() > 0 && purpose.getId() <= PURPOSES_SIZE) mask |= 1 << (purpose.getId() - 1);
+        }
+        this.allowedPurposesMask = mask;
+        return this;
+    }
+
+    /**
+     * With allowed purposes mask
+     *
+     * @param allowedPurposesMask bit (purposeId - 1) set for every allowed purpose
+     * @return builder
+     */
+    public PublisherPurposesConsentBuilder withAllowedPurposesMask(int allowedPurposesMask) {
+        if ((allowedPurposesMask & -(1 << PURPOSES_SIZE)) != 0) throw new IllegalArgumentException("Invalid purpose ID found");
+
+        this.allowedPurposesMask = allowedPurposesMask;
         return this;
     }
 
@@ -161,7 +181,24 @@ public class PublisherPurposesConsentBuilder {
         final boolean invalidPurposeIdFound = allowedPurposeIds.stream().anyMatch(purposeId -> purposeId < 0 || purposeId > CUSTOM_PURPOSES_SIZE);
         if (invalidPurposeIdFound) throw new IllegalArgumentException("Invalid purpose ID found");
 
-        this.customAllowedPurposes = allowedPurposeIds;
+        long mask = 0;
+        for (int purposeId : allowedPurposeIds) {
+            if (purposeId > 0) mask |= 1L << (purposeId - 1);
+        }
+        this.customAllowedPurposesMask = mask;
+        this.numberCustomPurposes = allowedPurposeIds.size();
+        return this;
+    }
+
+    /**
+     * With allowed custom purposes mask. Number of custom purposes is the highest allowed custom purpose ID.
+     *
+     * @param customAllowedPurposesMask bit (purposeId - 1) set for every allowed custom purpose
+     * @return builder
+     */
+    public PublisherPurposesConsentBuilder withCustomAllowedPurposesMask(long customAllowedPurposesMask) {
+        this.customAllowedPurposesMask = customAllowedPurposesMask;
+        this.numberCustomPurposes = Long.SIZE - Long.numberOfLeadingZeros(customAllowedPurposesMask);
         return this;
     }
 
@@ -180,7 +217,6 @@ public class PublisherPurposesConsentBuilder {
             throw new VendorConsentCreateException("Invalid value for vendorListVersion:" + vendorListVersion);
 
         // Calculate size of bit buffer in bits
-        final int numberCustomPurposes = customAllowedPurposes.size();
         final int bitBufferSizeInBits = CUSTOM_PURPOSES_BITFIELD_OFFSET + numberCustomPurposes;
 
         // Create new bit buffer
@@ -199,21 +235,11 @@ public class PublisherPurposesConsentBuilder {
         bits.setInt(PUBLISHER_PURPOSES_LIST_VERSION_OFFSET, PUBLISHER_PURPOSES_LIST_VERSION_SIZE, publisherPurposesListVersion);
 
         // Set purposes bits
-        for (int i = 0; i < PURPOSES_SIZE; i++) {
-            if (allowedPurposes.contains(i + 1))
-                bits.setBit(PURPOSES_OFFSET + i);
-            else
-                bits.unsetBit(PURPOSES_OFFSET + i);
-        }
+        bits.setBits(PURPOSES_OFFSET, PURPOSES_SIZE, new long[]{allowedPurposesMask});
 
         bits.setInt(NUMBER_CUSTOM_PURPOSES_OFFSET, NUMBER_CUSTOM_PURPOSES_SIZE, numberCustomPurposes);
         // Set custom purposes bits
-        for (int i = 0; i < numberCustomPurposes; i++) {
-            if (customAllowedPurposes.contains(i+1))
-                bits.setBit(CUSTOM_PURPOSES_BITFIELD_OFFSET+i);
-            else
-                bits.unsetBit(CUSTOM_PURPOSES_BITFIELD_OFFSET + i);
-        }
+        bits.setBits(CUSTOM_PURPOSES_BITFIELD_OFFSET, numberCustomPurposes, new long[]{customAllowedPurposesMask});
 
         return new ByteBufferBackedPublisherPurposesConsent(bits);
     }
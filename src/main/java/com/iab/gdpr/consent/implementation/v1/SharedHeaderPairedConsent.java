@@ -0,0 +1,186 @@
+package com.iab.gdpr.consent.implementation.v1;
+
+import com.iab.gdpr.Bits;
+import com.iab.gdpr.Purpose;
+import com.iab.gdpr.consent.PairedConsent;
+import com.iab.gdpr.consent.PublisherPurposesConsent;
+import com.iab.gdpr.consent.VendorConsent;
+import com.iab.gdpr.exception.VendorConsentParseException;
+
+import java.time.Instant;
+
+import static com.iab.gdpr.GdprConstants.*;
+
+/**
+ * Implementation of {@link PairedConsent}. Shared header of the two consent strings is compared byte by byte and
+ * parsed only once, from the vendor consent. Vendor section is parsed on demand by {@link ByteBufferBackedVendorConsent},
+ * publisher purposes are precomputed by {@link PrecomputedPublisherPurposesConsent}.
+ */
+public class SharedHeaderPairedConsent implements PairedConsent {
+
+    // Header fields shared by vendor consent and publisher purposes consent, in bit order
+    private static final String[] HEADER_FIELD_NAMES = {"Version", "Created", "LastUpdated", "CmpId", "CmpVersion",
+            "ConsentScreen", "ConsentLanguage", "VendorListVersion"};
+    private static final int[] HEADER_FIELD_OFFSETS = {VERSION_BIT_OFFSET, CREATED_BIT_OFFSET, UPDATED_BIT_OFFSET,
+            CMP_ID_OFFSET, CMP_VERSION_OFFSET, CONSENT_SCREEN_SIZE_OFFSET, CONSENT_LANGUAGE_OFFSET, VENDOR_LIST_VERSION_OFFSET};
+    private static final int HEADER_SIZE = VENDOR_LIST_VERSION_OFFSET + VENDOR_LIST_VERSION_SIZE;
+
+    private final ByteBufferBackedVendorConsent vendorConsent;
+    private final PrecomputedPublisherPurposesConsent publisherPurposesConsent;
+    private final long consentRecordCreated;
+    private final long consentRecordLastUpdated;
+    private final int version;
+    private final int cmpId;
+    private final int cmpVersion;
+    private final int consentScreen;
+    private final String consentLanguage;
+    private final int vendorListVersion;
+
+    /**
+     * @param vendorBits vendor consent bits
+     * @param publisherBits publisher purposes consent bits
+     * @throws VendorConsentParseException when shared header fields of the two consents differ
+     */
+    public SharedHeaderPairedConsent(Bits vendorBits, Bits publisherBits) {
+        validateSharedHeader(vendorBits, publisherBits);
+
+        this.vendorConsent = new ByteBufferBackedVendorConsent(vendorBits);
+        this.publisherPurposesConsent = new PrecomputedPublisherPurposesConsent(publisherBits);
+        this.version = vendorBits.getInt(VERSION_BIT_OFFSET, VERSION_BIT_SIZE);
+        this.consentRecordCreated = vendorBits.getLong(CREATED_BIT_OFFSET, CREATED_BIT_SIZE);
+        this.consentRecordLastUpdated = vendorBits.getLong(UPDATED_BIT_OFFSET, UPDATED_BIT_SIZE);
+        this.cmpId = vendorBits.getInt(CMP_ID_OFFSET, CMP_ID_SIZE);
+        this.cmpVersion = vendorBits.getInt(CMP_VERSION_OFFSET, CMP_VERSION_SIZE);
+        this.consentScreen = vendorBits.getInt(CONSENT_SCREEN_SIZE_OFFSET, CONSENT_SCREEN_SIZE);
+        this.consentLanguage = vendorBits.getSixBitString(CONSENT_LANGUAGE_OFFSET, CONSENT_LANGUAGE_SIZE);
+        this.vendorListVersion = vendorBits.getInt(VENDOR_LIST_VERSION_OFFSET, VENDOR_LIST_VERSION_SIZE);
+    }
+
+    /**
+     * Check that header bits from version through vendor list version are the same in both consents
+     */
+    private static void validateSharedHeader(Bits vendorBits, Bits publisherBits) {
+        final byte[] vendorBytes = vendorBits.toByteArray();
+        final byte[] publisherBytes = publisherBits.toByteArray();
+        final int fullBytes = HEADER_SIZE / 8;
+        final int remainingBitsMask = (0xFF00 >>> (HEADER_SIZE % 8)) & 0xFF;
+        if (vendorBytes.length <= fullBytes || publisherBytes.length <= fullBytes)
+            throw new VendorConsentParseException("Expected consent strings to contain at least " + (fullBytes + 1) + " bytes");
+
+        boolean same = (vendorBytes[fullBytes] & remainingBitsMask) == (publisherBytes[fullBytes] & remainingBitsMask);
+        for (int i = 0; i < fullBytes && same; i++) {
+            same = vendorBytes[i] == publisherBytes[i];
+        }
+        if (same) return;
+
+        // Slow path, find the field that differs to report it
+        for (int i = 0; i < HEADER_FIELD_OFFSETS.length; i++) {
+            final int offset = HEADER_FIELD_OFFSETS[i];
+            final int size = (i + 1 < HEADER_FIELD_OFFSETS.length ? HEADER_FIELD_OFFSETS[i + 1] : HEADER_SIZE) - offset;
+            if (vendorBits.getLong(offset, size) != publisherBits.getLong(offset, size)) {
+                throw new VendorConsentParseException("Vendor consent and publisher purposes consent differ in shared header field " + HEADER_FIELD_NAMES[i]);
+            }
+        }
+    }
+
+    @Override
+    public int getVersion() {
+        return version;
+    }
+
+    @Override
+    public Instant getConsentRecordCreated() {
+        return Instant.ofEpochMilli(consentRecordCreated * 100);
+    }
+
+    @Override
+    public Instant getConsentRecordLastUpdated() {
+        return Instant.ofEpochMilli(consentRecordLastUpdated * 100);
+    }
+
+    @Override
+    public int getCmpId() {
+        return cmpId;
+    }
+
+    @Override
+    public int getCmpVersion() {
+        return cmpVersion;
+    }
+
+    @Override
+    public int getConsentScreen() {
+        return consentScreen;
+    }
+
+    @Override
+    public String getConsentLanguage() {
+        return consentLanguage;
+    }
+
+    @Override
+    public int getVendorListVersion() {
+        return vendorListVersion;
+    }
+
+    @Override
+    public VendorConsent getVendorConsent() {
+        return vendorConsent;
+    }
+
+    @Override
+    public PublisherPurposesConsent getPublisherPurposesConsent() {
+        return publisherPurposesConsent;
+    }
+
+    @Override
+    public boolean isVendorPurposeAllowed(int vendorId, int purposeId) {
+        return vendorConsent.isPurposeAllowed(purposeId) && vendorConsent.isVendorAllowed(vendorId);
+    }
+
+    @Override
+    public boolean isVendorPurposeAllowed(int vendorId, Purpose purpose) {
+        return isVendorPurposeAllowed(vendorId, purpose.getId());
+    }
+
+    @Override
+    public boolean isPublisherPurposeAllowed(int purposeId) {
+        return publisherPurposesConsent.isPurposeAllowed(purposeId);
+    }
+
+    @Override
+    public boolean isCustomPurposeAllowed(int customPurposeId) {
+        return publisherPurposesConsent.isCustomPurposeAllowed(customPurposeId);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SharedHeaderPairedConsent that = (SharedHeaderPairedConsent) o;
+        return vendorConsent.equals(that.vendorConsent) && publisherPurposesConsent.equals(that.publisherPurposesConsent);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * vendorConsent.hashCode() + publisherPurposesConsent.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "SharedHeaderPairedConsent{" +
+                "Version=" + getVersion() +
+                ",Created=" + getConsentRecordCreated() +
+                ",LastUpdated=" + getConsentRecordLastUpdated() +
+                ",CmpId=" + getCmpId() +
+                ",CmpVersion=" + getCmpVersion() +
+                ",ConsentScreen=" + getConsentScreen() +
+                ",ConsentLanguage=" + getConsentLanguage() +
+                ",VendorListVersion=" + getVendorListVersion() +
+                ",VendorPurposesAllowed=" + vendorConsent.getAllowedPurposeIds() +
+                ",MaxVendorId=" + vendorConsent.getMaxVendorId() +
+                ",PublisherPurposesAllowed=" + publisherPurposesConsent.getAllowedPurposeIds() +
+                ",CustomPurposesAllowed=" + publisherPurposesConsent.getCustomAllowedPurposeIds() +
+                "}";
+    }
+}
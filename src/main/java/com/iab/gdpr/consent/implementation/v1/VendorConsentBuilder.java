@@ -1,15 +1,18 @@
 package com.iab.gdpr.consent.implementation.v1;
 
 import com.iab.gdpr.Bits;
+import com.iab.gdpr.BitsRegion;
 import com.iab.gdpr.GdprConstants;
 import com.iab.gdpr.Purpose;
+import com.iab.gdpr.consent.range.RangeEntries;
 import com.iab.gdpr.consent.range.RangeEntry;
 import com.iab.gdpr.consent.VendorConsent;
 import com.iab.gdpr.exception.VendorConsentCreateException;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.time.Instant;
 import java.util.*;
-import java.util.stream.Collectors;
 
 import static com.iab.gdpr.GdprConstants.*;
 
@@ -29,10 +32,11 @@ public class VendorConsentBuilder {
     private int vendorListVersion;
     private int maxVendorId;
     private int vendorEncodingType;
-    private Set<Integer> allowedPurposes = new HashSet<>(PURPOSES_SIZE);
-    private Set<Integer> vendorsBitField; // used when bit field encoding is used
+    private int allowedPurposesMask; // bit (purposeId - 1) set when purpose is allowed
+    private long[] vendorsBitField; // used when bit field encoding is used, bit (vendorId - 1) set when vendor is allowed
     private List<RangeEntry> rangeEntries; // used when range entry encoding is used
     private boolean defaultConsent;
+    private Set<Integer> allowedVendorIds; // used when encoding is selected automatically
 
     /**
      * With creation date
@@ -115,7 +119,11 @@ public class VendorConsentBuilder {
         final boolean invalidPurposeIdFound = allowedPurposeIds.stream().anyMatch(purposeId -> purposeId < 0 || purposeId > PURPOSES_SIZE);
         if (invalidPurposeIdFound) throw new IllegalArgumentException("Invalid purpose ID found");
 
-        this.allowedPurposes = allowedPurposeIds;
+        int mask = 0;
+        for (int purposeId : allowedPurposeIds) {
+            if (purposeId > 0) mask |= 1 << (purposeId - 1);
+        }
+        this.allowedPurposesMask = mask;
         return this;
     }
 
@@ -128,7 +136,23 @@ public class VendorConsentBuilder {
         // Validate
         Objects.requireNonNull(allowedPurposes, "Argument allowedPurposes is null");
 
-        this.allowedPurposes = allowedPurposes.stream().map(Purpose::getId).collect(Collectors.toSet());
+        int mask = 0;
+        for (Purpose purpose : allowedPurposes) {
+            if (purpose.getId() > 0 && purpose.getId() <= PURPOSES_SIZE) mask |= 1 << (purpose.getId() - 1);
+        }
+        this.allowedPurposesMask = mask;
+        return this;
+    }
+
+    /**
+     * With allowed purposes mask
+     * @param allowedPurposesMask bit (purposeId - 1) set for every allowed purpose
+     * @return builder
+     */
+    public VendorConsentBuilder withAllowedPurposesMask(int allowedPurposesMask) {
+        if ((allowedPurposesMask & -(1 << PURPOSES_SIZE)) != 0) throw new IllegalArgumentException("Invalid purpose ID found");
+
+        this.allowedPurposesMask = allowedPurposesMask;
         return this;
     }
 
@@ -159,9 +183,66 @@ public class VendorConsentBuilder {
      * With bit field entries
      * @param bitFieldEntries set of VendorIds for which the vendors have consent
      * @return builder
+     * @throws IllegalArgumentException when a VendorId is not positive or does not fit the max vendor ID field
      */
     public VendorConsentBuilder withBitField(Set<Integer> bitFieldEntries) {
-        this.vendorsBitField = bitFieldEntries;
+        int maxId = 0;
+        for (int vendorId : bitFieldEntries) {
+            maxId = Math.max(maxId, validVendorId(vendorId));
+        }
+        final long[] words = new long[(maxId + 63) >>> 6];
+        for (int vendorId : bitFieldEntries) {
+            words[(vendorId - 1) >>> 6] |= 1L << (vendorId - 1);
+        }
+        this.vendorsBitField = words;
+        return this;
+    }
+
+    /**
+     * With bit field entries
+     * @param bitFieldEntries VendorIds for which the vendors have consent, in any order
+     * @return builder
+     * @throws IllegalArgumentException when a VendorId is not positive or does not fit the max vendor ID field
+     */
+    public VendorConsentBuilder withBitField(int[] bitFieldEntries) {
+        int maxId = 0;
+        for (int vendorId : bitFieldEntries) {
+            maxId = Math.max(maxId, validVendorId(vendorId));
+        }
+        final long[] words = new long[(maxId + 63) >>> 6];
+        for (int vendorId : bitFieldEntries) {
+            words[(vendorId - 1) >>> 6] |= 1L << (vendorId - 1);
+        }
+        this.vendorsBitField = words;
+        return this;
+    }
+
+    /**
+     * With bit field entries
+     * @param bitFieldEntries VendorIds for which the vendors have consent, bit VendorId is set for every such vendor
+     * @return builder
+     * @throws IllegalArgumentException when a VendorId is not positive or does not fit the max vendor ID field
+     */
+    public VendorConsentBuilder withBitField(BitSet bitFieldEntries) {
+        if (bitFieldEntries.get(0)) validVendorId(0);
+        if (!bitFieldEntries.isEmpty()) validVendorId(bitFieldEntries.length() - 1);
+        this.vendorsBitField = bitFieldEntries.get(1, Math.max(1, bitFieldEntries.length())).toLongArray();
+        return this;
+    }
+
+    /**
+     * With bit field words, in the layout of {@link com.iab.gdpr.consent.query.VendorWords}
+     * @param bitFieldWords bit (vendorId - 1) of the words set for every vendor that has consent, words are copied
+     * @return builder
+     * @throws IllegalArgumentException when a set bit is for a VendorId that does not fit the max vendor ID field
+     */
+    public VendorConsentBuilder withBitFieldWords(long[] bitFieldWords) {
+        for (int i = bitFieldWords.length - 1; i >= 0; i--) {
+            if (bitFieldWords[i] == 0) continue;
+            validVendorId(i * 64 + Long.SIZE - Long.numberOfLeadingZeros(bitFieldWords[i]));
+            break;
+        }
+        this.vendorsBitField = bitFieldWords.clone();
         return this;
     }
 
@@ -175,6 +256,36 @@ public class VendorConsentBuilder {
         return this;
     }
 
+    /**
+     * With range entries derived from sorted VendorIds
+     * @param sortedVendorIds VendorIds in ascending order whose consent is the opposite of default consent
+     * @return builder
+     */
+    public VendorConsentBuilder withRangeEntries(int[] sortedVendorIds) {
+        this.rangeEntries = RangeEntries.of(sortedVendorIds);
+        return this;
+    }
+
+    /**
+     * With range entries derived from set of VendorIds
+     * @param vendorIds VendorIds whose consent is the opposite of default consent
+     * @return builder
+     */
+    public VendorConsentBuilder withRangeEntries(BitSet vendorIds) {
+        this.rangeEntries = RangeEntries.of(vendorIds);
+        return this;
+    }
+
+    /**
+     * With range entries sorted and merged into the shortest equivalent list
+     * @param rangeEntries VendorIds or ranges of VendorIds in any order, may overlap
+     * @return builder
+     */
+    public VendorConsentBuilder withNormalizedRangeEntries(List<? extends RangeEntry> rangeEntries) {
+        this.rangeEntries = RangeEntries.normalize(rangeEntries);
+        return this;
+    }
+
     /**
      * With default consent
      * @param defaultConsent Default consent for VendorIds not covered by a RangeEntry. 0=No Consent 1=Consent
@@ -185,12 +296,80 @@ public class VendorConsentBuilder {
         return this;
     }
 
+    /**
+     * With allowed vendor IDs, encoded with whichever of bit field, ranges of allowed vendors and ranges of
+     * denied vendors gives the shortest consent string. Takes precedence over vendor encoding type, bit field, range
+     * entries and default consent set on this builder.
+     * @param allowedVendorIds set of VendorIds for which the vendors have consent, IDs above max vendor ID are ignored
+     * @return builder
+     */
+    public VendorConsentBuilder withAllowedVendorIds(Set<Integer> allowedVendorIds) {
+        this.allowedVendorIds = Objects.requireNonNull(allowedVendorIds, "Argument allowedVendorIds is null");
+        return this;
+    }
+
     /**
      * Validate supplied values and build {@link VendorConsent} object
      * @return vendor consent object
      */
     public VendorConsent build() {
+        final Plan plan = plan();
+        final Bits bits = new Bits(new byte[plan.size]);
+        writeTo(bits, plan);
+        return new ByteBufferBackedVendorConsent(bits);
+    }
+
+    /**
+     * Validate supplied values and write encoded consent into destination array, without allocating a new one
+     * @param dst destination array, must have room for {@link #getEncodedSize()} bytes
+     * @param offset offset in the destination array to start writing at
+     * @return number of bytes written
+     */
+    public int buildInto(byte[] dst, int offset) {
+        return writeInto(dst, offset, plan());
+    }
+
+    /**
+     * Validate supplied values and write encoded consent at the position of the destination buffer, advancing it
+     * @param dst destination buffer, must have {@link #getEncodedSize()} bytes remaining
+     * @return number of bytes written
+     */
+    public int buildInto(ByteBuffer dst) {
+        final Plan plan = plan();
+        if (dst.remaining() < plan.size) throw new BufferOverflowException();
+        if (dst.hasArray()) {
+            writeInto(dst.array(), dst.arrayOffset() + dst.position(), plan);
+        } else {
+            // Direct buffers have no array to write bits into, encode into a temporary one
+            final Bits bits = new Bits(new byte[plan.size]);
+            writeTo(bits, plan);
+            dst.duplicate().put(bits.toByteArray());
+        }
+        dst.position(dst.position() + plan.size);
+        return plan.size;
+    }
 
+    /**
+     * Validate supplied values and compute size of the encoded consent, so that buffers can be sized up front.
+     * Values set on this builder are not changed.
+     * @return size of the encoded consent in bytes
+     */
+    public int getEncodedSize() {
+        return plan().size;
+    }
+
+    private int writeInto(byte[] dst, int offset, Plan plan) {
+        final Bits bits = new BitsRegion(dst, offset, plan.size);
+        Arrays.fill(dst, offset, offset + plan.size, (byte) 0);
+        writeTo(bits, plan);
+        return plan.size;
+    }
+
+    /**
+     * Validate supplied values and choose the vendor section to encode, selecting the shortest encoding when
+     * allowed vendor IDs are set
+     */
+    private Plan plan() {
         Objects.requireNonNull(consentRecordCreated, "consentRecordCreated must be set");
         Objects.requireNonNull(consentRecordLastUpdated, "consentRecordLastUpdated must be set");
         Objects.requireNonNull(consentLanguage, "consentLanguage must be set");
@@ -201,26 +380,22 @@ public class VendorConsentBuilder {
         if (maxVendorId <=0 )
             throw new VendorConsentCreateException("Invalid value for maxVendorId:" + maxVendorId);
 
+        if (allowedVendorIds != null) return selectVendorEncoding();
+
         // For range encoding, check if each range entry is valid
         if (vendorEncodingType == VENDOR_ENCODING_RANGE) {
             Objects.requireNonNull(rangeEntries, "Range entries must be set");
             final boolean invalidRangeEntriesFound = rangeEntries.stream().anyMatch(rangeEntry -> !rangeEntry.valid(maxVendorId));
             if (invalidRangeEntriesFound) throw new VendorConsentCreateException("Invalid range entries found");
+            return new Plan(VENDOR_ENCODING_RANGE, null, rangeEntries, defaultConsent, RANGE_ENTRY_OFFSET + RangeEntries.size(rangeEntries));
         }
+        return new Plan(VENDOR_ENCODING_BIT_FIELD, vendorsBitField, null, false, VENDOR_BITFIELD_OFFSET + maxVendorId);
+    }
 
-        // Calculate size of bit buffer in bits
-        final int bitBufferSizeInBits;
-        if (vendorEncodingType == VENDOR_ENCODING_RANGE) {
-            final int rangeEntrySectionSize = rangeEntries.stream().mapToInt(RangeEntry::size).sum();
-            bitBufferSizeInBits = RANGE_ENTRY_OFFSET + rangeEntrySectionSize;
-        } else {
-            bitBufferSizeInBits = VENDOR_BITFIELD_OFFSET + this.maxVendorId;
-        }
-
-        // Create new bit buffer
-        final boolean bitsFit = (bitBufferSizeInBits % 8) == 0;
-        final Bits bits = new Bits(new byte[bitBufferSizeInBits / 8 + (bitsFit ? 0 : 1)]);
-
+    /**
+     * Write validated values into zeroed bit buffer of {@link Plan#size} bytes
+     */
+    private void writeTo(Bits bits, Plan plan) {
         // Set fields in bit buffer
         bits.setInt(VERSION_BIT_OFFSET, VERSION_BIT_SIZE, VERSION);
         bits.setInstantToEpochDeciseconds(CREATED_BIT_OFFSET, CREATED_BIT_SIZE, consentRecordCreated);
@@ -232,42 +407,95 @@ public class VendorConsentBuilder {
         bits.setInt(VENDOR_LIST_VERSION_OFFSET, VENDOR_LIST_VERSION_SIZE, vendorListVersion);
 
         // Set purposes bits
-        for (int i = 0; i < PURPOSES_SIZE; i++) {
-            if (allowedPurposes.contains(i+1))
-                bits.setBit(PURPOSES_OFFSET + i);
-            else
-                bits.unsetBit(PURPOSES_OFFSET + i);
-        }
+        bits.setBits(PURPOSES_OFFSET, PURPOSES_SIZE, new long[]{allowedPurposesMask});
 
         bits.setInt(MAX_VENDOR_ID_OFFSET, MAX_VENDOR_ID_SIZE, maxVendorId);
-        bits.setInt(ENCODING_TYPE_OFFSET, ENCODING_TYPE_SIZE, vendorEncodingType);
+        bits.setInt(ENCODING_TYPE_OFFSET, ENCODING_TYPE_SIZE, plan.vendorEncodingType);
 
         // Set the bit field or range sections
-        if (vendorEncodingType == VENDOR_ENCODING_RANGE) {
+        if (plan.vendorEncodingType == VENDOR_ENCODING_RANGE) {
             // Range encoding
-            if (defaultConsent) {
+            if (plan.defaultConsent) {
                 bits.setBit(DEFAULT_CONSENT_OFFSET);
             } else {
                 bits.unsetBit(DEFAULT_CONSENT_OFFSET);
             }
-            bits.setInt(NUM_ENTRIES_OFFSET, NUM_ENTRIES_SIZE, rangeEntries.size());
+            bits.setInt(NUM_ENTRIES_OFFSET, NUM_ENTRIES_SIZE, plan.rangeEntries.size());
 
             int currentOffset = GdprConstants.RANGE_ENTRY_OFFSET;
 
-            for (RangeEntry rangeEntry : rangeEntries) {
+            for (RangeEntry rangeEntry : plan.rangeEntries) {
                 currentOffset = rangeEntry.appendTo(bits, currentOffset);
             }
 
         } else {
             // Bit field encoding
-            for (int i = 0; i < maxVendorId; i++) {
-                if (vendorsBitField.contains(i+1))
-                    bits.setBit(VENDOR_BITFIELD_OFFSET+i);
-                else
-                    bits.unsetBit(VENDOR_BITFIELD_OFFSET + i);
-            }
+            Objects.requireNonNull(plan.vendorsBitField, "Bit field must be set");
+            bits.setBits(VENDOR_BITFIELD_OFFSET, maxVendorId, plan.vendorsBitField);
+        }
+    }
+
+    /**
+     * Compare exact bit length of the three possible vendor encodings and plan the shortest one
+     */
+    private Plan selectVendorEncoding() {
+        final BitSet allowed = new BitSet(maxVendorId + 1);
+        for (int vendorId : allowedVendorIds) {
+            if (vendorId > 0 && vendorId <= maxVendorId) allowed.set(vendorId);
         }
+        final BitSet denied = (BitSet) allowed.clone();
+        denied.flip(1, maxVendorId + 1);
 
-        return new ByteBufferBackedVendorConsent(bits);
+        final List<RangeEntry> allowedRanges = RangeEntries.of(allowed);
+        final List<RangeEntry> deniedRanges = RangeEntries.of(denied);
+        final int bitFieldSize = VENDOR_BITFIELD_OFFSET + maxVendorId;
+        final int allowedRangesSize = rangeSectionSize(allowedRanges);
+        final int deniedRangesSize = rangeSectionSize(deniedRanges);
+
+        if (bitFieldSize <= allowedRangesSize && bitFieldSize <= deniedRangesSize) {
+            return new Plan(VENDOR_ENCODING_BIT_FIELD, allowed.get(1, maxVendorId + 1).toLongArray(), null, false, bitFieldSize);
+        }
+        final boolean allowedByDefault = deniedRangesSize < allowedRangesSize;
+        return allowedByDefault
+                ? new Plan(VENDOR_ENCODING_RANGE, null, deniedRanges, true, deniedRangesSize)
+                : new Plan(VENDOR_ENCODING_RANGE, null, allowedRanges, false, allowedRangesSize);
+    }
+
+    /**
+     * @return the VendorId when it is between 1 and the largest value of the max vendor ID field
+     * @throws IllegalArgumentException otherwise
+     */
+    private static int validVendorId(int vendorId) {
+        if (vendorId < 1 || vendorId > (1 << MAX_VENDOR_ID_SIZE) - 1)
+            throw new IllegalArgumentException("Invalid vendor ID:" + vendorId);
+        return vendorId;
+    }
+
+    /**
+     * @return size in bits of consent with range encoding, or max value when there are too many entries to encode
+     */
+    private static int rangeSectionSize(List<RangeEntry> entries) {
+        if (entries.size() >= 1 << NUM_ENTRIES_SIZE) return Integer.MAX_VALUE;
+        return RANGE_ENTRY_OFFSET + RangeEntries.size(entries);
+    }
+
+    /**
+     * Vendor section to encode and size of the whole consent, computed once per build so that sizing and writing
+     * see the same selection
+     */
+    private static final class Plan {
+        final int vendorEncodingType;
+        final long[] vendorsBitField;
+        final List<RangeEntry> rangeEntries;
+        final boolean defaultConsent;
+        final int size; // in bytes
+
+        Plan(int vendorEncodingType, long[] vendorsBitField, List<RangeEntry> rangeEntries, boolean defaultConsent, int sizeInBits) {
+            this.vendorEncodingType = vendorEncodingType;
+            this.vendorsBitField = vendorsBitField;
+            this.rangeEntries = rangeEntries;
+            this.defaultConsent = defaultConsent;
+            this.size = sizeInBits / 8 + (sizeInBits % 8 == 0 ? 0 : 1);
+        }
     }
 }
@@ -0,0 +1,317 @@
+package com.iab.gdpr.consent.implementation.v1;
+
+import com.iab.gdpr.Bits;
+import com.iab.gdpr.consent.VendorConsent;
+import com.iab.gdpr.consent.range.RangeEntries;
+import com.iab.gdpr.consent.range.RangeEntry;
+import com.iab.gdpr.consent.range.RangeEntryCursor;
+import com.iab.gdpr.consent.range.SingleRangeEntry;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static com.iab.gdpr.GdprConstants.*;
+
+/**
+ * Changes to an existing version 1 vendor consent, applied to a copy of its bits without decoding and building
+ * the whole consent again.
+ *
+ * Header fields and purposes are overwritten in place. Vendors of bit field encoded consents are flipped in
+ * place, and the bit field is extended when a vendor above max vendor ID is allowed. For range encoded consents
+ * only the range section is rewritten, with the changed vendors spliced into the existing entries. When the
+ * extended bit field would be longer than the range encoding, or the changed range section no longer fits the
+ * range encoding, the consent is built again with {@link VendorConsentBuilder}.
+ *
+ * <pre>
+ * final VendorConsent updated = VendorConsentPatch.of(vendorConsent)
+ *         .withConsentRecordLastUpdatedOn(Instant.now())
+ *         .withVendorAllowed(42, false)
+ *         .build();
+ * </pre>
+ *
+ * The original consent is never modified.
+ */
+public class VendorConsentPatch {
+
+    private final Bits bits;
+    private final Map<Integer, Boolean> vendorChanges = new TreeMap<>();
+
+    private VendorConsentPatch(byte[] bytes) {
+        this.bits = new Bits(bytes);
+    }
+
+    /**
+     * Start a patch of the vendor consent
+     * @param vendorConsent version 1 vendor consent
+     * @return patch with no changes
+     * @throws IllegalStateException when consent is not of version 1
+     */
+    public static VendorConsentPatch of(VendorConsent vendorConsent) {
+        Objects.requireNonNull(vendorConsent, "Argument vendorConsent is null");
+        if (vendorConsent.getVersion() != 1)
+            throw new IllegalStateException("Unsupported version: " + vendorConsent.getVersion());
+        return new VendorConsentPatch(vendorConsent.toByteArray().clone());
+    }
+
+    /**
+     * With creation date
+     * @param consentRecordCreated Epoch deciseconds when record was created
+     * @return patch
+     */
+    public VendorConsentPatch withConsentRecordCreatedOn(Instant consentRecordCreated) {
+        bits.setInstantToEpochDeciseconds(CREATED_BIT_OFFSET, CREATED_BIT_SIZE, consentRecordCreated);
+        return this;
+    }
+
+    /**
+     * With update date
+     * @param consentRecordLastUpdated Epoch deciseconds when consent string was last updated
+     * @return patch
+     */
+    public VendorConsentPatch withConsentRecordLastUpdatedOn(Instant consentRecordLastUpdated) {
+        bits.setInstantToEpochDeciseconds(UPDATED_BIT_OFFSET, UPDATED_BIT_SIZE, consentRecordLastUpdated);
+        return this;
+    }
+
+    /**
+     * With CMP id
+     * @param cmpID Consent Manager Provider ID that last updated the consent string
+     * @return patch
+     */
+    public VendorConsentPatch withCmpID(int cmpID) {
+        bits.setInt(CMP_ID_OFFSET, CMP_ID_SIZE, cmpID);
+        return this;
+    }
+
+    /**
+     * With CMP version
+     * @param cmpVersion Consent Manager Provider version
+     * @return patch
+     */
+    public VendorConsentPatch withCmpVersion(int cmpVersion) {
+        bits.setInt(CMP_VERSION_OFFSET, CMP_VERSION_SIZE, cmpVersion);
+        return this;
+    }
+
+    /**
+     * With consent screen ID
+     * @param consentScreenID Screen number in the CMP where consent was given
+     * @return patch
+     */
+    public VendorConsentPatch withConsentScreenID(int consentScreenID) {
+        bits.setInt(CONSENT_SCREEN_SIZE_OFFSET, CONSENT_SCREEN_SIZE, consentScreenID);
+        return this;
+    }
+
+    /**
+     * With consent language
+     * @param consentLanguage Two-letter ISO639-1 language code that CMP asked for consent in
+     * @return patch
+     */
+    public VendorConsentPatch withConsentLanguage(String consentLanguage) {
+        bits.setSixBitString(CONSENT_LANGUAGE_OFFSET, CONSENT_LANGUAGE_SIZE, consentLanguage);
+        return this;
+    }
+
+    /**
+     * With vendor list version
+     * @param vendorListVersion Version of vendor list used in most recent consent string update
+     * @return patch
+     */
+    public VendorConsentPatch withVendorListVersion(int vendorListVersion) {
+        bits.setInt(VENDOR_LIST_VERSION_OFFSET, VENDOR_LIST_VERSION_SIZE, vendorListVersion);
+        return this;
+    }
+
+    /**
+     * With purpose allowed or not
+     * @param purposeId purpose ID
+     * @param allowed true if purpose is allowed
+     * @return patch
+     */
+    public VendorConsentPatch withPurposeAllowed(int purposeId, boolean allowed) {
+        if (purposeId < 1 || purposeId > PURPOSES_SIZE) throw new IllegalArgumentException("Invalid purpose ID:" + purposeId);
+        if (allowed)
+            bits.setBit(PURPOSES_OFFSET + purposeId - 1);
+        else
+            bits.unsetBit(PURPOSES_OFFSET + purposeId - 1);
+        return this;
+    }
+
+    /**
+     * With allowed purposes mask
+     * @param allowedPurposesMask bit (purposeId - 1) set for every allowed purpose
+     * @return patch
+     */
+    public VendorConsentPatch withAllowedPurposesMask(int allowedPurposesMask) {
+        if ((allowedPurposesMask & -(1 << PURPOSES_SIZE)) != 0) throw new IllegalArgumentException("Invalid purpose ID found");
+        bits.setBits(PURPOSES_OFFSET, PURPOSES_SIZE, new long[]{allowedPurposesMask});
+        return this;
+    }
+
+    /**
+     * With vendor allowed or not. Allowing a vendor above max vendor ID raises max vendor ID to it.
+     * @param vendorId vendor ID
+     * @param allowed true if vendor is allowed
+     * @return patch
+     */
+    public VendorConsentPatch withVendorAllowed(int vendorId, boolean allowed) {
+        if (vendorId < 1 || vendorId >= 1 << MAX_VENDOR_ID_SIZE) throw new IllegalArgumentException("Invalid vendor ID:" + vendorId);
+        vendorChanges.put(vendorId, allowed);
+        return this;
+    }
+
+    /**
+     * Apply vendor changes and return the patched consent
+     * @return new vendor consent
+     */
+    public VendorConsent build() {
+        final int maxVendorId = bits.getInt(MAX_VENDOR_ID_OFFSET, MAX_VENDOR_ID_SIZE);
+        int newMaxVendorId = maxVendorId;
+        for (Map.Entry<Integer, Boolean> change : vendorChanges.entrySet()) {
+            if (change.getValue()) newMaxVendorId = Math.max(newMaxVendorId, change.getKey());
+        }
+
+        if (vendorChanges.isEmpty()) return new ByteBufferBackedVendorConsent(new Bits(bits.toByteArray().clone()));
+        if (bits.getInt(ENCODING_TYPE_OFFSET, ENCODING_TYPE_SIZE) == VENDOR_ENCODING_RANGE)
+            return patchRangeSection(maxVendorId, newMaxVendorId);
+        return patchBitField(maxVendorId, newMaxVendorId);
+    }
+
+    private VendorConsent patchBitField(int maxVendorId, int newMaxVendorId) {
+        final Bits patched;
+        if (newMaxVendorId == maxVendorId) {
+            patched = new Bits(bits.toByteArray().clone());
+        } else {
+            // Extended bit field is kept only while it is not longer than range encoding of the same vendors
+            final List<RangeEntry> allowed = new ArrayList<>();
+            final RangeEntryCursor cursor = new RangeEntryCursor(bits);
+            while (cursor.next()) allowed.add(cursor.toRangeEntry());
+            final List<RangeEntry> entries = splice(allowed, false, newMaxVendorId);
+            if (RANGE_ENTRY_OFFSET + RangeEntries.size(entries) < VENDOR_BITFIELD_OFFSET + newMaxVendorId)
+                return rebuild(newMaxVendorId, false, entries);
+
+            // Vendors past the old max vendor ID were not allowed and stay so in the extended bit field
+            patched = new Bits(Arrays.copyOf(bits.toByteArray(), byteLength(VENDOR_BITFIELD_OFFSET + newMaxVendorId)));
+            patched.setInt(MAX_VENDOR_ID_OFFSET, MAX_VENDOR_ID_SIZE, newMaxVendorId);
+            patched.setBits(VENDOR_BITFIELD_OFFSET + maxVendorId, newMaxVendorId - maxVendorId, new long[0]);
+        }
+        for (Map.Entry<Integer, Boolean> change : vendorChanges.entrySet()) {
+            if (change.getKey() > newMaxVendorId) continue;
+            if (change.getValue())
+                patched.setBit(VENDOR_BITFIELD_OFFSET + change.getKey() - 1);
+            else
+                patched.unsetBit(VENDOR_BITFIELD_OFFSET + change.getKey() - 1);
+        }
+        return new ByteBufferBackedVendorConsent(patched);
+    }
+
+    private VendorConsent patchRangeSection(int maxVendorId, int newMaxVendorId) {
+        // VendorIds whose consent is the opposite of default consent
+        final RangeEntryCursor cursor = new RangeEntryCursor(bits);
+        final boolean defaultConsent = cursor.isDefaultConsent();
+        final List<RangeEntry> exceptions = new ArrayList<>();
+        while (cursor.next()) exceptions.add(cursor.toRangeEntry());
+        // Vendors past the old max vendor ID were not allowed and must stay so
+        if (defaultConsent && newMaxVendorId > maxVendorId) exceptions.add(RangeEntries.entry(maxVendorId + 1, newMaxVendorId));
+
+        final List<RangeEntry> entries = splice(exceptions, defaultConsent, newMaxVendorId);
+        if (entries.size() >= 1 << NUM_ENTRIES_SIZE) return rebuild(newMaxVendorId, defaultConsent, entries);
+
+        // Header up to the entry count is kept, range section after it is written again
+        final byte[] bytes = new byte[byteLength(RANGE_ENTRY_OFFSET + RangeEntries.size(entries))];
+        System.arraycopy(bits.toByteArray(), 0, bytes, 0, NUM_ENTRIES_OFFSET / 8 + 1);
+        final Bits patched = new Bits(bytes);
+        patched.setInt(MAX_VENDOR_ID_OFFSET, MAX_VENDOR_ID_SIZE, newMaxVendorId);
+        patched.setInt(NUM_ENTRIES_OFFSET, NUM_ENTRIES_SIZE, entries.size());
+        int offset = RANGE_ENTRY_OFFSET;
+        for (RangeEntry entry : entries) {
+            offset = entry.appendTo(patched, offset);
+        }
+        return new ByteBufferBackedVendorConsent(patched);
+    }
+
+    /**
+     * Splice vendor changes into range entries of the VendorIds whose consent is the opposite of default consent.
+     * Entries are merged and sorted once, changed VendorIds are then cut out of the entries they fall in, untouched
+     * entries are kept as they are.
+     */
+    private List<RangeEntry> splice(List<RangeEntry> exceptions, boolean defaultConsent, int maxVendorId) {
+        final List<RangeEntry> added = new ArrayList<>(exceptions);
+        for (Map.Entry<Integer, Boolean> change : vendorChanges.entrySet()) {
+            if (change.getKey() <= maxVendorId && change.getValue() != defaultConsent) added.add(new SingleRangeEntry(change.getKey()));
+        }
+        final List<RangeEntry> merged = RangeEntries.normalize(added);
+
+        final List<RangeEntry> spliced = new ArrayList<>(merged.size());
+        final Iterator<Map.Entry<Integer, Boolean>> changes = vendorChanges.entrySet().iterator();
+        int removed = nextRemoved(changes, defaultConsent);
+        for (RangeEntry entry : merged) {
+            int start = entry.getStartVendorId();
+            final int end = entry.getEndVendorId();
+            for (; removed <= end; removed = nextRemoved(changes, defaultConsent)) {
+                if (removed < start) continue;
+                if (removed > start) spliced.add(RangeEntries.entry(start, removed - 1));
+                start = removed + 1;
+            }
+            if (start == entry.getStartVendorId())
+                spliced.add(entry);
+            else if (start <= end)
+                spliced.add(RangeEntries.entry(start, end));
+        }
+        return spliced;
+    }
+
+    /**
+     * @return next VendorId, in ascending order, whose consent is changed to default consent, or
+     * {@link Integer#MAX_VALUE} when there are no more
+     */
+    private static int nextRemoved(Iterator<Map.Entry<Integer, Boolean>> changes, boolean defaultConsent) {
+        while (changes.hasNext()) {
+            final Map.Entry<Integer, Boolean> change = changes.next();
+            if (change.getValue() == defaultConsent) return change.getKey();
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Encode the patched consent from scratch, letting the builder pick the shortest vendor encoding
+     */
+    private VendorConsent rebuild(int maxVendorId, boolean defaultConsent, List<RangeEntry> exceptions) {
+        final ByteBufferBackedVendorConsent header = new ByteBufferBackedVendorConsent(bits);
+        final BitSet allowed = new BitSet(maxVendorId + 1);
+        for (RangeEntry entry : exceptions) {
+            allowed.set(entry.getStartVendorId(), entry.getEndVendorId() + 1);
+        }
+        if (defaultConsent) allowed.flip(1, maxVendorId + 1);
+        final Set<Integer> allowedVendorIds = new HashSet<>();
+        for (int vendorId = allowed.nextSetBit(1); vendorId >= 0; vendorId = allowed.nextSetBit(vendorId + 1)) {
+            allowedVendorIds.add(vendorId);
+        }
+        return new VendorConsentBuilder()
+                .withConsentRecordCreatedOn(header.getConsentRecordCreated())
+                .withConsentRecordLastUpdatedOn(header.getConsentRecordLastUpdated())
+                .withCmpID(header.getCmpId())
+                .withCmpVersion(header.getCmpVersion())
+                .withConsentScreenID(header.getConsentScreen())
+                .withConsentLanguage(header.getConsentLanguage())
+                .withVendorListVersion(header.getVendorListVersion())
+                .withAllowedPurposeIds(header.getAllowedPurposeIds())
+                .withMaxVendorId(maxVendorId)
+                .withAllowedVendorIds(allowedVendorIds)
+                .build();
+    }
+
+    private static int byteLength(int bitLength) {
+        return (bitLength + 7) / 8;
+    }
+}
@@ -0,0 +1,131 @@
+package com.iab.gdpr.consent.implementation.v1;
+
+import com.iab.gdpr.Base64Url;
+import com.iab.gdpr.consent.VendorConsent;
+import com.iab.gdpr.exception.VendorConsentCreateException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Objects;
+
+import static com.iab.gdpr.GdprConstants.*;
+
+/**
+ * Pre-encoded version 1 vendor consent for issuing many consent strings that differ only in creation and update
+ * time, and optionally in consent screen.
+ *
+ * These fields line up with Base64 characters: each character holds six bits, so created (bits 6 to 41) and
+ * updated (bits 42 to 77) are characters 1 to 6 and 7 to 12, and consent screen (bits 102 to 107) is character 17.
+ * The template keeps the Base64 text of the whole consent and issuing a string only writes those characters into
+ * a copy of it, without validating and encoding the rest of the consent again.
+ *
+ * <pre>
+ * final VendorConsentTemplate template = VendorConsentTemplate.of(new VendorConsentBuilder()...build());
+ * final String consentString = template.toBase64String(now, now);
+ * </pre>
+ *
+ * Templates are immutable and thread safe.
+ */
+public final class VendorConsentTemplate {
+
+    private static final int CREATED_CHAR_OFFSET = CREATED_BIT_OFFSET / 6;
+    private static final int UPDATED_CHAR_OFFSET = UPDATED_BIT_OFFSET / 6;
+    private static final int CONSENT_SCREEN_CHAR_OFFSET = CONSENT_SCREEN_SIZE_OFFSET / 6;
+    private static final long MAX_DECISECONDS = (1L << CREATED_BIT_SIZE) - 1;
+
+    private final byte[] text; // Base64 ASCII text of the prototype consent
+
+    private VendorConsentTemplate(byte[] text) {
+        this.text = text;
+    }
+
+    /**
+     * Create template from prototype consent, whose created, updated and consent screen are replaced when issuing
+     * @param vendorConsent prototype version 1 vendor consent
+     * @return template
+     */
+    public static VendorConsentTemplate of(VendorConsent vendorConsent) {
+        Objects.requireNonNull(vendorConsent, "Argument vendorConsent is null");
+        if (vendorConsent.getVersion() != 1)
+            throw new IllegalStateException("Unsupported version: " + vendorConsent.getVersion());
+        final byte[] bytes = vendorConsent.toByteArray();
+        final byte[] text = new byte[Base64Url.encodedLength(bytes.length)];
+        Base64Url.encode(bytes, 0, bytes.length, text, 0);
+        return new VendorConsentTemplate(text);
+    }
+
+    /**
+     * @return length of every consent string issued from this template
+     */
+    public int encodedLength() {
+        return text.length;
+    }
+
+    /**
+     * Issue consent string with prototype consent screen
+     * @param consentRecordCreated when record was created
+     * @param consentRecordLastUpdated when consent string was last updated
+     * @return Base64 encoded consent string
+     */
+    public String toBase64String(Instant consentRecordCreated, Instant consentRecordLastUpdated) {
+        final byte[] issued = text.clone();
+        writeTimestamps(issued, 0, consentRecordCreated, consentRecordLastUpdated);
+        return new String(issued, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Issue consent string
+     * @param consentRecordCreated when record was created
+     * @param consentRecordLastUpdated when consent string was last updated
+     * @param consentScreenID screen number in the CMP where consent was given
+     * @return Base64 encoded consent string
+     */
+    public String toBase64String(Instant consentRecordCreated, Instant consentRecordLastUpdated, int consentScreenID) {
+        final byte[] issued = text.clone();
+        writeTimestamps(issued, 0, consentRecordCreated, consentRecordLastUpdated);
+        issued[CONSENT_SCREEN_CHAR_OFFSET] = Base64Url.character(checkConsentScreen(consentScreenID));
+        return new String(issued, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Issue consent string as ASCII text into destination array
+     * @param consentRecordCreated when record was created
+     * @param consentRecordLastUpdated when consent string was last updated
+     * @param consentScreenID screen number in the CMP where consent was given
+     * @param dst destination array, must have room for {@link #encodedLength()} bytes
+     * @param offset offset in the destination array to start writing at
+     * @return number of characters written
+     */
+    public int encode(Instant consentRecordCreated, Instant consentRecordLastUpdated, int consentScreenID, byte[] dst, int offset) {
+        final int screen = checkConsentScreen(consentScreenID);
+        if (offset < 0 || offset + text.length > dst.length)
+            throw new IndexOutOfBoundsException("Destination has no room for " + text.length + " characters at " + offset);
+        System.arraycopy(text, 0, dst, offset, text.length);
+        writeTimestamps(dst, offset, consentRecordCreated, consentRecordLastUpdated);
+        dst[offset + CONSENT_SCREEN_CHAR_OFFSET] = Base64Url.character(screen);
+        return text.length;
+    }
+
+    private static void writeTimestamps(byte[] dst, int offset, Instant consentRecordCreated, Instant consentRecordLastUpdated) {
+        writeDeciseconds(dst, offset + CREATED_CHAR_OFFSET, consentRecordCreated);
+        writeDeciseconds(dst, offset + UPDATED_CHAR_OFFSET, consentRecordLastUpdated);
+    }
+
+    /**
+     * Write 36 bit epoch deciseconds as six Base64 characters
+     */
+    private static void writeDeciseconds(byte[] dst, int offset, Instant instant) {
+        final long deciseconds = instant.toEpochMilli() / 100;
+        if (deciseconds < 0 || deciseconds > MAX_DECISECONDS)
+            throw new VendorConsentCreateException("can't fit long into bit range of size " + CREATED_BIT_SIZE);
+        for (int i = 0; i < 6; i++) {
+            dst[offset + i] = Base64Url.character((int) (deciseconds >>> (30 - 6 * i)));
+        }
+    }
+
+    private static int checkConsentScreen(int consentScreenID) {
+        if (consentScreenID < 0 || consentScreenID >= 1 << CONSENT_SCREEN_SIZE)
+            throw new VendorConsentCreateException("can't fit integer into bit range of size " + CONSENT_SCREEN_SIZE);
+        return consentScreenID;
+    }
+}
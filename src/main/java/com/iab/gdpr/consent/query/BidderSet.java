@@ -0,0 +1,200 @@
+package com.iab.gdpr.consent.query;
+
+import com.iab.gdpr.Purpose;
+import com.iab.gdpr.consent.VendorConsent;
+import com.iab.gdpr.consent.batch.VendorConsentBatch;
+import com.iab.gdpr.consent.implementation.v1.CompactVendorConsent;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fixed set of bidders, each with a VendorId and a set of required purposes, evaluated against many consents at once.
+ *
+ * Evaluating a consent returns an eligibility mask where bit i is set when the i-th bidder (in the order bidders
+ * were added) is allowed by the consent and all of its required purposes are allowed. Vendor bits of all bidders are
+ * extracted in one pass through a {@link VendorProjection} shared by bidders with the same VendorId, and identical
+ * consents in a batch are evaluated only once.
+ *
+ * Bidder sets are immutable and thread safe.
+ */
+public final class BidderSet {
+
+    private final int[] vendorIds;
+    // Required purposes in the bit order of VendorConsent#getAllowedPurposesBits()
+    private final int[] requiredPurposesBits;
+    // Index of the bidder VendorId in the projection
+    private final int[] projectionIndexes;
+    private final VendorProjection projection;
+
+    private BidderSet(int[] vendorIds, int[] requiredPurposesBits) {
+        this.vendorIds = vendorIds;
+        this.requiredPurposesBits = requiredPurposesBits;
+        this.projection = VendorProjection.of(vendorIds);
+        this.projectionIndexes = new int[vendorIds.length];
+        for (int i = 0; i < vendorIds.length; i++) {
+            projectionIndexes[i] = projection.indexOf(vendorIds[i]);
+        }
+    }
+
+    /**
+     * @return number of bidders in this set
+     */
+    public int size() {
+        return vendorIds.length;
+    }
+
+    /**
+     * @param bidder bidder index
+     * @return VendorId of the bidder
+     */
+    public int getVendorId(int bidder) {
+        return vendorIds[bidder];
+    }
+
+    /**
+     * @return number of long words in the eligibility mask of a single consent
+     */
+    public int wordCount() {
+        return (vendorIds.length + 63) >>> 6;
+    }
+
+    /**
+     * Evaluate single consent
+     * @param vendorConsent vendor consent
+     * @return eligibility mask of {@link #wordCount()} words
+     */
+    public long[] evaluate(VendorConsent vendorConsent) {
+        final long[] eligibility = new long[wordCount()];
+        evaluate(vendorConsent, new long[projection.wordCount()], eligibility, 0);
+        return eligibility;
+    }
+
+    /**
+     * Evaluate batch of consents
+     * @param vendorConsents vendor consents, one per request
+     * @return eligibility masks of all requests, mask of request r occupies {@link #wordCount()} words starting
+     * at r * {@link #wordCount()}
+     */
+    public long[] evaluate(List<? extends VendorConsent> vendorConsents) {
+        final int stride = wordCount();
+        final long[] eligibility = new long[vendorConsents.size() * stride];
+        final long[] vendorWords = new long[projection.wordCount()];
+        final Map<Object, Integer> evaluated = new HashMap<>();
+        for (int request = 0; request < vendorConsents.size(); request++) {
+            final VendorConsent vendorConsent = vendorConsents.get(request);
+            // Compact consents compare by content, other implementations by their bytes
+            final Object key = vendorConsent instanceof CompactVendorConsent ? vendorConsent : ByteBuffer.wrap(vendorConsent.toByteArray());
+            final Integer first = evaluated.putIfAbsent(key, request);
+            if (first != null) {
+                System.arraycopy(eligibility, first * stride, eligibility, request * stride, stride);
+            } else {
+                evaluate(vendorConsent, vendorWords, eligibility, request * stride);
+            }
+        }
+        return eligibility;
+    }
+
+    /**
+     * Evaluate batch of consents
+     * @param batch vendor consents, one per request
+     * @return eligibility masks of all requests, mask of request r occupies {@link #wordCount()} words starting
+     * at r * {@link #wordCount()}
+     */
+    public long[] evaluate(VendorConsentBatch batch) {
+        final int stride = wordCount();
+        final long[] eligibility = new long[batch.size() * stride];
+        final long[] vendorWords = new long[projection.wordCount()];
+        final Map<ByteBuffer, Integer> evaluated = new HashMap<>();
+        final VendorConsentBatch.View view = batch.newView();
+        for (int request = 0; request < batch.size(); request++) {
+            final Integer first = evaluated.putIfAbsent(batch.toByteBuffer(request), request);
+            if (first != null) {
+                System.arraycopy(eligibility, first * stride, eligibility, request * stride, stride);
+            } else {
+                evaluate(view.moveTo(request), vendorWords, eligibility, request * stride);
+            }
+        }
+        return eligibility;
+    }
+
+    /**
+     * Check eligibility of a bidder in result of batch evaluation
+     * @param eligibility result of batch evaluation
+     * @param request request index
+     * @param bidder bidder index
+     * @return true if bidder is eligible for the request
+     */
+    public boolean isEligible(long[] eligibility, int request, int bidder) {
+        return (eligibility[request * wordCount() + (bidder >>> 6)] & (1L << bidder)) != 0;
+    }
+
+    private void evaluate(VendorConsent vendorConsent, long[] vendorWords, long[] eligibility, int offset) {
+        projection.applyWords(vendorConsent, vendorWords);
+        final int allowedPurposesBits = vendorConsent.getAllowedPurposesBits();
+        for (int bidder = 0; bidder < vendorIds.length; bidder++) {
+            final int index = projectionIndexes[bidder];
+            if ((vendorWords[index >>> 6] & (1L << index)) != 0 && (requiredPurposesBits[bidder] & ~allowedPurposesBits) == 0) {
+                eligibility[offset + (bidder >>> 6)] |= 1L << bidder;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BidderSet{" +
+                "VendorIds=" + Arrays.toString(vendorIds) +
+                "}";
+    }
+
+    /**
+     * Builder of {@link BidderSet}
+     */
+    public static class Builder {
+        private final List<int[]> bidders = new ArrayList<>();
+
+        /**
+         * Add bidder, bidder index is the number of bidders added before it
+         * @param vendorId VendorId of the bidder
+         * @param requiredPurposeIds PurposeIds that must be allowed for the bidder to be eligible
+         * @return builder
+         */
+        public Builder withBidder(int vendorId, Set<Integer> requiredPurposeIds) {
+            return addBidder(vendorId, PurposeMasks.of(requiredPurposeIds));
+        }
+
+        /**
+         * Add bidder, bidder index is the number of bidders added before it
+         * @param vendorId VendorId of the bidder
+         * @param requiredPurposes purposes that must be allowed for the bidder to be eligible
+         * @return builder
+         */
+        public Builder withBidder(int vendorId, Purpose... requiredPurposes) {
+            return addBidder(vendorId, PurposeMasks.of(requiredPurposes));
+        }
+
+        private Builder addBidder(int vendorId, int requiredPurposesBits) {
+            if (vendorId < 1) throw new IllegalArgumentException("Invalid vendor ID found: " + vendorId);
+            bidders.add(new int[]{vendorId, requiredPurposesBits});
+            return this;
+        }
+
+        /**
+         * @return bidder set
+         */
+        public BidderSet build() {
+            final int[] vendorIds = new int[bidders.size()];
+            final int[] requiredPurposesBits = new int[bidders.size()];
+            for (int i = 0; i < bidders.size(); i++) {
+                vendorIds[i] = bidders.get(i)[0];
+                requiredPurposesBits[i] = bidders.get(i)[1];
+            }
+            return new BidderSet(vendorIds, requiredPurposesBits);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.iab.gdpr.consent.query;
+
+import com.iab.gdpr.Purpose;
+
+import java.util.Set;
+
+import static com.iab.gdpr.GdprConstants.PURPOSES_SIZE;
+
+/**
+ * Conversion of purposes into masks in the bit order of
+ * {@link com.iab.gdpr.consent.VendorConsent#getAllowedPurposesBits()}, where PurposeId 1 is the highest bit
+ */
+final class PurposeMasks {
+
+    private PurposeMasks() {
+    }
+
+    static int of(Set<Integer> purposeIds) {
+        int bits = 0;
+        for (int purposeId : purposeIds) {
+            if (purposeId < 1 || purposeId > PURPOSES_SIZE)
+                throw new IllegalArgumentException("Invalid purpose ID found: " + purposeId);
+            bits |= 1 << (PURPOSES_SIZE - purposeId);
+        }
+        return bits;
+    }
+
+    static int of(Purpose... purposes) {
+        int bits = 0;
+        for (Purpose purpose : purposes) {
+            final int purposeId = purpose.getId();
+            if (purposeId < 1 || purposeId > PURPOSES_SIZE)
+                throw new IllegalArgumentException("Invalid purpose ID found: " + purposeId);
+            bits |= 1 << (PURPOSES_SIZE - purposeId);
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,181 @@
+package com.iab.gdpr.consent.query;
+
+import com.iab.gdpr.Base64Url;
+import com.iab.gdpr.Bits;
+import com.iab.gdpr.Purpose;
+import com.iab.gdpr.consent.VendorConsent;
+import com.iab.gdpr.consent.batch.VendorConsentBatch;
+import com.iab.gdpr.consent.implementation.v1.ByteBufferBackedVendorConsent;
+import com.iab.gdpr.exception.VendorConsentParseException;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntPredicate;
+
+import static com.iab.gdpr.GdprConstants.*;
+
+/**
+ * Single vendor and purposes question asked across a batch of consents: which consents allow the vendor and all of
+ * the required purposes.
+ *
+ * Bit field consents are answered by reading the vendor bit at its offset, without walking the vendor section.
+ * Raw consent strings are read straight from their base64 characters and are only decoded when they use range
+ * encoding. Batches larger than {@value #PARALLEL_THRESHOLD} consents are split over a {@link ForkJoinPool}.
+ *
+ * Queries are immutable and thread safe.
+ */
+public final class VendorBatchQuery {
+
+    static final int PARALLEL_THRESHOLD = 4096;
+
+    private static final int VERSION = 1;
+
+    private final int vendorId;
+    // Required purposes in the bit order of VendorConsent#getAllowedPurposesBits()
+    private final int requiredPurposesBits;
+
+    /**
+     * @param vendorId VendorId
+     * @param requiredPurposeIds PurposeIds that must be allowed
+     */
+    public VendorBatchQuery(int vendorId, Set<Integer> requiredPurposeIds) {
+        this(vendorId, PurposeMasks.of(requiredPurposeIds));
+    }
+
+    /**
+     * @param vendorId VendorId
+     * @param requiredPurposes purposes that must be allowed
+     */
+    public VendorBatchQuery(int vendorId, Purpose... requiredPurposes) {
+        this(vendorId, PurposeMasks.of(requiredPurposes));
+    }
+
+    private VendorBatchQuery(int vendorId, int requiredPurposesBits) {
+        if (vendorId < 1) throw new IllegalArgumentException("Invalid vendor ID found: " + vendorId);
+        this.vendorId = vendorId;
+        this.requiredPurposesBits = requiredPurposesBits;
+    }
+
+    /**
+     * @param vendorConsent vendor consent
+     * @return true if consent allows the vendor and all required purposes
+     */
+    public boolean test(VendorConsent vendorConsent) {
+        if ((vendorConsent.getAllowedPurposesBits() & requiredPurposesBits) != requiredPurposesBits) return false;
+        if (vendorConsent instanceof ByteBufferBackedVendorConsent) {
+            final Bits bits = new Bits(vendorConsent.toByteArray());
+            if (vendorId > bits.getInt(MAX_VENDOR_ID_OFFSET, MAX_VENDOR_ID_SIZE)) return false;
+            if (bits.getInt(ENCODING_TYPE_OFFSET, ENCODING_TYPE_SIZE) != VENDOR_ENCODING_RANGE)
+                return bits.getBit(VENDOR_BITFIELD_OFFSET + vendorId - 1);
+        }
+        return vendorConsent.isVendorAllowed(vendorId);
+    }
+
+    /**
+     * @param consentString Base64 encoded version 1 consent string
+     * @return true if consent allows the vendor and all required purposes
+     */
+    public boolean test(CharSequence consentString) {
+        if (consentString == null || consentString.length() == 0)
+            throw new IllegalArgumentException("Null or empty consent string passed as an argument");
+        final int length = Base64Url.decodedLength(consentString);
+        final int version = getInt(consentString, length, VERSION_BIT_OFFSET, VERSION_BIT_SIZE);
+        if (version != VERSION) throw new IllegalStateException("Unsupported version: " + version);
+
+        if ((getInt(consentString, length, PURPOSES_OFFSET, PURPOSES_SIZE) & requiredPurposesBits) != requiredPurposesBits)
+            return false;
+        if (vendorId > getInt(consentString, length, MAX_VENDOR_ID_OFFSET, MAX_VENDOR_ID_SIZE)) return false;
+        if (getInt(consentString, length, ENCODING_TYPE_OFFSET, ENCODING_TYPE_SIZE) != VENDOR_ENCODING_RANGE)
+            return getBit(consentString, length, VENDOR_BITFIELD_OFFSET + vendorId - 1);
+
+        final byte[] bytes = new byte[length];
+        Base64Url.decode(consentString, bytes, 0);
+        return new ByteBufferBackedVendorConsent(new Bits(bytes)).isVendorAllowed(vendorId);
+    }
+
+    /**
+     * @param vendorConsents vendor consents
+     * @return bitset with bit i set when consent at index i allows the vendor and all required purposes
+     */
+    public BitSet evaluate(List<? extends VendorConsent> vendorConsents) {
+        return evaluate(vendorConsents.size(), index -> test(vendorConsents.get(index)));
+    }
+
+    /**
+     * @param consentStrings Base64 encoded version 1 consent strings
+     * @return bitset with bit i set when consent string at index i allows the vendor and all required purposes
+     */
+    public BitSet evaluateStrings(List<? extends CharSequence> consentStrings) {
+        return evaluate(consentStrings.size(), index -> test(consentStrings.get(index)));
+    }
+
+    /**
+     * @param batch vendor consents
+     * @return bitset with bit i set when consent at index i allows the vendor and all required purposes
+     */
+    public BitSet evaluate(VendorConsentBatch batch) {
+        return evaluate(batch.size(), index -> (batch.getAllowedPurposesBits(index) & requiredPurposesBits) == requiredPurposesBits
+                && batch.isVendorAllowed(index, vendorId));
+    }
+
+    private static BitSet evaluate(int size, IntPredicate predicate) {
+        final long[] words = new long[(size + 63) >>> 6];
+        final EvaluateTask task = new EvaluateTask(predicate, words, 0, size);
+        if (size > PARALLEL_THRESHOLD) {
+            ForkJoinPool.commonPool().invoke(task);
+        } else {
+            task.compute();
+        }
+        return BitSet.valueOf(words);
+    }
+
+    private static boolean getBit(CharSequence consentString, int length, int bit) {
+        if (bit / 8 >= length)
+            throw new VendorConsentParseException("Expected consent string to contain at least " + (bit / 8) + "bytes, but found only " + length + " bytes");
+        return (Base64Url.sextet(consentString.charAt(bit / 6)) & (0x20 >>> (bit % 6))) != 0;
+    }
+
+    private static int getInt(CharSequence consentString, int length, int offset, int size) {
+        int value = 0;
+        for (int i = 0; i < size; i++) {
+            value <<= 1;
+            if (getBit(consentString, length, offset + i)) value |= 1;
+        }
+        return value;
+    }
+
+    /**
+     * Evaluates predicate over a range of indexes. Ranges are split at multiples of 64 so that every task writes
+     * its own words of the result.
+     */
+    private static class EvaluateTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final IntPredicate predicate;
+        private final long[] words;
+        private final int from;
+        private final int to;
+
+        EvaluateTask(IntPredicate predicate, long[] words, int from, int to) {
+            this.predicate = predicate;
+            this.words = words;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > PARALLEL_THRESHOLD) {
+                final int middle = ((from + to) >>> 1) & ~63;
+                invokeAll(new EvaluateTask(predicate, words, from, middle), new EvaluateTask(predicate, words, middle, to));
+                return;
+            }
+            for (int index = from; index < to; index++) {
+                if (predicate.test(index)) words[index >>> 6] |= 1L << index;
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.iab.gdpr.consent.query;
+
+import com.iab.gdpr.consent.VendorConsent;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import java.util.stream.Collector;
+
+/**
+ * Folds many vendor consents into running union, intersection and per-vendor counts.
+ *
+ * Each consent is read into words with {@link VendorWords} directly from its bit field or range entries, and is
+ * then merged a word at a time. Accumulators are not thread safe, but two accumulators can be merged with
+ * {@link #combine(VendorConsentAccumulator)}, so a group of consents can be split over fork-join tasks or a parallel
+ * stream with {@link #collector()} and the partial results combined.
+ */
+public final class VendorConsentAccumulator {
+
+    private static final long[] EMPTY = new long[0];
+
+    private long[] union = EMPTY;
+    private long[] intersection = EMPTY;
+    private int[] counts = new int[0];
+    private int consentCount;
+    // Reused for reading every consent
+    private long[] scratch = EMPTY;
+
+    /**
+     * @return collector folding consents into an accumulator, usable with parallel streams
+     */
+    public static Collector<VendorConsent, ?, VendorConsentAccumulator> collector() {
+        return Collector.of(VendorConsentAccumulator::new, VendorConsentAccumulator::add, VendorConsentAccumulator::combine,
+                Collector.Characteristics.UNORDERED, Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * Add consent
+     * @param vendorConsent vendor consent
+     * @return this accumulator
+     */
+    public VendorConsentAccumulator add(VendorConsent vendorConsent) {
+        final int maxVendorId = vendorConsent.getMaxVendorId();
+        if (scratch.length < VendorWords.wordCount(maxVendorId)) scratch = new long[VendorWords.wordCount(maxVendorId)];
+        VendorWords.readInto(vendorConsent, scratch);
+        ensureCapacity(maxVendorId);
+
+        for (int i = 0; i < union.length; i++) {
+            final long word = i < scratch.length ? scratch[i] : 0L;
+            union[i] |= word;
+            intersection[i] = consentCount == 0 ? word : intersection[i] & word;
+            for (long remaining = word; remaining != 0; remaining &= remaining - 1) {
+                counts[(i << 6) + Long.numberOfTrailingZeros(remaining)]++;
+            }
+        }
+        consentCount++;
+        return this;
+    }
+
+    /**
+     * Merge other accumulator into this one
+     * @param other accumulator of other consents
+     * @return this accumulator
+     */
+    public VendorConsentAccumulator combine(VendorConsentAccumulator other) {
+        if (other.consentCount == 0) return this;
+        ensureCapacity(other.counts.length);
+        for (int i = 0; i < union.length; i++) {
+            final boolean inOther = i < other.union.length;
+            union[i] |= inOther ? other.union[i] : 0L;
+            final long otherIntersection = inOther ? other.intersection[i] : 0L;
+            intersection[i] = consentCount == 0 ? otherIntersection : intersection[i] & otherIntersection;
+        }
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        consentCount += other.consentCount;
+        return this;
+    }
+
+    private void ensureCapacity(int maxVendorId) {
+        final int wordCount = VendorWords.wordCount(maxVendorId);
+        if (wordCount <= union.length) return;
+        // New words of the intersection stay cleared, earlier consents don't allow vendors above their max VendorId
+        union = Arrays.copyOf(union, wordCount);
+        intersection = Arrays.copyOf(intersection, wordCount);
+        counts = Arrays.copyOf(counts, wordCount * Long.SIZE);
+    }
+
+    /**
+     * @return number of consents accumulated
+     */
+    public int getConsentCount() {
+        return consentCount;
+    }
+
+    /**
+     * @param vendorId VendorId
+     * @return number of accumulated consents allowing the vendor
+     */
+    public int getCount(int vendorId) {
+        return vendorId > 0 && vendorId <= counts.length ? counts[vendorId - 1] : 0;
+    }
+
+    /**
+     * @param vendorId VendorId
+     * @return true if any accumulated consent allows the vendor
+     */
+    public boolean isAllowedByAny(int vendorId) {
+        return VendorWords.isSet(union, vendorId);
+    }
+
+    /**
+     * @param vendorId VendorId
+     * @return true if every accumulated consent allows the vendor, false if no consent was accumulated
+     */
+    public boolean isAllowedByAll(int vendorId) {
+        return VendorWords.isSet(intersection, vendorId);
+    }
+
+    /**
+     * @return copy of the words of vendors allowed by any consent, in bit order of {@link VendorWords}
+     */
+    public long[] getUnionWords() {
+        return union.clone();
+    }
+
+    /**
+     * @return copy of the words of vendors allowed by every consent, in bit order of {@link VendorWords}
+     */
+    public long[] getIntersectionWords() {
+        return intersection.clone();
+    }
+
+    /**
+     * @return VendorIds allowed by any consent, in ascending order
+     */
+    public PrimitiveIterator.OfInt unionVendorIds() {
+        return VendorWords.iterator(union);
+    }
+
+    /**
+     * @return VendorIds allowed by every consent, in ascending order
+     */
+    public PrimitiveIterator.OfInt intersectionVendorIds() {
+        return VendorWords.iterator(intersection);
+    }
+
+    @Override
+    public String toString() {
+        return "VendorConsentAccumulator{" +
+                "ConsentCount=" + consentCount +
+                ", UnionVendors=" + VendorWords.count(union) +
+                ", IntersectionVendors=" + VendorWords.count(intersection) +
+                "}";
+    }
+}
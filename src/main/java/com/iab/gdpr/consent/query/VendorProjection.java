@@ -0,0 +1,180 @@
+package com.iab.gdpr.consent.query;
+
+import com.iab.gdpr.Bits;
+import com.iab.gdpr.consent.VendorConsent;
+import com.iab.gdpr.consent.implementation.v1.CompactVendorConsent;
+import com.iab.gdpr.consent.range.RangeEntryCursor;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import static com.iab.gdpr.GdprConstants.*;
+
+/**
+ * Fixed set of VendorIds compiled once and applied to many vendor consents.
+ *
+ * Applying the projection to a consent returns a mask where bit i is set when the i-th VendorId of the projection
+ * (in ascending order, see {@link #vendorIdAt(int)}) is allowed. The vendor section of the consent is read once:
+ * bit field consents are probed directly at each vendor's bit offset and range entries are walked once, instead of
+ * once per {@link VendorConsent#isVendorAllowed(int)} call.
+ *
+ * Projections are immutable and thread safe.
+ */
+public final class VendorProjection {
+
+    private final int[] vendorIds;
+
+    private VendorProjection(int[] vendorIds) {
+        this.vendorIds = vendorIds;
+    }
+
+    /**
+     * Compile projection for the given VendorIds
+     * @param vendorIds VendorIds, duplicates are ignored
+     * @return projection
+     */
+    public static VendorProjection of(int... vendorIds) {
+        final int[] sorted = Arrays.stream(vendorIds).sorted().distinct().toArray();
+        if (sorted.length > 0 && sorted[0] < 1)
+            throw new IllegalArgumentException("Invalid vendor ID found: " + sorted[0]);
+        return new VendorProjection(sorted);
+    }
+
+    /**
+     * Compile projection for the given VendorIds
+     * @param vendorIds VendorIds, duplicates are ignored
+     * @return projection
+     */
+    public static VendorProjection of(Collection<Integer> vendorIds) {
+        return of(vendorIds.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * @return number of VendorIds in this projection
+     */
+    public int size() {
+        return vendorIds.length;
+    }
+
+    /**
+     * @param index bit index in the projection mask
+     * @return VendorId corresponding to the bit index
+     */
+    public int vendorIdAt(int index) {
+        return vendorIds[index];
+    }
+
+    /**
+     * @param vendorId VendorId
+     * @return bit index of VendorId in the projection mask, or negative value if VendorId is not part of projection
+     */
+    public int indexOf(int vendorId) {
+        return Arrays.binarySearch(vendorIds, vendorId);
+    }
+
+    /**
+     * @return number of long words in masks returned by {@link #applyWords(VendorConsent)}
+     */
+    public int wordCount() {
+        return (vendorIds.length + 63) >>> 6;
+    }
+
+    /**
+     * Apply projection of at most 64 VendorIds
+     * @param vendorConsent vendor consent
+     * @return mask of allowed vendors of this projection
+     * @throws IllegalStateException when projection has more than 64 VendorIds
+     */
+    public long apply(VendorConsent vendorConsent) {
+        if (vendorIds.length > Long.SIZE)
+            throw new IllegalStateException("Projection of " + vendorIds.length + " vendors does not fit in long, use applyWords()");
+        final long[] words = new long[1];
+        applyWords(vendorConsent, words);
+        return words[0];
+    }
+
+    /**
+     * Apply projection
+     * @param vendorConsent vendor consent
+     * @return mask of allowed vendors of this projection, bit i of the mask is bit (i % 64) of word (i / 64)
+     */
+    public long[] applyWords(VendorConsent vendorConsent) {
+        final long[] words = new long[wordCount()];
+        applyWords(vendorConsent, words);
+        return words;
+    }
+
+    /**
+     * Apply projection into existing array, so that one array can be reused for many consents
+     * @param vendorConsent vendor consent
+     * @param words array of at least {@link #wordCount()} words to write the mask of allowed vendors to
+     */
+    public void applyWords(VendorConsent vendorConsent, long[] words) {
+        Arrays.fill(words, 0, wordCount(), 0L);
+        if (vendorConsent instanceof CompactVendorConsent) {
+            // Already decoded, vendor lookups are cheap
+            for (int i = 0; i < vendorIds.length; i++) {
+                if (vendorConsent.isVendorAllowed(vendorIds[i])) words[i >>> 6] |= 1L << i;
+            }
+            return;
+        }
+
+        final byte[] bytes = vendorConsent.toByteArray();
+        final Bits bits = new Bits(bytes);
+        final int maxVendorId = bits.getInt(MAX_VENDOR_ID_OFFSET, MAX_VENDOR_ID_SIZE);
+        // Only vendors up to max vendor ID can be allowed
+        final int limit = upperBound(maxVendorId);
+
+        if (bits.getInt(ENCODING_TYPE_OFFSET, ENCODING_TYPE_SIZE) != VENDOR_ENCODING_RANGE) {
+            for (int i = 0; i < limit; i++) {
+                if (bits.getBit(VENDOR_BITFIELD_OFFSET + vendorIds[i] - 1)) words[i >>> 6] |= 1L << i;
+            }
+            return;
+        }
+
+        final RangeEntryCursor cursor = new RangeEntryCursor(bits);
+        while (cursor.next()) {
+            for (int i = lowerBound(cursor.getStartVendorId()); i < limit && vendorIds[i] <= cursor.getEndVendorId(); i++) {
+                words[i >>> 6] |= 1L << i;
+            }
+        }
+        if (cursor.isDefaultConsent()) {
+            for (int i = 0; i < limit; i++) {
+                words[i >>> 6] ^= 1L << i;
+            }
+        }
+    }
+
+    /**
+     * @return index of the first VendorId greater or equal to vendorId
+     */
+    private int lowerBound(int vendorId) {
+        final int index = Arrays.binarySearch(vendorIds, vendorId);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * @return index of the first VendorId greater than vendorId
+     */
+    private int upperBound(int vendorId) {
+        final int index = Arrays.binarySearch(vendorIds, vendorId);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return Arrays.equals(vendorIds, ((VendorProjection) o).vendorIds);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(vendorIds);
+    }
+
+    @Override
+    public String toString() {
+        return "VendorProjection{VendorIds=" + Arrays.toString(vendorIds) + "}";
+    }
+}
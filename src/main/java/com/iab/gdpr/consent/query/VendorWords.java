@@ -0,0 +1,208 @@
+package com.iab.gdpr.consent.query;
+
+import com.iab.gdpr.Bits;
+import com.iab.gdpr.consent.VendorConsent;
+import com.iab.gdpr.consent.implementation.v1.CompactVendorConsent;
+import com.iab.gdpr.consent.range.RangeEntryCursor;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+import static com.iab.gdpr.GdprConstants.*;
+
+/**
+ * Conversion of the vendor section of a consent into a word bitset: VendorId v is allowed when bit ((v - 1) % 64)
+ * of word ((v - 1) / 64) is set. This is the same bit order {@link java.util.BitSet#valueOf(long[])} uses, shifted by
+ * one since there is no VendorId 0.
+ *
+ * Bit field sections are copied eight vendors at a time and range sections are filled a word at a time, without
+ * going through {@link VendorConsent#getAllowedVendorIds()}.
+ */
+public final class VendorWords {
+
+    private VendorWords() {
+    }
+
+    /**
+     * @param maxVendorId max VendorId
+     * @return number of words needed to hold VendorIds up to maxVendorId
+     */
+    public static int wordCount(int maxVendorId) {
+        return (maxVendorId + 63) >>> 6;
+    }
+
+    /**
+     * @param vendorConsent vendor consent
+     * @return words of allowed vendors, {@link #wordCount(int)} of the consent max VendorId long
+     */
+    public static long[] of(VendorConsent vendorConsent) {
+        final long[] words = new long[wordCount(vendorConsent.getMaxVendorId())];
+        readInto(vendorConsent, words);
+        return words;
+    }
+
+    /**
+     * Read allowed vendors into existing array, so that one array can be reused for many consents. Words past
+     * the consent max VendorId are cleared, vendors that don't fit into the array are ignored.
+     *
+     * @param vendorConsent vendor consent
+     * @param words destination words
+     * @return max VendorId of the consent
+     */
+    public static int readInto(VendorConsent vendorConsent, long[] words) {
+        Arrays.fill(words, 0L);
+        if (vendorConsent instanceof CompactVendorConsent) {
+            // Already decoded, vendor lookups are cheap
+            final int maxVendorId = Math.min(vendorConsent.getMaxVendorId(), words.length * Long.SIZE);
+            for (int vendorId = 1; vendorId <= maxVendorId; vendorId++) {
+                if (vendorConsent.isVendorAllowed(vendorId)) set(words, vendorId);
+            }
+            return vendorConsent.getMaxVendorId();
+        }
+        return readInto(new Bits(vendorConsent.toByteArray()), words);
+    }
+
+    /**
+     * Read allowed vendors of a version 1 consent into existing array
+     * @param bits consent bits
+     * @param words destination words, expected to be cleared
+     * @return max VendorId of the consent
+     */
+    static int readInto(Bits bits, long[] words) {
+        final int maxVendorId = bits.getInt(MAX_VENDOR_ID_OFFSET, MAX_VENDOR_ID_SIZE);
+        final int limit = Math.min(maxVendorId, words.length * Long.SIZE);
+
+        if (bits.getInt(ENCODING_TYPE_OFFSET, ENCODING_TYPE_SIZE) != VENDOR_ENCODING_RANGE) {
+            final byte[] bytes = bits.toByteArray();
+            if (limit > 0) bits.getBit(VENDOR_BITFIELD_OFFSET + limit - 1); // bounds check
+            for (int i = 0; i < limit; i += 8) {
+                final int offset = VENDOR_BITFIELD_OFFSET + i;
+                final int byteIndex = offset >>> 3;
+                final int high = bytes[byteIndex] & 0xFF;
+                final int low = byteIndex + 1 < bytes.length ? bytes[byteIndex + 1] & 0xFF : 0;
+                // Eight vendor bits in consent (most significant first) order
+                int octet = ((high << 8 | low) >>> (8 - (offset & 7))) & 0xFF;
+                if (limit - i < 8) octet &= 0xFF00 >>> (limit - i);
+                // Reverse so that lowest VendorId ends up in the lowest bit
+                words[i >>> 6] |= ((long) (Integer.reverse(octet) >>> 24)) << (i & 63);
+            }
+            return maxVendorId;
+        }
+
+        final RangeEntryCursor cursor = new RangeEntryCursor(bits);
+        while (cursor.next()) {
+            setRange(words, Math.max(cursor.getStartVendorId(), 1), Math.min(cursor.getEndVendorId(), limit));
+        }
+        if (cursor.isDefaultConsent()) {
+            flipRange(words, 1, limit);
+        }
+        return maxVendorId;
+    }
+
+    /**
+     * Check whether VendorId is set in words
+     * @param words words
+     * @param vendorId VendorId
+     * @return true if the bit of the VendorId is set, false otherwise or when VendorId is out of range
+     */
+    public static boolean isSet(long[] words, int vendorId) {
+        final int index = (vendorId - 1) >>> 6;
+        return vendorId > 0 && index < words.length && (words[index] & (1L << (vendorId - 1))) != 0;
+    }
+
+    /**
+     * @param words words
+     * @return number of VendorIds set in words
+     */
+    public static int count(long[] words) {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Iterate VendorIds set in words in ascending order, without boxing. Words must not be modified while iterating.
+     * @param words words
+     * @return iterator of VendorIds
+     */
+    public static PrimitiveIterator.OfInt iterator(long[] words) {
+        return new PrimitiveIterator.OfInt() {
+            private int index = 0;
+            private long word = words.length > 0 ? words[0] : 0L;
+
+            @Override
+            public boolean hasNext() {
+                while (word == 0 && index + 1 < words.length) {
+                    word = words[++index];
+                }
+                return word != 0;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) throw new NoSuchElementException();
+                final int vendorId = (index << 6) + Long.numberOfTrailingZeros(word) + 1;
+                word &= word - 1;
+                return vendorId;
+            }
+        };
+    }
+
+    /**
+     * Set the bit of the VendorId
+     * @param words words
+     * @param vendorId VendorId
+     */
+    public static void set(long[] words, int vendorId) {
+        words[(vendorId - 1) >>> 6] |= 1L << (vendorId - 1);
+    }
+
+    /**
+     * Set bits of all VendorIds from start to end (inclusive)
+     * @param words words
+     * @param startVendorId first VendorId
+     * @param endVendorId last VendorId
+     */
+    public static void setRange(long[] words, int startVendorId, int endVendorId) {
+        if (startVendorId > endVendorId) return;
+        final int from = startVendorId - 1;
+        final int to = endVendorId - 1;
+        final int firstWord = from >>> 6;
+        final int lastWord = to >>> 6;
+        final long firstMask = -1L << from;
+        final long lastMask = -1L >>> (63 - (to & 63));
+        if (firstWord == lastWord) {
+            words[firstWord] |= firstMask & lastMask;
+            return;
+        }
+        words[firstWord] |= firstMask;
+        for (int i = firstWord + 1; i < lastWord; i++) words[i] = -1L;
+        words[lastWord] |= lastMask;
+    }
+
+    /**
+     * Flip bits of all VendorIds from start to end (inclusive)
+     * @param words words
+     * @param startVendorId first VendorId
+     * @param endVendorId last VendorId
+     */
+    public static void flipRange(long[] words, int startVendorId, int endVendorId) {
+        if (startVendorId > endVendorId) return;
+        final int from = startVendorId - 1;
+        final int to = endVendorId - 1;
+        final int firstWord = from >>> 6;
+        final int lastWord = to >>> 6;
+        final long firstMask = -1L << from;
+        final long lastMask = -1L >>> (63 - (to & 63));
+        if (firstWord == lastWord) {
+            words[firstWord] ^= firstMask & lastMask;
+            return;
+        }
+        words[firstWord] ^= firstMask;
+        for (int i = firstWord + 1; i < lastWord; i++) words[i] = ~words[i];
+        words[lastWord] ^= lastMask;
+    }
+}
@@ -0,0 +1,126 @@
+package com.iab.gdpr.consent.range;
+
+import com.iab.gdpr.Bits;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.iab.gdpr.GdprConstants.VENDOR_ID_SIZE;
+
+/**
+ * Derivation of the shortest list of {@link RangeEntry range entries} for a set of VendorIds.
+ *
+ * Entries are returned sorted by VendorId, with adjacent and overlapping VendorIds merged into one entry.
+ * Runs of one VendorId become {@link SingleRangeEntry} and longer runs {@link StartEndRangeEntry}, which is
+ * the shortest encoding of each run.
+ */
+public final class RangeEntries {
+
+    private RangeEntries() {
+    }
+
+    /**
+     * Derive range entries in one pass over sorted VendorIds
+     * @param sortedVendorIds VendorIds in ascending order, duplicates are allowed
+     * @return range entries covering exactly the VendorIds
+     * @throws IllegalArgumentException when VendorIds are not sorted or not positive
+     */
+    public static List<RangeEntry> of(int[] sortedVendorIds) {
+        final List<RangeEntry> entries = new ArrayList<>();
+        if (sortedVendorIds.length == 0) return entries;
+        if (sortedVendorIds[0] <= 0) throw new IllegalArgumentException("Invalid vendor ID:" + sortedVendorIds[0]);
+
+        int start = sortedVendorIds[0];
+        int end = start;
+        for (int i = 1; i < sortedVendorIds.length; i++) {
+            final int vendorId = sortedVendorIds[i];
+            if (vendorId < end) throw new IllegalArgumentException("Vendor IDs are not sorted at index " + i);
+            if (vendorId > end + 1) {
+                entries.add(entry(start, end));
+                start = vendorId;
+            }
+            end = vendorId;
+        }
+        entries.add(entry(start, end));
+        return entries;
+    }
+
+    /**
+     * Derive range entries in one pass over set bits
+     * @param vendorIds set of VendorIds, bit 0 must not be set
+     * @return range entries covering exactly the VendorIds
+     * @throws IllegalArgumentException when bit 0 is set
+     */
+    public static List<RangeEntry> of(BitSet vendorIds) {
+        if (vendorIds.get(0)) throw new IllegalArgumentException("Invalid vendor ID:0");
+        final List<RangeEntry> entries = new ArrayList<>();
+        for (int start = vendorIds.nextSetBit(1); start >= 0; start = vendorIds.nextSetBit(start)) {
+            final int end = vendorIds.nextClearBit(start) - 1;
+            entries.add(entry(start, end));
+            start = end + 1;
+        }
+        return entries;
+    }
+
+    /**
+     * Sort range entries and merge adjacent and overlapping ones. Ranges covering one VendorId are replaced by
+     * single entries.
+     * @param rangeEntries range entries in any order
+     * @return shortest sorted range entries covering the same VendorIds
+     * @throws IllegalArgumentException when an entry ends before it starts
+     */
+    public static List<RangeEntry> normalize(List<? extends RangeEntry> rangeEntries) {
+        final List<RangeEntry> sorted = new ArrayList<>(rangeEntries);
+        sorted.sort(Comparator.comparingInt(RangeEntry::getStartVendorId));
+
+        final List<RangeEntry> entries = new ArrayList<>(sorted.size());
+        int start = -1;
+        int end = -1;
+        for (RangeEntry rangeEntry : sorted) {
+            if (rangeEntry.getEndVendorId() < rangeEntry.getStartVendorId())
+                throw new IllegalArgumentException("Invalid range entry: " + rangeEntry.getStartVendorId() + "-" + rangeEntry.getEndVendorId());
+            if (start >= 0 && rangeEntry.getStartVendorId() <= end + 1) {
+                end = Math.max(end, rangeEntry.getEndVendorId());
+                continue;
+            }
+            if (start >= 0) entries.add(entry(start, end));
+            start = rangeEntry.getStartVendorId();
+            end = rangeEntry.getEndVendorId();
+        }
+        if (start >= 0) entries.add(entry(start, end));
+        return entries;
+    }
+
+    /**
+     * @param rangeEntries range entries
+     * @return size of the entries in bits
+     */
+    public static int size(List<? extends RangeEntry> rangeEntries) {
+        int size = 0;
+        for (RangeEntry rangeEntry : rangeEntries) {
+            size += rangeEntry.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return range entry appended to a new bit buffer at offset 0
+     */
+    static Bits encode(RangeEntry rangeEntry) {
+        final Bits buffer = new Bits(new byte[(1 + 2 * VENDOR_ID_SIZE + 7) / 8]);
+        rangeEntry.appendTo(buffer, 0);
+        return buffer;
+    }
+
+    /**
+     * Shortest entry covering VendorIds from start to end
+     * @param start first VendorId
+     * @param end last VendorId, not less than start
+     * @return {@link SingleRangeEntry} when start equals end, {@link StartEndRangeEntry} otherwise
+     */
+    public static RangeEntry entry(int start, int end) {
+        return start == end ? new SingleRangeEntry(start) : new StartEndRangeEntry(start, end);
+    }
+}
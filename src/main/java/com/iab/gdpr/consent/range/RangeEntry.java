@@ -2,6 +2,8 @@ package com.iab.gdpr.consent.range;
 
 import com.iab.gdpr.Bits;
 
+import static com.iab.gdpr.GdprConstants.VENDOR_ID_SIZE;
+
 /**
  * Range entry  of the vendor consent range section. Range entry is a single or range of VendorIds
  * whose consent value is the opposite of DefaultConsent.
@@ -13,6 +15,25 @@ public interface RangeEntry {
      */
     int size();
 
+    /**
+     * First VendorId covered by this range entry. Default implementation reads it back from the encoded entry,
+     * implementations that hold the VendorId should override it.
+     * @return first VendorId covered by this range entry
+     */
+    default int getStartVendorId() {
+        return RangeEntries.encode(this).getInt(1, VENDOR_ID_SIZE);
+    }
+
+    /**
+     * Last VendorId covered by this range entry. Default implementation reads it back from the encoded entry,
+     * implementations that hold the VendorId should override it.
+     * @return last VendorId covered by this range entry, same as start VendorId for single VendorId entries
+     */
+    default int getEndVendorId() {
+        final Bits encoded = RangeEntries.encode(this);
+        return encoded.getInt(encoded.getBit(0) ? 1 + VENDOR_ID_SIZE : 1, VENDOR_ID_SIZE);
+    }
+
     /**
      * Append this range entry to the bit buffer
      * @param buffer bit buffer
@@ -27,4 +48,5 @@ public interface RangeEntry {
      * @return true if range entry is valid, false otherwise
      */
     boolean valid(int maxVendorId);
+
 }
@@ -0,0 +1,186 @@
+package com.iab.gdpr.consent.range;
+
+import com.iab.gdpr.Bits;
+import com.iab.gdpr.consent.VendorConsent;
+import com.iab.gdpr.exception.VendorConsentParseException;
+
+import static com.iab.gdpr.GdprConstants.*;
+
+/**
+ * Lazy, read-only cursor over range entries of a decoded vendor consent. Single cursor instance is reused for
+ * every entry, so walking the vendor section allocates nothing.
+ *
+ * For range encoded consents cursor returns the encoded entries in the order they appear in the consent string,
+ * entries describe VendorIds whose consent is the opposite of {@link #isDefaultConsent()}. For bit field encoded
+ * consents cursor returns maximal runs of allowed VendorIds and default consent is always false.
+ *
+ * <pre>
+ * final RangeEntryCursor cursor = RangeEntryCursor.of(vendorConsent);
+ * while (cursor.next()) {
+ *     if (cursor.isRange()) { ... cursor.getStartVendorId() ... cursor.getEndVendorId() ... }
+ * }
+ * </pre>
+ *
+ * Cursors are not thread safe.
+ */
+public final class RangeEntryCursor {
+
+    private final Bits bits;
+    private final byte[] bytes;
+    private final int maxVendorId;
+    private final boolean rangeEncoding;
+    private final boolean defaultConsent;
+    private final int numEntries;
+
+    private int entryIndex;
+    private int currentOffset;
+    private boolean range;
+    private int startVendorId;
+    private int endVendorId;
+
+    public RangeEntryCursor(Bits bits) {
+        this.bits = bits;
+        this.bytes = bits.toByteArray();
+        this.maxVendorId = bits.getInt(MAX_VENDOR_ID_OFFSET, MAX_VENDOR_ID_SIZE);
+        this.rangeEncoding = bits.getInt(ENCODING_TYPE_OFFSET, ENCODING_TYPE_SIZE) == VENDOR_ENCODING_RANGE;
+        this.defaultConsent = rangeEncoding && bits.getBit(DEFAULT_CONSENT_OFFSET);
+        this.numEntries = rangeEncoding ? bits.getInt(NUM_ENTRIES_OFFSET, NUM_ENTRIES_SIZE) : -1;
+        reset();
+    }
+
+    /**
+     * Create cursor over the vendor section of the vendor consent
+     * @param vendorConsent vendor consent
+     * @return cursor positioned before the first entry
+     */
+    public static RangeEntryCursor of(VendorConsent vendorConsent) {
+        return new RangeEntryCursor(new Bits(vendorConsent.toByteArray()));
+    }
+
+    /**
+     * Position cursor before the first entry
+     */
+    public void reset() {
+        entryIndex = 0;
+        currentOffset = rangeEncoding ? RANGE_ENTRY_OFFSET : VENDOR_BITFIELD_OFFSET;
+        range = false;
+        startVendorId = 0;
+        endVendorId = 0;
+    }
+
+    /**
+     * Move cursor to the next entry
+     * @return true if cursor is positioned on an entry, false if there are no more entries
+     * @throws VendorConsentParseException when entry is not valid for the max VendorId of the consent
+     */
+    public boolean next() {
+        return rangeEncoding ? nextRangeEntry() : nextBitFieldRun();
+    }
+
+    private boolean nextRangeEntry() {
+        if (entryIndex >= numEntries) return false;
+        entryIndex++;
+        range = bits.getBit(currentOffset);
+        currentOffset++;
+        startVendorId = bits.getInt(currentOffset, VENDOR_ID_SIZE);
+        currentOffset += VENDOR_ID_SIZE;
+        if (range) {
+            endVendorId = bits.getInt(currentOffset, VENDOR_ID_SIZE);
+            currentOffset += VENDOR_ID_SIZE;
+            if (startVendorId > endVendorId || endVendorId > maxVendorId) {
+                throw new VendorConsentParseException(
+                        "Start VendorId must not be greater than End VendorId and "
+                                + "End VendorId must not be greater than Max Vendor Id");
+            }
+        } else {
+            endVendorId = startVendorId;
+            if (startVendorId > maxVendorId) {
+                throw new VendorConsentParseException(
+                        "VendorId in the range entries must not be greater than Max VendorId");
+            }
+        }
+        return true;
+    }
+
+    private boolean nextBitFieldRun() {
+        final int end = VENDOR_BITFIELD_OFFSET + maxVendorId;
+        // Whole bytes are skipped only within the array, isSet reports bits past its end
+        final int byteEnd = Math.min(end, bytes.length * 8);
+        int offset = currentOffset;
+        // Skip denied vendors, whole bytes at a time when possible
+        while (offset < end && !isSet(offset)) {
+            offset++;
+            while ((offset & 7) == 0 && offset + 8 <= byteEnd && bytes[offset >>> 3] == 0) offset += 8;
+        }
+        if (offset >= end) {
+            currentOffset = end;
+            return false;
+        }
+        final int runStart = offset;
+        while (offset < end && isSet(offset)) {
+            offset++;
+            while ((offset & 7) == 0 && offset + 8 <= byteEnd && bytes[offset >>> 3] == (byte) 0xFF) offset += 8;
+        }
+        currentOffset = offset;
+        startVendorId = runStart - VENDOR_BITFIELD_OFFSET + 1;
+        endVendorId = offset - VENDOR_BITFIELD_OFFSET;
+        range = endVendorId > startVendorId;
+        return true;
+    }
+
+    private boolean isSet(int bitOffset) {
+        final int byteIndex = bitOffset >>> 3;
+        if (byteIndex >= bytes.length)
+            throw new VendorConsentParseException("Expected consent string to contain at least " + byteIndex + "bytes, but found only " + bytes.length + " bytes");
+        return (bytes[byteIndex] & (0x80 >>> (bitOffset & 7))) != 0;
+    }
+
+    /**
+     * @return true if consent uses range encoding, false if it uses bit field encoding
+     */
+    public boolean isRangeEncoding() {
+        return rangeEncoding;
+    }
+
+    /**
+     * @return default consent for VendorIds not covered by any entry
+     */
+    public boolean isDefaultConsent() {
+        return defaultConsent;
+    }
+
+    /**
+     * @return the maximum VendorId for which consent values are given
+     */
+    public int getMaxVendorId() {
+        return maxVendorId;
+    }
+
+    /**
+     * @return true if current entry is a range of VendorIds, false if it is a single VendorId
+     */
+    public boolean isRange() {
+        return range;
+    }
+
+    /**
+     * @return first VendorId of the current entry
+     */
+    public int getStartVendorId() {
+        return startVendorId;
+    }
+
+    /**
+     * @return last VendorId of the current entry
+     */
+    public int getEndVendorId() {
+        return endVendorId;
+    }
+
+    /**
+     * @return current entry as a new {@link RangeEntry}
+     */
+    public RangeEntry toRangeEntry() {
+        return range ? new StartEndRangeEntry(startVendorId, endVendorId) : new SingleRangeEntry(startVendorId);
+    }
+}
@@ -20,6 +20,16 @@ public class SingleRangeEntry implements RangeEntry {
         return 1+VENDOR_ID_SIZE;
     }
 
+    @Override
+    public int getStartVendorId() {
+        return singeVendorId;
+    }
+
+    @Override
+    public int getEndVendorId() {
+        return singeVendorId;
+    }
+
     @Override
     public int appendTo(Bits buffer, int currentOffset) {
         int newOffset = currentOffset;
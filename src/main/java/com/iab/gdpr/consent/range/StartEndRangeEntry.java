@@ -22,6 +22,16 @@ public class StartEndRangeEntry implements RangeEntry{
         return 1+VENDOR_ID_SIZE * 2;
     }
 
+    @Override
+    public int getStartVendorId() {
+        return startVendorId;
+    }
+
+    @Override
+    public int getEndVendorId() {
+        return endVendorId;
+    }
+
     @Override
     public int appendTo(Bits buffer, int currentOffset) {
         int newOffset = currentOffset;
@@ -0,0 +1,11 @@
+package com.iab.gdpr.exception;
+
+/**
+ * Exception for the case where Global Vendor List cannot be parsed
+ */
+public class VendorListParseException extends VendorConsentException {
+
+    public VendorListParseException(String message) {
+        super(message);
+    }
+}
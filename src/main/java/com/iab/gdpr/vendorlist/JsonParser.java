@@ -0,0 +1,201 @@
+package com.iab.gdpr.vendorlist;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON parser, just enough to read the Global Vendor List without adding a dependency to this library.
+ *
+ * Objects are parsed into {@link Map}, arrays into {@link List}, numbers into {@link Long} or {@link Double},
+ * and true/false/null into {@link Boolean} and null. Objects and arrays may be nested at most
+ * {@link #MAX_DEPTH} levels deep, so hostile input cannot exhaust the stack of the recursive descent.
+ */
+class JsonParser {
+
+    static final int MAX_DEPTH = 64;
+
+    private final CharSequence json;
+    private int position;
+    private int depth;
+
+    private JsonParser(CharSequence json) {
+        this.json = json;
+    }
+
+    /**
+     * Parse JSON text
+     * @param json JSON text
+     * @return parsed value
+     * @throws IllegalArgumentException when text is not valid JSON or is nested deeper than {@link #MAX_DEPTH}
+     */
+    static Object parse(CharSequence json) {
+        final JsonParser parser = new JsonParser(json);
+        final Object value = parser.readValue();
+        parser.skipWhitespace();
+        if (parser.position != json.length()) throw parser.error("Unexpected trailing content");
+        return value;
+    }
+
+    private Object readValue() {
+        skipWhitespace();
+        if (position >= json.length()) throw error("Unexpected end of input");
+        final char c = json.charAt(position);
+        switch (c) {
+            case '{':
+                return readObject();
+            case '[':
+                return readArray();
+            case '"':
+                return readString();
+            case 't':
+                return readLiteral("true", Boolean.TRUE);
+            case 'f':
+                return readLiteral("false", Boolean.FALSE);
+            case 'n':
+                return readLiteral("null", null);
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) return readNumber();
+                throw error("Unexpected character '" + c + "'");
+        }
+    }
+
+    private Map<String, Object> readObject() {
+        final Map<String, Object> object = new LinkedHashMap<>();
+        enter();
+        position++; // {
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+            depth--;
+            return object;
+        }
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"') throw error("Expected object key");
+            final String key = readString();
+            skipWhitespace();
+            expect(':');
+            object.put(key, readValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect('}');
+                depth--;
+                return object;
+            }
+        }
+    }
+
+    private List<Object> readArray() {
+        final List<Object> array = new ArrayList<>();
+        enter();
+        position++; // [
+        skipWhitespace();
+        if (peek() == ']') {
+            position++;
+            depth--;
+            return array;
+        }
+        while (true) {
+            array.add(readValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect(']');
+                depth--;
+                return array;
+            }
+        }
+    }
+
+    private String readString() {
+        position++; // opening quote
+        final StringBuilder value = new StringBuilder();
+        while (true) {
+            if (position >= json.length()) throw error("Unterminated string");
+            final char c = json.charAt(position++);
+            if (c == '"') return value.toString();
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (position >= json.length()) throw error("Unterminated string");
+            final char escaped = json.charAt(position++);
+            switch (escaped) {
+                case '"': value.append('"'); break;
+                case '\\': value.append('\\'); break;
+                case '/': value.append('/'); break;
+                case 'b': value.append('\b'); break;
+                case 'f': value.append('\f'); break;
+                case 'n': value.append('\n'); break;
+                case 'r': value.append('\r'); break;
+                case 't': value.append('\t'); break;
+                case 'u':
+                    if (position + 4 > json.length()) throw error("Invalid unicode escape");
+                    try {
+                        value.append((char) Integer.parseInt(json.subSequence(position, position + 4).toString(), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Invalid unicode escape");
+                    }
+                    position += 4;
+                    break;
+                default:
+                    throw error("Invalid escape character '" + escaped + "'");
+            }
+        }
+    }
+
+    private void enter() {
+        if (++depth > MAX_DEPTH) throw error("Nesting deeper than " + MAX_DEPTH + " levels");
+    }
+
+    private Object readNumber() {
+        final int start = position;
+        boolean decimal = false;
+        while (position < json.length()) {
+            final char c = json.charAt(position);
+            if (c == '.' || c == 'e' || c == 'E') {
+                decimal = true;
+            } else if (!(c == '-' || c == '+' || (c >= '0' && c <= '9'))) {
+                break;
+            }
+            position++;
+        }
+        final String number = json.subSequence(start, position).toString();
+        try {
+            return decimal ? (Object) Double.valueOf(number) : (Object) Long.valueOf(number);
+        } catch (NumberFormatException e) {
+            throw error("Invalid number " + number);
+        }
+    }
+
+    private Object readLiteral(String literal, Object value) {
+        if (position + literal.length() > json.length()
+                || !json.subSequence(position, position + literal.length()).toString().equals(literal))
+            throw error("Unexpected literal");
+        position += literal.length();
+        return value;
+    }
+
+    private void expect(char c) {
+        if (peek() != c) throw error("Expected '" + c + "'");
+        position++;
+    }
+
+    private char peek() {
+        if (position >= json.length()) throw error("Unexpected end of input");
+        return json.charAt(position);
+    }
+
+    private void skipWhitespace() {
+        while (position < json.length() && Character.isWhitespace(json.charAt(position))) position++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + position);
+    }
+}
@@ -0,0 +1,122 @@
+package com.iab.gdpr.vendorlist;
+
+import com.iab.gdpr.consent.query.VendorWords;
+import com.iab.gdpr.exception.VendorListParseException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.iab.gdpr.GdprConstants.PURPOSES_SIZE;
+
+/**
+ * Loads Global Vendor List JSON and compiles it into a {@link VendorListPolicy}.
+ *
+ * Only the fields needed for consent evaluation are read: vendorListVersion and, for each vendor, id, purposeIds
+ * and deletedDate. Deleted vendors are left out of the policy.
+ *
+ * @see <a href="https://github.com/InteractiveAdvertisingBureau/GDPR-Transparency-and-Consent-Framework">https://github.com/InteractiveAdvertisingBureau/GDPR-Transparency-and-Consent-Framework</a>
+ */
+public final class VendorListLoader {
+
+    private VendorListLoader() {
+    }
+
+    /**
+     * Load and compile vendor list file
+     * @param path path of the vendor list JSON file
+     * @return compiled policy
+     * @throws IOException when file cannot be read
+     * @throws VendorListParseException when file is not a valid vendor list
+     */
+    public static VendorListPolicy load(Path path) throws IOException {
+        return parse(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Load and compile vendor list
+     * @param reader reader of the vendor list JSON
+     * @return compiled policy
+     * @throws IOException when reader fails
+     * @throws VendorListParseException when input is not a valid vendor list
+     */
+    public static VendorListPolicy load(Reader reader) throws IOException {
+        final StringBuilder json = new StringBuilder();
+        final char[] buffer = new char[8192];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            json.append(buffer, 0, read);
+        }
+        return parse(json);
+    }
+
+    /**
+     * Compile vendor list
+     * @param json vendor list JSON
+     * @return compiled policy
+     * @throws VendorListParseException when input is not a valid vendor list
+     */
+    public static VendorListPolicy parse(CharSequence json) {
+        final Object root;
+        try {
+            root = JsonParser.parse(json);
+        } catch (IllegalArgumentException e) {
+            throw new VendorListParseException("Invalid vendor list JSON: " + e.getMessage());
+        }
+        final Map<?, ?> vendorList = asObject(root, "vendor list");
+        final int vendorListVersion = asInt(vendorList.get("vendorListVersion"), "vendorListVersion");
+
+        // First pass to find size of the matrix
+        final List<Map<?, ?>> vendors = new ArrayList<>();
+        int maxVendorId = 0;
+        for (Object entry : asArray(vendorList.get("vendors"), "vendors")) {
+            final Map<?, ?> vendor = asObject(entry, "vendor");
+            final int vendorId = asInt(vendor.get("id"), "vendor id");
+            if (vendorId < 1) throw new VendorListParseException("Invalid vendor ID found: " + vendorId);
+            maxVendorId = Math.max(maxVendorId, vendorId);
+            vendors.add(vendor);
+        }
+
+        final int wordCount = VendorWords.wordCount(maxVendorId);
+        final long[] knownVendors = new long[wordCount];
+        final long[][] requiredPurposeVendors = new long[PURPOSES_SIZE][];
+        for (Map<?, ?> vendor : vendors) {
+            if (vendor.get("deletedDate") != null) continue;
+            final int vendorId = asInt(vendor.get("id"), "vendor id");
+            VendorWords.set(knownVendors, vendorId);
+            final Object purposeIds = vendor.get("purposeIds");
+            if (purposeIds == null) continue;
+            for (Object value : asArray(purposeIds, "purposeIds")) {
+                final int purposeId = asInt(value, "purpose id");
+                if (purposeId < 1 || purposeId > PURPOSES_SIZE)
+                    throw new VendorListParseException("Invalid purpose ID " + purposeId + " for vendor " + vendorId);
+                if (requiredPurposeVendors[purposeId - 1] == null) requiredPurposeVendors[purposeId - 1] = new long[wordCount];
+                VendorWords.set(requiredPurposeVendors[purposeId - 1], vendorId);
+            }
+        }
+        return new VendorListPolicy(vendorListVersion, maxVendorId, knownVendors, requiredPurposeVendors);
+    }
+
+    private static Map<?, ?> asObject(Object value, String name) {
+        if (!(value instanceof Map)) throw new VendorListParseException("Expected object for " + name);
+        return (Map<?, ?>) value;
+    }
+
+    private static List<?> asArray(Object value, String name) {
+        if (!(value instanceof List)) throw new VendorListParseException("Expected array for " + name);
+        return (List<?>) value;
+    }
+
+    private static int asInt(Object value, String name) {
+        if (!(value instanceof Long)) throw new VendorListParseException("Expected integer for " + name);
+        final long number = (Long) value;
+        if (number < Integer.MIN_VALUE || number > Integer.MAX_VALUE)
+            throw new VendorListParseException("Value of " + name + " out of range: " + number);
+        return (int) number;
+    }
+}
@@ -0,0 +1,152 @@
+package com.iab.gdpr.vendorlist;
+
+import com.iab.gdpr.consent.VendorConsent;
+import com.iab.gdpr.consent.query.VendorWords;
+
+import java.util.Arrays;
+
+import static com.iab.gdpr.GdprConstants.PURPOSES_SIZE;
+
+/**
+ * Global Vendor List compiled into a vendor by required purpose bit matrix.
+ *
+ * For every purpose the policy holds words of the vendors that require consent for that purpose
+ * (the purposeIds of the vendor in the list), in the bit order of {@link VendorWords}. A vendor is permitted by a
+ * consent when the consent allows the vendor, the vendor is in the list and the consent allows every purpose the
+ * vendor requires. Purposes the vendor claims under legitimate interest don't need consent and are not part of the
+ * matrix.
+ *
+ * Policies are immutable and thread safe.
+ */
+public final class VendorListPolicy {
+
+    private final int vendorListVersion;
+    private final int maxVendorId;
+    // Vendors present in the list and not deleted
+    private final long[] knownVendors;
+    // Index is PurposeId - 1, null when no vendor requires the purpose
+    private final long[][] requiredPurposeVendors;
+
+    VendorListPolicy(int vendorListVersion, int maxVendorId, long[] knownVendors, long[][] requiredPurposeVendors) {
+        this.vendorListVersion = vendorListVersion;
+        this.maxVendorId = maxVendorId;
+        this.knownVendors = knownVendors;
+        this.requiredPurposeVendors = requiredPurposeVendors;
+    }
+
+    /**
+     * @return version of the vendor list this policy was compiled from
+     */
+    public int getVendorListVersion() {
+        return vendorListVersion;
+    }
+
+    /**
+     * @return highest VendorId in the vendor list
+     */
+    public int getMaxVendorId() {
+        return maxVendorId;
+    }
+
+    /**
+     * @return number of long words in masks returned by {@link #permittedVendors(VendorConsent)}
+     */
+    public int wordCount() {
+        return knownVendors.length;
+    }
+
+    /**
+     * @param vendorId VendorId
+     * @return true if vendor is in the vendor list and not deleted
+     */
+    public boolean isKnownVendor(int vendorId) {
+        return VendorWords.isSet(knownVendors, vendorId);
+    }
+
+    /**
+     * @param vendorId VendorId
+     * @param purposeId PurposeId
+     * @return true if vendor requires consent for the purpose
+     */
+    public boolean isPurposeRequired(int vendorId, int purposeId) {
+        if (purposeId < 1 || purposeId > PURPOSES_SIZE) return false;
+        final long[] vendors = requiredPurposeVendors[purposeId - 1];
+        return vendors != null && VendorWords.isSet(vendors, vendorId);
+    }
+
+    /**
+     * Evaluate consent against this policy
+     * @param vendorConsent vendor consent
+     * @return words of permitted vendors, in bit order of {@link VendorWords}
+     */
+    public long[] permittedVendors(VendorConsent vendorConsent) {
+        final long[] words = new long[wordCount()];
+        permittedVendors(vendorConsent, words);
+        return words;
+    }
+
+    /**
+     * Evaluate consent against this policy into existing array, so that one array can be reused for many consents
+     * @param vendorConsent vendor consent
+     * @param words array of {@link #wordCount()} words to write permitted vendors to
+     */
+    public void permittedVendors(VendorConsent vendorConsent, long[] words) {
+        if (words.length != knownVendors.length)
+            throw new IllegalArgumentException("Expected " + knownVendors.length + " words, got " + words.length);
+        VendorWords.readInto(vendorConsent, words);
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= knownVendors[i];
+        }
+
+        final int allowedPurposesBits = vendorConsent.getAllowedPurposesBits();
+        for (int purposeId = 1; purposeId <= PURPOSES_SIZE; purposeId++) {
+            final long[] vendors = requiredPurposeVendors[purposeId - 1];
+            // Purpose bits are most significant first, PurposeId 1 is the highest bit
+            if (vendors == null || (allowedPurposesBits & (1 << (PURPOSES_SIZE - purposeId))) != 0) continue;
+            for (int i = 0; i < words.length; i++) {
+                words[i] &= ~vendors[i];
+            }
+        }
+    }
+
+    /**
+     * @param vendorConsent vendor consent
+     * @param vendorId VendorId
+     * @return true if the vendor is permitted by the consent under this policy
+     */
+    public boolean isVendorPermitted(VendorConsent vendorConsent, int vendorId) {
+        if (!isKnownVendor(vendorId) || !vendorConsent.isVendorAllowed(vendorId)) return false;
+        for (int purposeId = 1; purposeId <= PURPOSES_SIZE; purposeId++) {
+            if (isPurposeRequired(vendorId, purposeId) && !vendorConsent.isPurposeAllowed(purposeId)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final VendorListPolicy that = (VendorListPolicy) o;
+        return vendorListVersion == that.vendorListVersion &&
+                maxVendorId == that.maxVendorId &&
+                Arrays.equals(knownVendors, that.knownVendors) &&
+                Arrays.deepEquals(requiredPurposeVendors, that.requiredPurposeVendors);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = vendorListVersion;
+        result = 31 * result + Arrays.hashCode(knownVendors);
+        result = 31 * result + Arrays.deepHashCode(requiredPurposeVendors);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "VendorListPolicy{" +
+                "VendorListVersion=" + vendorListVersion +
+                ", MaxVendorId=" + maxVendorId +
+                ", KnownVendors=" + Arrays.stream(knownVendors).map(Long::bitCount).sum() +
+                "}";
+    }
+}
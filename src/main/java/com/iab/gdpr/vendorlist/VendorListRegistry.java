@@ -0,0 +1,93 @@
+package com.iab.gdpr.vendorlist;
+
+import com.iab.gdpr.consent.VendorConsent;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Compiled vendor list policies keyed by vendorListVersion.
+ *
+ * Readers see an immutable snapshot of the policies, writers replace the snapshot with compare-and-set. Lookups
+ * never block and a policy can be added or swapped at runtime while consents are being evaluated.
+ */
+public class VendorListRegistry {
+
+    private final AtomicReference<SortedMap<Integer, VendorListPolicy>> policies =
+            new AtomicReference<>(Collections.unmodifiableSortedMap(new TreeMap<>()));
+
+    /**
+     * Register policy, replacing any policy with the same vendor list version
+     * @param policy compiled policy
+     * @return replaced policy, or null if there was no policy for the version
+     */
+    public VendorListPolicy put(VendorListPolicy policy) {
+        while (true) {
+            final SortedMap<Integer, VendorListPolicy> current = policies.get();
+            final TreeMap<Integer, VendorListPolicy> updated = new TreeMap<>(current);
+            final VendorListPolicy previous = updated.put(policy.getVendorListVersion(), policy);
+            if (policies.compareAndSet(current, Collections.unmodifiableSortedMap(updated))) return previous;
+        }
+    }
+
+    /**
+     * Remove policy
+     * @param vendorListVersion vendor list version
+     * @return removed policy, or null if there was no policy for the version
+     */
+    public VendorListPolicy remove(int vendorListVersion) {
+        while (true) {
+            final SortedMap<Integer, VendorListPolicy> current = policies.get();
+            if (!current.containsKey(vendorListVersion)) return null;
+            final TreeMap<Integer, VendorListPolicy> updated = new TreeMap<>(current);
+            final VendorListPolicy previous = updated.remove(vendorListVersion);
+            if (policies.compareAndSet(current, Collections.unmodifiableSortedMap(updated))) return previous;
+        }
+    }
+
+    /**
+     * Replace all registered policies at once
+     * @param replacement policies to register
+     */
+    public void replaceAll(Collection<VendorListPolicy> replacement) {
+        final TreeMap<Integer, VendorListPolicy> updated = new TreeMap<>();
+        for (VendorListPolicy policy : replacement) {
+            updated.put(policy.getVendorListVersion(), policy);
+        }
+        policies.set(Collections.unmodifiableSortedMap(updated));
+    }
+
+    /**
+     * @param vendorListVersion vendor list version
+     * @return policy for the version, or null if not registered
+     */
+    public VendorListPolicy get(int vendorListVersion) {
+        return policies.get().get(vendorListVersion);
+    }
+
+    /**
+     * @param vendorConsent vendor consent
+     * @return policy for the vendor list version of the consent, or null if not registered
+     */
+    public VendorListPolicy get(VendorConsent vendorConsent) {
+        return get(vendorConsent.getVendorListVersion());
+    }
+
+    /**
+     * @return policy with the highest vendor list version, or null if registry is empty
+     */
+    public VendorListPolicy latest() {
+        final SortedMap<Integer, VendorListPolicy> current = policies.get();
+        return current.isEmpty() ? null : current.get(current.lastKey());
+    }
+
+    /**
+     * @return snapshot of registered policies keyed by vendor list version
+     */
+    public SortedMap<Integer, VendorListPolicy> snapshot() {
+        return policies.get();
+    }
+}
@@ -0,0 +1,82 @@
+package com.iab.gdpr;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class Base64UrlTest {
+
+    @Test
+    public void testEncodeMatchesJdkEncoder() {
+        // Given: random bytes of every length up to 40
+        final Random random = new Random(1);
+        for (int length = 0; length <= 40; length++) {
+            final byte[] bytes = new byte[length + 2];
+            random.nextBytes(bytes);
+            final String expected = Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOfRange(bytes, 1, length + 1));
+
+            // When: bytes between the first and the last are encoded into array, heap and direct buffer and builder
+            final byte[] array = new byte[Base64Url.encodedLength(length) + 3];
+            final int written = Base64Url.encode(bytes, 1, length, array, 3);
+            final ByteBuffer heap = ByteBuffer.allocate(Base64Url.encodedLength(length));
+            Base64Url.encode(bytes, 1, length, heap);
+            final ByteBuffer direct = ByteBuffer.allocateDirect(Base64Url.encodedLength(length));
+            Base64Url.encode(bytes, 1, length, direct);
+            final StringBuilder text = new StringBuilder();
+            Base64Url.encode(bytes, 1, length, text);
+
+            // Then: all give the same text as JDK encoder
+            assertThat(written, is(expected.length()));
+            assertThat(new String(array, 3, written, StandardCharsets.US_ASCII), is(expected));
+            assertThat(new String(heap.array(), StandardCharsets.US_ASCII), is(expected));
+            direct.flip();
+            final byte[] directBytes = new byte[direct.remaining()];
+            direct.get(directBytes);
+            assertThat(new String(directBytes, StandardCharsets.US_ASCII), is(expected));
+            assertThat(text.toString(), is(expected));
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testEncodeWithoutRoom() {
+        // Given: destination smaller than encoded length
+        final byte[] dst = new byte[3];
+
+        // When: three bytes are encoded
+        Base64Url.encode(new byte[3], 0, 3, dst, 0);
+
+        // Then: exception is thrown
+    }
+
+    @Test
+    public void testDecodeRoundTrip() {
+        // Given: encoded text
+        final byte[] bytes = {1, 2, 3, 4, 5, (byte) 0xFF};
+        final StringBuilder text = new StringBuilder();
+        Base64Url.encode(bytes, 0, bytes.length, text);
+
+        // When: text is decoded
+        final byte[] decoded = new byte[Base64Url.decodedLength(text)];
+        Base64Url.decode(text, decoded, 0);
+
+        // Then: original bytes are returned
+        assertThat(decoded, is(bytes));
+    }
+
+    @Test
+    public void testCharacter() {
+        // Then: every six bit value maps to its character and back
+        for (int sextet = 0; sextet < 64; sextet++) {
+            assertThat(Base64Url.sextet((char) Base64Url.character(sextet)), is(sextet));
+        }
+        assertThat(Base64Url.character(0), is((byte) 'A'));
+        assertThat(Base64Url.character(63), is((byte) '_'));
+    }
+}
@@ -0,0 +1,48 @@
+package com.iab.gdpr;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class Murmur3Test {
+
+    @Test
+    public void testReferenceValues() {
+        // Then: hashes match reference implementation
+        assertThat(Murmur3.hash128(new byte[0], 0), is(new long[]{0L, 0L}));
+        assertThat(Murmur3.hash128("hello".getBytes(StandardCharsets.UTF_8), 0),
+                is(new long[]{0xcbd8a7b341bd9b02L, 0x5b1e906a48ae1d19L}));
+        assertThat(Murmur3.hash128("The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.UTF_8), 0),
+                is(new long[]{0xe34bbc7bbc071b6cL, 0x7a433ca9c49a9347L}));
+    }
+
+    @Test
+    public void testOffset() {
+        // Given: data embedded in larger array
+        final byte[] data = "xxThe quick brown fox jumps over the lazy dogyy".getBytes(StandardCharsets.UTF_8);
+
+        // Then: hash of the slice is same as hash of the copy
+        assertThat(Murmur3.hash128(data, 2, data.length - 4, 42),
+                is(Murmur3.hash128("The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.UTF_8), 42)));
+        assertThat(Murmur3.hash64(data, 7), is(Murmur3.hash128(data, 7)[0]));
+    }
+
+    @Test
+    public void testHasherMatchesArrayHash() {
+        // Given: data of every tail length
+        for (int length = 0; length < 40; length++) {
+            final byte[] data = new byte[length];
+            for (int i = 0; i < length; i++) data[i] = (byte) (i * 31 + 7);
+
+            // When: data is fed byte by byte
+            final Murmur3.Hasher128 hasher = Murmur3.newHasher128(3);
+            for (byte b : data) hasher.putByte(b);
+
+            // Then: hash is same as array hash
+            assertThat("length " + length, hasher.hash(), is(Murmur3.hash128(data, 3)));
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package com.iab.gdpr.consent;
+
+import com.iab.gdpr.consent.implementation.v1.VendorConsentBuilder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class CachingVendorConsentDecoderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String consentString(int cmpId) {
+        return VendorConsentEncoder.toBase64String(new VendorConsentBuilder()
+                .withConsentRecordCreatedOn(Instant.EPOCH)
+                .withConsentRecordLastUpdatedOn(Instant.EPOCH)
+                .withCmpID(cmpId)
+                .withConsentLanguage("EN")
+                .withVendorListVersion(1)
+                .withMaxVendorId(cmpId % 300 + 1)
+                .withBitField(Collections.singleton(1))
+                .build());
+    }
+
+    @Test
+    public void testHitsAndMisses() {
+        // Given: caching decoder
+        final CachingVendorConsentDecoder decoder = new CachingVendorConsentDecoder.Builder().withMaximumSize(100).build();
+        final String consentString = consentString(1);
+
+        // When: same string is decoded twice
+        final VendorConsent first = decoder.fromBase64String(consentString);
+        final VendorConsent second = decoder.fromBase64String(consentString);
+
+        // Then: second lookup returns cached consent
+        assertThat(second, is(sameInstance(first)));
+        assertThat(first, is(VendorConsentDecoder.fromBase64String(consentString)));
+        assertThat(decoder.getHitCount(), is(1L));
+        assertThat(decoder.getMissCount(), is(1L));
+        assertThat(decoder.size(), is(1L));
+
+        // And: writing to the returned bytes does not change the cached consent
+        first.toByteArray()[1] = 0;
+        assertThat(decoder.fromBase64String(consentString), is(VendorConsentDecoder.fromBase64String(consentString)));
+
+        // And: cache can be cleared
+        decoder.invalidateAll();
+        assertThat(decoder.size(), is(0L));
+    }
+
+    @Test
+    public void testFrequencyAwareAdmission() {
+        // Given: full cache of two hot consents
+        final CachingVendorConsentDecoder decoder = new CachingVendorConsentDecoder.Builder()
+                .withMaximumSize(2)
+                .withConcurrencyLevel(1)
+                .build();
+        final String hot1 = consentString(1);
+        final String hot2 = consentString(2);
+        for (int i = 0; i < 3; i++) {
+            decoder.fromBase64String(hot1);
+            decoder.fromBase64String(hot2);
+        }
+
+        // When: many one-off consents are decoded
+        for (int cmpId = 100; cmpId < 200; cmpId++) {
+            decoder.fromBase64String(consentString(cmpId));
+        }
+
+        // Then: hot consents are still cached
+        final long hits = decoder.getHitCount();
+        decoder.fromBase64String(hot1);
+        decoder.fromBase64String(hot2);
+        assertThat(decoder.getHitCount(), is(hits + 2));
+        assertThat(decoder.getRejectionCount(), is(100L));
+        assertThat(decoder.getEvictionCount(), is(0L));
+
+        // And: consent that becomes hotter than cached ones is admitted
+        final String hot3 = consentString(3);
+        for (int i = 0; i < 10; i++) {
+            decoder.fromBase64String(hot3);
+        }
+        assertThat(decoder.getEvictionCount(), is(1L));
+        assertThat(decoder.size(), is(2L));
+    }
+
+    @Test
+    public void testWeightBound() {
+        // Given: cache bounded by weight
+        final CachingVendorConsentDecoder decoder = new CachingVendorConsentDecoder.Builder()
+                .withMaximumWeight(8192)
+                .withConcurrencyLevel(1)
+                .build();
+
+        // When: more consents are decoded, repeatedly, than fit
+        for (int round = 0; round < 3; round++) {
+            for (int cmpId = 1; cmpId <= 100; cmpId++) {
+                decoder.fromBase64String(consentString(cmpId));
+            }
+        }
+
+        // Then: weight stays within bound
+        assertThat(decoder.weight(), is(lessThanOrEqualTo(8192L)));
+        assertThat(decoder.size(), is(greaterThan(0L)));
+    }
+
+    @Test
+    public void testConcurrentUse() throws Exception {
+        // Given: caching decoder used from several threads
+        final CachingVendorConsentDecoder decoder = new CachingVendorConsentDecoder.Builder().withMaximumSize(50).build();
+        final List<String> consentStrings = IntStream.range(0, 80).mapToObj(CachingVendorConsentDecoderTest::consentString).collect(Collectors.toList());
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Boolean>> results = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                final int seed = thread;
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < 5000; i++) {
+                        final String consentString = consentStrings.get((i * (seed + 1)) % (i % 3 == 0 ? 80 : 10));
+                        if (!decoder.fromBase64String(consentString).equals(VendorConsentDecoder.fromBase64String(consentString)))
+                            return false;
+                    }
+                    return true;
+                }));
+            }
+
+            // Then: all lookups return correct consents and cache stays bounded
+            for (Future<Boolean> result : results) {
+                assertThat(result.get(), is(true));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(decoder.size(), is(lessThanOrEqualTo(50L)));
+        assertThat(decoder.getHitCount() + decoder.getMissCount(), is(20000L));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMissingBound() {
+        // When: decoder is built without bound
+        new CachingVendorConsentDecoder.Builder().build();
+
+        // Then: exception is thrown
+    }
+
+    @Test
+    public void testSnapshotRoundTrip() throws IOException {
+        // Given: cache with one hot and several cold consents
+        final CachingVendorConsentDecoder decoder = new CachingVendorConsentDecoder.Builder().withMaximumSize(100).build();
+        final String hot = consentString(1);
+        for (int i = 0; i < 5; i++) decoder.fromBase64String(hot);
+        for (int cmpId = 2; cmpId <= 10; cmpId++) decoder.fromBase64String(consentString(cmpId));
+        final Path path = folder.getRoot().toPath().resolve("consents.snapshot");
+
+        // When: hottest three consents are written and loaded into new cache
+        final int written = decoder.writeSnapshot(path, 3);
+        final CachingVendorConsentDecoder restarted = new CachingVendorConsentDecoder.Builder().withMaximumSize(100).build();
+        final int loaded = restarted.loadSnapshot(path, Duration.ofHours(1));
+
+        // Then: hot consent is served from cache without decoding
+        assertThat(written, is(3));
+        assertThat(loaded, is(3));
+        assertThat(restarted.size(), is(3L));
+        assertThat(restarted.fromBase64String(hot), is(VendorConsentDecoder.fromBase64String(hot)));
+        assertThat(restarted.getHitCount(), is(1L));
+        assertThat(restarted.getMissCount(), is(0L));
+    }
+
+    @Test
+    public void testCorruptSnapshotIgnored() throws IOException {
+        // Given: snapshot with one flipped byte
+        final CachingVendorConsentDecoder decoder = new CachingVendorConsentDecoder.Builder().withMaximumSize(100).build();
+        for (int cmpId = 1; cmpId <= 10; cmpId++) decoder.fromBase64String(consentString(cmpId));
+        final Path path = folder.getRoot().toPath().resolve("consents.snapshot");
+        decoder.writeSnapshot(path, 10);
+        final byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length / 2] ^= 0x10;
+        Files.write(path, bytes);
+
+        // When: snapshot is loaded
+        final CachingVendorConsentDecoder restarted = new CachingVendorConsentDecoder.Builder().withMaximumSize(100).build();
+        final int loaded = restarted.loadSnapshot(path, Duration.ofHours(1));
+
+        // Then: nothing is loaded
+        assertThat(loaded, is(0));
+        assertThat(restarted.size(), is(0L));
+
+        // And: truncated and missing snapshots are ignored too
+        Files.write(path, new byte[]{1, 2, 3});
+        assertThat(restarted.loadSnapshot(path, Duration.ofHours(1)), is(0));
+        assertThat(restarted.loadSnapshot(path.resolveSibling("missing"), Duration.ofHours(1)), is(0));
+    }
+
+    @Test
+    public void testFailedSnapshotWriteRemovesTemporaryFile() throws IOException {
+        // Given: snapshot path that is taken by a non-empty directory
+        final Path path = folder.newFolder("snapshot").toPath();
+        Files.createFile(path.resolve("occupied"));
+        final List<ConsentCacheSnapshot.Entry> entries = Collections.singletonList(
+                new ConsentCacheSnapshot.Entry(1, VendorConsentDecoder.fromBase64String(consentString(1)).toByteArray()));
+
+        // When: snapshot is written
+        try {
+            ConsentCacheSnapshot.write(path, entries, Instant.now());
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Then: write fails and temporary file is removed
+            assertFalse(Files.exists(path.resolveSibling("snapshot.tmp")));
+        }
+    }
+
+    @Test
+    public void testSnapshotAgeAtLimitsOfInstant() throws IOException {
+        // Given: snapshots written now and at the earliest instant in epoch milliseconds
+        final Path path = folder.getRoot().toPath().resolve("consents.snapshot");
+        final Path ancient = folder.getRoot().toPath().resolve("ancient.snapshot");
+        final List<ConsentCacheSnapshot.Entry> entries = Collections.singletonList(
+                new ConsentCacheSnapshot.Entry(3, VendorConsentDecoder.fromBase64String(consentString(1)).toByteArray()));
+        ConsentCacheSnapshot.write(path, entries, Instant.now());
+        ConsentCacheSnapshot.write(ancient, entries, Instant.ofEpochMilli(Long.MIN_VALUE));
+        final CachingVendorConsentDecoder decoder = new CachingVendorConsentDecoder.Builder().withMaximumSize(100).build();
+
+        // When: snapshots are loaded with the longest maximum age and a short one
+        // Then: age is compared without overflowing
+        assertThat(decoder.loadSnapshot(path, Duration.ofSeconds(Long.MAX_VALUE)), is(1));
+        assertThat(decoder.loadSnapshot(ancient, Duration.ofHours(1)), is(0));
+    }
+
+    @Test
+    public void testStaleSnapshotIgnored() throws IOException {
+        // Given: snapshot written an hour ago
+        final Path path = folder.getRoot().toPath().resolve("consents.snapshot");
+        ConsentCacheSnapshot.write(path,
+                Collections.singletonList(new ConsentCacheSnapshot.Entry(3, VendorConsentDecoder.fromBase64String(consentString(1)).toByteArray())),
+                Instant.now().minus(Duration.ofHours(1)));
+        final CachingVendorConsentDecoder decoder = new CachingVendorConsentDecoder.Builder().withMaximumSize(100).build();
+
+        // When: snapshot is loaded with different maximum ages
+        final int stale = decoder.loadSnapshot(path, Duration.ofMinutes(10));
+        final int fresh = decoder.loadSnapshot(path, Duration.ofHours(2));
+
+        // Then: it is only loaded when young enough
+        assertThat(stale, is(0));
+        assertThat(fresh, is(1));
+    }
+
+    @Test
+    public void testThreadLocalHitsRecorded() throws IOException {
+        // Given: caching decoder with thread local cache
+        final CachingVendorConsentDecoder decoder = new CachingVendorConsentDecoder.Builder()
+                .withMaximumSize(100)
+                .withThreadLocalCacheSize(64)
+                .build();
+
+        // When: one string is decoded many times and another once
+        for (int i = 0; i < 40; i++) {
+            decoder.fromBase64String(consentString(1));
+        }
+        decoder.fromBase64String(consentString(2));
+
+        // Then: thread local hits count towards frequency in the shared cache
+        assertThat(decoder.getLocalHitCount(), is(39L));
+        final Path path = folder.getRoot().toPath().resolve("consents.snapshot");
+        decoder.writeSnapshot(path, 10);
+        final List<ConsentCacheSnapshot.Entry> entries = ConsentCacheSnapshot.read(path, Duration.ofHours(1), Instant.now());
+        assertThat(entries, hasSize(2));
+        assertThat(entries.get(0).bytes, is(VendorConsentDecoder.fromBase64String(consentString(1)).toByteArray()));
+        assertThat(entries.get(0).frequency, is(greaterThan(entries.get(1).frequency)));
+    }
+
+    @Test
+    public void testThreadLocalCache() throws Exception {
+        // Given: caching decoder with thread local cache
+        final CachingVendorConsentDecoder decoder = new CachingVendorConsentDecoder.Builder()
+                .withMaximumSize(100)
+                .withThreadLocalCacheSize(64)
+                .build();
+        final String consentString = consentString(1);
+
+        // When: string is decoded three times on one thread and once on another
+        final VendorConsent first = decoder.fromBase64String(consentString);
+        decoder.fromBase64String(consentString);
+        decoder.fromBase64String(consentString);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final VendorConsent other = executor.submit(() -> decoder.fromBase64String(consentString)).get();
+        executor.shutdown();
+
+        // Then: repeated lookups hit the thread local cache, other thread hits the shared cache
+        assertThat(other, is(sameInstance(first)));
+        assertThat(decoder.getMissCount(), is(1L));
+        assertThat(decoder.getLocalHitCount(), is(2L));
+        assertThat(decoder.getHitCount(), is(1L));
+        assertThat(decoder.getLocalHitRate(), is(0.5));
+        assertThat(decoder.getHitRate(), is(0.5));
+
+        // And: writing to the bytes of a thread local hit does not change the cached consent
+        decoder.fromBase64String(consentString).toByteArray()[1] = 0;
+        assertThat(decoder.fromBase64String(consentString), is(VendorConsentDecoder.fromBase64String(consentString)));
+        assertThat(decoder.getLocalHitCount(), is(4L));
+
+        // And: invalidation clears thread local caches too
+        decoder.invalidateAll();
+        decoder.fromBase64String(consentString);
+        assertThat(decoder.getMissCount(), is(2L));
+        assertThat(decoder.getLocalHitCount(), is(4L));
+    }
+}
@@ -0,0 +1,97 @@
+package com.iab.gdpr.consent;
+
+import com.iab.gdpr.consent.implementation.v1.CompactVendorConsent;
+import com.iab.gdpr.consent.implementation.v1.VendorConsentBuilder;
+import com.iab.gdpr.consent.range.SingleRangeEntry;
+import com.iab.gdpr.consent.range.StartEndRangeEntry;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.*;
+
+public class CanonicalVendorConsentTest {
+
+    private static VendorConsentBuilder builder(int cmpId, Instant created) {
+        return new VendorConsentBuilder()
+                .withConsentRecordCreatedOn(created)
+                .withConsentRecordLastUpdatedOn(created)
+                .withCmpID(cmpId)
+                .withConsentLanguage("EN")
+                .withVendorListVersion(8)
+                .withAllowedPurposeIds(new HashSet<>(Arrays.asList(1, 2)));
+    }
+
+    @Test
+    public void testEquivalentEncodings() {
+        // Given: same vendors as bit field, split ranges in different order and default consent range
+        final VendorConsent bitField = builder(1, Instant.EPOCH)
+                .withMaxVendorId(12)
+                .withVendorEncodingType(0)
+                .withBitField(new HashSet<>(Arrays.asList(3, 4, 5, 6, 10)))
+                .build();
+        final VendorConsent range = builder(2, Instant.ofEpochSecond(1000))
+                .withMaxVendorId(200)
+                .withVendorEncodingType(1)
+                .withRangeEntries(Arrays.asList(new SingleRangeEntry(10), new StartEndRangeEntry(5, 6), new StartEndRangeEntry(3, 4)))
+                .build();
+        final VendorConsent defaultConsent = builder(3, Instant.EPOCH)
+                .withMaxVendorId(10)
+                .withVendorEncodingType(1)
+                .withDefaultConsent(true)
+                .withRangeEntries(Arrays.asList(new StartEndRangeEntry(1, 2), new StartEndRangeEntry(7, 9)))
+                .build();
+
+        // When: canonical forms are created
+        final CanonicalVendorConsent canonical = CanonicalVendorConsent.of(bitField);
+
+        // Then: all consents are equivalent with same keys
+        for (VendorConsent vendorConsent : Arrays.asList(range, defaultConsent, CompactVendorConsent.freeze(range))) {
+            final CanonicalVendorConsent other = CanonicalVendorConsent.of(vendorConsent);
+            assertThat(other, is(canonical));
+            assertThat(other.hashCode(), is(canonical.hashCode()));
+            assertThat(other.key64(), is(canonical.key64()));
+            assertThat(other.key128(), is(canonical.key128()));
+        }
+        assertTrue(canonical.isVendorAllowed(10));
+        assertThat(canonical.getVendorWords().length, is(1));
+
+        // And: consents differ when CMP or timestamps are requested
+        assertFalse(CanonicalVendorConsent.equivalent(bitField, range, CanonicalVendorConsent.Field.CMP_ID));
+        assertFalse(CanonicalVendorConsent.equivalent(bitField, range, CanonicalVendorConsent.Field.CONSENT_RECORD_CREATED));
+        assertTrue(CanonicalVendorConsent.equivalent(bitField, defaultConsent, CanonicalVendorConsent.Field.CONSENT_RECORD_CREATED));
+    }
+
+    @Test
+    public void testDifferentContent() {
+        // Given: consents differing in one vendor or in purposes
+        final VendorConsent consent = builder(1, Instant.EPOCH)
+                .withMaxVendorId(100)
+                .withVendorEncodingType(0)
+                .withBitField(new HashSet<>(Arrays.asList(1, 100)))
+                .build();
+        final VendorConsent otherVendor = builder(1, Instant.EPOCH)
+                .withMaxVendorId(100)
+                .withVendorEncodingType(0)
+                .withBitField(new HashSet<>(Arrays.asList(1, 99)))
+                .build();
+        final VendorConsent otherPurposes = builder(1, Instant.EPOCH)
+                .withAllowedPurposeIds(new HashSet<>(Arrays.asList(1)))
+                .withMaxVendorId(100)
+                .withVendorEncodingType(0)
+                .withBitField(new HashSet<>(Arrays.asList(1, 100)))
+                .build();
+
+        // Then: canonical forms and keys differ
+        final CanonicalVendorConsent canonical = CanonicalVendorConsent.of(consent);
+        for (VendorConsent vendorConsent : Arrays.asList(otherVendor, otherPurposes)) {
+            final CanonicalVendorConsent other = CanonicalVendorConsent.of(vendorConsent);
+            assertThat(other, is(not(canonical)));
+            assertThat(other.key64(), is(not(canonical.key64())));
+        }
+    }
+}
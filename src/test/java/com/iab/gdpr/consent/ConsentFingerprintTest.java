@@ -0,0 +1,93 @@
+package com.iab.gdpr.consent;
+
+import com.iab.gdpr.consent.batch.VendorConsentBatch;
+import com.iab.gdpr.consent.implementation.v1.ByteBufferBackedVendorConsent;
+import com.iab.gdpr.consent.implementation.v1.CompactVendorConsent;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+public class ConsentFingerprintTest {
+
+    private static final List<String> CONSENT_STRINGS = Arrays.asList(
+            "BOOlLqOOOlLqTABABAENAk-AAAAXx7_______9______9uz_Gv_r_f__3nW8_39P3g_7_O3_7m_-zzV48_lrQV1yPAUCgA",
+            "BN5lERiOMYEdiAOAWeFRAAYAAaAAptQ",
+            "BN5lERiOMYEdiAKAWXEND1HoSBE6CAFAApAMgBkIDIgM0AgOJxAnQA",
+            "BOEFEAyOEFEAyAHABDENAI4AAAB9vABAASA");
+
+    @Test
+    public void testBase64MatchesBytes() {
+        for (String consentString : CONSENT_STRINGS) {
+            // Given: consent string and its decoded bytes
+            final byte[] bytes = Base64.getUrlDecoder().decode(consentString);
+
+            // Then: fingerprint from string is same as from bytes and from decoded consent
+            final ConsentFingerprint fingerprint = ConsentFingerprint.of(bytes);
+            assertThat(consentString, ConsentFingerprint.fromBase64String(consentString), is(fingerprint));
+            assertThat(consentString, ConsentFingerprint.fromBase64String(Base64.getUrlEncoder().encodeToString(bytes)), is(fingerprint));
+            assertThat(ConsentFingerprint.of(VendorConsentDecoder.fromBase64String(consentString)), is(fingerprint));
+            assertThat(ConsentFingerprint.fingerprint64(consentString), is(fingerprint.asLong()));
+        }
+    }
+
+    @Test
+    public void testBatchMatchesBytes() {
+        // Given: batch of consent strings
+        final VendorConsentBatch batch = VendorConsentBatch.fromBase64Strings(CONSENT_STRINGS);
+
+        // Then: fingerprints of batch entries are same as of the strings
+        for (int i = 0; i < batch.size(); i++) {
+            assertThat(batch.fingerprint(i), is(ConsentFingerprint.fromBase64String(CONSENT_STRINGS.get(i))));
+        }
+    }
+
+    @Test
+    public void testMemoized() {
+        // Given: decoded consent
+        final ByteBufferBackedVendorConsent vendorConsent = (ByteBufferBackedVendorConsent) VendorConsentDecoder.fromBase64String(CONSENT_STRINGS.get(0));
+
+        // Then: fingerprint is computed once
+        assertThat(vendorConsent.fingerprint(), is(sameInstance(vendorConsent.fingerprint())));
+
+        // And: compact consents use the fingerprint of their encoding
+        final CompactVendorConsent compact = vendorConsent.freeze();
+        assertThat(ConsentFingerprint.of(compact), is(ConsentFingerprint.of(compact.toByteArray())));
+    }
+
+    @Test
+    public void testDistinct() {
+        // Then: different consents have different fingerprints
+        final Set<ConsentFingerprint> fingerprints = new HashSet<>();
+        for (String consentString : CONSENT_STRINGS) {
+            fingerprints.add(ConsentFingerprint.fromBase64String(consentString));
+        }
+        assertThat(fingerprints.size(), is(CONSENT_STRINGS.size()));
+        assertThat(ConsentFingerprint.fromBase64String(CONSENT_STRINGS.get(0)).toString().length(), is(32));
+        assertThat(ConsentFingerprint.fromBase64String(CONSENT_STRINGS.get(1)), is(not(ConsentFingerprint.fromBase64String(CONSENT_STRINGS.get(2)))));
+    }
+
+    @Test
+    public void testHashCodeFollowsBytes() {
+        // Given: decoded consent with memoized fingerprint
+        final ByteBufferBackedVendorConsent vendorConsent = (ByteBufferBackedVendorConsent) VendorConsentDecoder.fromBase64String(CONSENT_STRINGS.get(0));
+        vendorConsent.fingerprint();
+
+        // When: backing array is modified
+        vendorConsent.toByteArray()[5] ^= 1;
+
+        // Then: hash code stays consistent with equals
+        final VendorConsent copy = VendorConsentDecoder.fromByteArray(vendorConsent.toByteArray().clone());
+        assertEquals(copy, vendorConsent);
+        assertThat(vendorConsent.hashCode(), is(copy.hashCode()));
+    }
+}
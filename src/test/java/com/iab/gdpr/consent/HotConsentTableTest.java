@@ -0,0 +1,138 @@
+package com.iab.gdpr.consent;
+
+import com.iab.gdpr.consent.implementation.v1.VendorConsentBuilder;
+import com.iab.gdpr.consent.range.SingleRangeEntry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class HotConsentTableTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String consentString(int cmpId) {
+        return VendorConsentEncoder.toBase64String(new VendorConsentBuilder()
+                .withConsentRecordCreatedOn(Instant.EPOCH)
+                .withConsentRecordLastUpdatedOn(Instant.EPOCH)
+                .withCmpID(cmpId)
+                .withConsentLanguage("EN")
+                .withVendorListVersion(1)
+                .withMaxVendorId(cmpId % 300 + 1)
+                .withBitField(Collections.singleton(1))
+                .build());
+    }
+
+    @Test
+    public void testLookup() {
+        // Given: table of 1000 consent strings
+        final List<String> hot = IntStream.rangeClosed(1, 1000).mapToObj(HotConsentTableTest::consentString).collect(Collectors.toList());
+        final HotConsentTable table = new HotConsentTable.Builder().withConsentStrings(hot).build();
+
+        // When: every string is looked up
+        // Then: pre-decoded consent is returned, same instance every time
+        assertThat(table.size(), is(1000));
+        for (String consentString : hot) {
+            final VendorConsent vendorConsent = table.get(consentString);
+            assertThat(vendorConsent, is(notNullValue()));
+            assertThat(vendorConsent.getCmpId(), is(VendorConsentDecoder.fromBase64String(consentString).getCmpId()));
+            assertThat(vendorConsent.getAllowedVendorIds(), is(VendorConsentDecoder.fromBase64String(consentString).getAllowedVendorIds()));
+            assertThat(table.fromBase64String(consentString), is(sameInstance(vendorConsent)));
+            assertThat(vendorConsent, is(VendorConsentDecoder.fromBase64String(consentString)));
+            assertThat(VendorConsentEncoder.toBase64String(vendorConsent), is(consentString));
+
+            // And: writing to the returned bytes does not change the table
+            vendorConsent.toByteArray()[1] = 0;
+            assertThat(VendorConsentEncoder.toBase64String(table.get(consentString)), is(consentString));
+        }
+    }
+
+    @Test
+    public void testUnknownStringFallsBackToDecoder() {
+        // Given: table of few consent strings
+        final HotConsentTable table = new HotConsentTable.Builder()
+                .withConsentString(consentString(1))
+                .withConsentString(consentString(2))
+                .build();
+        final String cold = consentString(3);
+
+        // When: other string is looked up
+        // Then: it is decoded
+        assertThat(table.get(cold), is(nullValue()));
+        assertThat(table.fromBase64String(cold), is(VendorConsentDecoder.fromBase64String(cold)));
+    }
+
+    @Test
+    public void testEmptyTable() {
+        // Given: table without strings
+        final HotConsentTable table = new HotConsentTable.Builder().build();
+
+        // When: string is looked up
+        // Then: it is decoded
+        final String consentString = consentString(1);
+        assertThat(table.size(), is(0));
+        assertThat(table.get(consentString), is(nullValue()));
+        assertThat(table.fromBase64String(consentString).getCmpId(), is(1));
+    }
+
+    @Test
+    public void testCorpus() throws IOException {
+        // Given: corpus file with comments, blank lines and duplicates
+        final Path corpus = folder.getRoot().toPath().resolve("corpus.txt");
+        Files.write(corpus, Arrays.asList("# top consents", consentString(1), "", consentString(2), consentString(1)), StandardCharsets.UTF_8);
+
+        // When: table is built from corpus
+        final HotConsentTable table = new HotConsentTable.Builder().withCorpus(corpus).build();
+
+        // Then: distinct strings are in the table
+        assertThat(table.size(), is(2));
+        assertThat(table.get(consentString(2)).getCmpId(), is(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCorpusString() {
+        // Given: builder with invalid consent string
+        final HotConsentTable.Builder builder = new HotConsentTable.Builder().withConsentString("AAAA");
+
+        // When: table is built
+        builder.build();
+
+        // Then: exception is thrown
+    }
+
+    @Test
+    public void testRangeConsentEncodedUnchanged() {
+        // Given: table with range encoded consent
+        final String consentString = VendorConsentEncoder.toBase64String(new VendorConsentBuilder()
+                .withConsentRecordCreatedOn(Instant.EPOCH)
+                .withConsentRecordLastUpdatedOn(Instant.EPOCH)
+                .withConsentLanguage("EN")
+                .withVendorListVersion(1)
+                .withMaxVendorId(10)
+                .withVendorEncodingType(1)
+                .withRangeEntries(Collections.singletonList(new SingleRangeEntry(3)))
+                .build());
+        final HotConsentTable table = new HotConsentTable.Builder().withConsentString(consentString).build();
+
+        // When: consent is looked up
+        final VendorConsent vendorConsent = table.get(consentString);
+
+        // Then: consent encodes to the same string and equals decoded consent
+        assertThat(VendorConsentEncoder.toBase64String(vendorConsent), is(consentString));
+        assertThat(vendorConsent, is(VendorConsentDecoder.fromBase64String(consentString)));
+    }
+}
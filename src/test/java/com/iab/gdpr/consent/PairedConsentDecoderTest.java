@@ -0,0 +1,114 @@
+package com.iab.gdpr.consent;
+
+import com.iab.gdpr.consent.implementation.v1.PublisherPurposesConsentBuilder;
+import com.iab.gdpr.consent.implementation.v1.SharedHeaderPairedConsent;
+import com.iab.gdpr.consent.implementation.v1.VendorConsentBuilder;
+import com.iab.gdpr.exception.VendorConsentParseException;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static com.iab.gdpr.Purpose.*;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.*;
+
+public class PairedConsentDecoderTest {
+
+    private static final Instant CREATED = LocalDateTime.of(2018, 6, 4, 0, 0, 0).toInstant(ZoneOffset.UTC);
+
+    private static String vendorConsentString(int cmpId) {
+        return VendorConsentEncoder.toBase64String(new VendorConsentBuilder()
+                .withConsentRecordCreatedOn(CREATED)
+                .withConsentRecordLastUpdatedOn(CREATED)
+                .withCmpID(cmpId)
+                .withCmpVersion(5)
+                .withConsentScreenID(2)
+                .withConsentLanguage("DE")
+                .withVendorListVersion(150)
+                .withAllowedPurposes(new HashSet<>(Arrays.asList(STORAGE_AND_ACCESS, AD_SELECTION)))
+                .withMaxVendorId(100)
+                .withBitField(new HashSet<>(Arrays.asList(10, 20)))
+                .build());
+    }
+
+    private static String publisherPurposesConsentString() {
+        return PublisherPurposesConsentEncoder.toBase64String(new PublisherPurposesConsentBuilder()
+                .withConsentRecordCreatedOn(CREATED)
+                .withConsentRecordLastUpdatedOn(CREATED)
+                .withCmpID(12)
+                .withCmpVersion(5)
+                .withConsentScreenID(2)
+                .withConsentLanguage("DE")
+                .withVendorListVersion(150)
+                .withPublisherPurposesListVersion(3)
+                .withCustomAllowedPurposeIds(new HashSet<>(Arrays.asList(1, 2)))
+                .build());
+    }
+
+    @Test
+    public void testPairedDecode() {
+        // Given: vendor consent and publisher purposes consent strings with the same header
+        final String vendorConsentString = vendorConsentString(12);
+        final String publisherPurposesConsentString = publisherPurposesConsentString();
+
+        // When: both are decoded together
+        final PairedConsent pairedConsent = PairedConsentDecoder.fromBase64Strings(vendorConsentString, publisherPurposesConsentString);
+
+        // Then: v1 implementation is returned
+        assertThat(pairedConsent.getClass(), is(SharedHeaderPairedConsent.class));
+
+        // And: shared header is decoded once
+        assertThat(pairedConsent.getVersion(), is(1));
+        assertThat(pairedConsent.getConsentRecordCreated(), is(CREATED));
+        assertThat(pairedConsent.getConsentRecordLastUpdated(), is(CREATED));
+        assertThat(pairedConsent.getCmpId(), is(12));
+        assertThat(pairedConsent.getCmpVersion(), is(5));
+        assertThat(pairedConsent.getConsentScreen(), is(2));
+        assertThat(pairedConsent.getConsentLanguage(), is("DE"));
+        assertThat(pairedConsent.getVendorListVersion(), is(150));
+
+        // And: vendor and publisher questions are answered by the pair
+        assertTrue(pairedConsent.isVendorPurposeAllowed(10, STORAGE_AND_ACCESS));
+        assertTrue(pairedConsent.isVendorPurposeAllowed(20, 3));
+        assertFalse(pairedConsent.isVendorPurposeAllowed(10, PERSONALIZATION));
+        assertFalse(pairedConsent.isVendorPurposeAllowed(11, STORAGE_AND_ACCESS));
+        assertTrue(pairedConsent.isCustomPurposeAllowed(1));
+        assertTrue(pairedConsent.isCustomPurposeAllowed(2));
+        assertFalse(pairedConsent.isCustomPurposeAllowed(3));
+
+        // And: both consents are available on their own
+        assertThat(pairedConsent.getVendorConsent(), is(VendorConsentDecoder.fromBase64String(vendorConsentString)));
+        assertThat(pairedConsent.getPublisherPurposesConsent().getCustomAllowedPurposeIds(),
+                is(PublisherPurposesConsentDecoder.fromBase64String(publisherPurposesConsentString).getCustomAllowedPurposeIds()));
+    }
+
+    @Test
+    public void testSharedHeaderMismatch() {
+        // Given: vendor consent with different CMP ID than publisher purposes consent
+        final String vendorConsentString = vendorConsentString(13);
+
+        // When: both are decoded together
+        try {
+            PairedConsentDecoder.fromBase64Strings(vendorConsentString, publisherPurposesConsentString());
+            fail("Expected VendorConsentParseException");
+        } catch (VendorConsentParseException e) {
+            // Then: mismatched field is reported
+            assertTrue(e.getMessage().endsWith("CmpId"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyPublisherPurposesConsentString() {
+        // Given: empty publisher purposes consent string
+        final String publisherPurposesConsentString = "";
+
+        // When: decoder is called
+        PairedConsentDecoder.fromBase64Strings(vendorConsentString(12), publisherPurposesConsentString);
+
+        // Then IllegalArgumentException exception is thrown
+    }
+}
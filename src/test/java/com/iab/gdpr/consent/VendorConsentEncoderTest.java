@@ -4,6 +4,9 @@ import com.iab.gdpr.consent.implementation.v1.ByteBufferBackedVendorConsent;
 import com.iab.gdpr.util.Utils;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.*;
@@ -37,4 +40,25 @@ public class VendorConsentEncoderTest {
         // Then: encoded string is returned
         assertThat(vendorConsent.getAllowedPurposesBits(),is(notNullValue()));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testEncodeIntoBuffers() {
+        // Given: vendor consent
+        final VendorConsent vendorConsent = VendorConsentDecoder.fromBase64String("BOOzQoAOOzQoAAPAFSENCW-AIBA=");
+        final String expected = VendorConsentEncoder.toBase64String(vendorConsent);
+
+        // When: consent is encoded into array, buffer and string builder
+        final byte[] array = new byte[VendorConsentEncoder.encodedLength(vendorConsent) + 1];
+        final int written = VendorConsentEncoder.encode(vendorConsent, array, 1);
+        final ByteBuffer buffer = ByteBuffer.allocate(written);
+        VendorConsentEncoder.encode(vendorConsent, buffer);
+        final StringBuilder text = new StringBuilder("consent=");
+        VendorConsentEncoder.encode(vendorConsent, text);
+
+        // Then: same text as Base64 string is written
+        assertThat(written, is(expected.length()));
+        assertThat(new String(array, 1, written, StandardCharsets.US_ASCII), is(expected));
+        assertThat(new String(buffer.array(), StandardCharsets.US_ASCII), is(expected));
+        assertThat(text.toString(), is("consent=" + expected));
+    }
+}
@@ -0,0 +1,93 @@
+package com.iab.gdpr.consent;
+
+import org.junit.Test;
+
+import java.util.Base64;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class VendorConsentInternerTest {
+
+    private static final String CONSENT_STRING = "BOOlLqOOOlLqTABABAENAk-AAAAXx7_______9______9uz_Gv_r_f__3nW8_39P3g_7_O3_7m_-zzV48_lrQV1yPAUCgA";
+    private static final String OTHER_CONSENT_STRING = "BN5lERiOMYEdiAOAWeFRAAYAAaAAptQ";
+
+    @Test
+    public void testIntern() {
+        // Given: interner
+        final VendorConsentInterner interner = new VendorConsentInterner();
+
+        // When: same consent is decoded several times, from string and from bytes
+        final VendorConsent first = interner.fromBase64String(CONSENT_STRING);
+        final VendorConsent second = interner.fromBase64String(CONSENT_STRING);
+        final VendorConsent third = interner.fromByteArray(Base64.getUrlDecoder().decode(CONSENT_STRING));
+        final VendorConsent other = interner.fromBase64String(OTHER_CONSENT_STRING);
+
+        // Then: same instance is returned for equal consents
+        assertThat(second, is(sameInstance(first)));
+        assertThat(third, is(sameInstance(first)));
+        assertThat(other, is(not(sameInstance(first))));
+        assertThat(other, is(VendorConsentDecoder.fromBase64String(OTHER_CONSENT_STRING)));
+
+        // And: dedup is reported
+        assertThat(interner.size(), is(2));
+        assertThat(interner.getRequestCount(), is(4L));
+        assertThat(interner.getDedupCount(), is(2L));
+        assertThat(interner.getDedupRatio(), is(0.5));
+        assertThat(interner.getSavedBytes(), is(greaterThan(0L)));
+
+        // And: interning the shared instance itself is not counted as dedup
+        assertThat(interner.intern(first), is(sameInstance(first)));
+        assertThat(interner.getDedupCount(), is(2L));
+    }
+
+    @Test
+    public void testSharedConsentIsImmutable() {
+        // Given: interner with a consent interned from bytes the caller keeps
+        final VendorConsentInterner interner = new VendorConsentInterner();
+        final byte[] bytes = Base64.getUrlDecoder().decode(CONSENT_STRING);
+        final VendorConsent first = interner.fromByteArray(bytes);
+
+        // When: caller modifies its bytes and the array returned by the shared consent
+        bytes[1] = 0;
+        first.toByteArray()[1] = 0;
+
+        // Then: shared consent is unchanged and still found by its string
+        final VendorConsent second = interner.fromBase64String(CONSENT_STRING);
+        assertThat(second, is(sameInstance(first)));
+        assertThat(second, is(VendorConsentDecoder.fromBase64String(CONSENT_STRING)));
+        assertThat(interner.getDedupCount(), is(1L));
+    }
+
+    @Test
+    public void testMaximumSize() {
+        // Given: interner of a single consent
+        final VendorConsentInterner interner = new VendorConsentInterner(1);
+        final VendorConsent first = interner.fromBase64String(CONSENT_STRING);
+
+        // When: another consent is decoded twice
+        final VendorConsent other = interner.fromBase64String(OTHER_CONSENT_STRING);
+        final VendorConsent otherAgain = interner.fromBase64String(OTHER_CONSENT_STRING);
+
+        // Then: it is not interned
+        assertThat(otherAgain, is(not(sameInstance(other))));
+        assertThat(interner.fromBase64String(CONSENT_STRING), is(sameInstance(first)));
+        assertThat(interner.size(), is(1));
+    }
+
+    @Test
+    public void testWeakReferences() throws InterruptedException {
+        // Given: interner with consent that is not referenced anymore
+        final VendorConsentInterner interner = new VendorConsentInterner();
+        interner.fromBase64String(CONSENT_STRING);
+
+        // When: garbage is collected
+        for (int i = 0; i < 50 && interner.size() > 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        // Then: consent is dropped from the interner
+        assertThat(interner.size(), is(0));
+    }
+}
@@ -0,0 +1,116 @@
+package com.iab.gdpr.consent.batch;
+
+import com.iab.gdpr.consent.VendorConsent;
+import com.iab.gdpr.consent.VendorConsentDecoder;
+import com.iab.gdpr.consent.VendorConsentEncoder;
+import com.iab.gdpr.consent.implementation.v1.VendorConsentBuilder;
+import com.iab.gdpr.consent.implementation.v1.VendorConsentPatch;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.iab.gdpr.GdprConstants.VENDOR_ENCODING_RANGE;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class BulkVendorConsentEncoderTest {
+
+    private static final BiConsumer<Integer, VendorConsentBuilder> SPEC = (index, builder) -> builder
+            .withConsentRecordCreatedOn(Instant.EPOCH)
+            .withConsentRecordLastUpdatedOn(Instant.EPOCH)
+            .withCmpID(index % 4000)
+            .withConsentLanguage("EN")
+            .withVendorListVersion(index / 4000 + 1)
+            .withMaxVendorId(index % 300 + 1)
+            .withVendorEncodingType(index % 2 == 0 ? 0 : VENDOR_ENCODING_RANGE)
+            .withBitField(Collections.singleton(1))
+            .withRangeEntries(new int[]{index % 300 + 1});
+
+    private static String expected(int index) {
+        final VendorConsentBuilder builder = new VendorConsentBuilder();
+        SPEC.accept(index, builder);
+        return VendorConsentEncoder.toBase64String(builder.build());
+    }
+
+    @Test
+    public void testOrderedEncodeToOutputStream() throws IOException {
+        // Given: encoder with batches of several slices
+        final BulkVendorConsentEncoder encoder = new BulkVendorConsentEncoder.Builder().withBatchSize(5000).build();
+        final List<Integer> specs = IntStream.rangeClosed(1, 12000).boxed().collect(Collectors.toList());
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When: specs are encoded
+        final long count = encoder.encode(specs.spliterator(), SPEC, out);
+
+        // Then: one line per spec is written in input order
+        final String[] lines = new String(out.toByteArray(), StandardCharsets.US_ASCII).split("\n");
+        assertThat(count, is(12000L));
+        assertThat(lines.length, is(12000));
+        for (int i = 0; i < lines.length; i++) {
+            assertThat(lines[i], is(expected(i + 1)));
+        }
+    }
+
+    @Test
+    public void testUnorderedEncodeToCallback() {
+        // Given: unordered encoder
+        final BulkVendorConsentEncoder encoder = new BulkVendorConsentEncoder.Builder().withOrdered(false).build();
+        final ConcurrentLinkedQueue<String> strings = new ConcurrentLinkedQueue<>();
+
+        // When: specs are encoded
+        final long count = encoder.encode(IntStream.rangeClosed(1, 5000).boxed().spliterator(), SPEC, strings::add);
+
+        // Then: every consent string is passed to callback
+        assertThat(count, is(5000L));
+        assertThat(new HashSet<>(strings), is(IntStream.rangeClosed(1, 5000).mapToObj(BulkVendorConsentEncoderTest::expected).collect(Collectors.toSet())));
+    }
+
+    @Test
+    public void testTransform() {
+        // Given: decoded consents
+        final List<VendorConsent> vendorConsents = new ArrayList<>();
+        for (int index = 1; index <= 3000; index++) {
+            vendorConsents.add(VendorConsentDecoder.fromBase64String(expected(index)));
+        }
+        final BulkVendorConsentEncoder encoder = new BulkVendorConsentEncoder.Builder().build();
+        final List<String> strings = new ArrayList<>();
+
+        // When: consents are moved to new vendor list version
+        encoder.transform(vendorConsents.spliterator(),
+                vendorConsent -> VendorConsentPatch.of(vendorConsent).withVendorListVersion(2).build(), strings::add);
+
+        // Then: transformed consents are encoded in order
+        assertThat(strings, hasSize(3000));
+        for (int i = 0; i < strings.size(); i++) {
+            final VendorConsent transformed = VendorConsentDecoder.fromBase64String(strings.get(i));
+            assertThat(transformed.getVendorListVersion(), is(2));
+            assertThat(transformed.getCmpId(), is(vendorConsents.get(i).getCmpId()));
+            assertThat(transformed.getAllowedVendorIds(), is(vendorConsents.get(i).getAllowedVendorIds()));
+        }
+    }
+
+    @Test
+    public void testEmptyInput() throws IOException {
+        // Given: no specs
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When: specs are encoded
+        final long count = new BulkVendorConsentEncoder.Builder().build()
+                .encode(Collections.<Integer>emptyList().spliterator(), SPEC, out);
+
+        // Then: nothing is written
+        assertThat(count, is(0L));
+        assertThat(out.size(), is(0));
+    }
+}
@@ -0,0 +1,154 @@
+package com.iab.gdpr.consent.batch;
+
+import com.iab.gdpr.consent.VendorConsent;
+import com.iab.gdpr.consent.VendorConsentDecoder;
+import com.iab.gdpr.consent.VendorConsentEncoder;
+import com.iab.gdpr.consent.implementation.v1.VendorConsentBuilder;
+import com.iab.gdpr.consent.range.SingleRangeEntry;
+import com.iab.gdpr.consent.range.StartEndRangeEntry;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static com.iab.gdpr.Purpose.*;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.*;
+
+public class VendorConsentBatchTest {
+
+    private static final String BIT_FIELD_STRING = "BOOlLqOOOlLqTABABAENAk-AAAAXx7_______9______9uz_Gv_r_f__3nW8_39P3g_7_O3_7m_-zzV48_lrQV1yPAUCgA";
+
+    private static String rangeString() {
+        final Instant now = LocalDateTime.of(2018, 6, 4, 0, 0, 0).toInstant(ZoneOffset.UTC);
+        final VendorConsent vendorConsent = new VendorConsentBuilder()
+                .withConsentRecordCreatedOn(now)
+                .withConsentRecordLastUpdatedOn(now)
+                .withCmpID(10)
+                .withCmpVersion(3)
+                .withConsentScreenID(2)
+                .withConsentLanguage("FR")
+                .withVendorListVersion(150)
+                .withAllowedPurposes(new HashSet<>(Arrays.asList(STORAGE_AND_ACCESS, MEASUREMENT)))
+                .withMaxVendorId(400)
+                .withVendorEncodingType(1)
+                .withDefaultConsent(true)
+                .withRangeEntries(Arrays.asList(new SingleRangeEntry(5), new StartEndRangeEntry(100, 200)))
+                .build();
+        return VendorConsentEncoder.toBase64String(vendorConsent);
+    }
+
+    @Test
+    public void testBatchMatchesIndividuallyDecodedConsents() {
+        // Given: list of bit field and range encoded consent strings
+        final List<String> consentStrings = Arrays.asList(BIT_FIELD_STRING, rangeString(), BIT_FIELD_STRING + "==");
+
+        // When: batch is decoded
+        final VendorConsentBatch batch = VendorConsentBatch.fromBase64Strings(consentStrings);
+
+        // Then: every index gives the same answers as the single consent decoder
+        assertThat(batch.size(), is(3));
+        for (int i = 0; i < batch.size(); i++) {
+            final VendorConsent expected = VendorConsentDecoder.fromBase64String(consentStrings.get(i));
+            assertThat(batch.getVersion(i), is(expected.getVersion()));
+            assertThat(batch.getConsentRecordCreated(i), is(expected.getConsentRecordCreated()));
+            assertThat(batch.getConsentRecordLastUpdated(i), is(expected.getConsentRecordLastUpdated()));
+            assertThat(batch.getCmpId(i), is(expected.getCmpId()));
+            assertThat(batch.getCmpVersion(i), is(expected.getCmpVersion()));
+            assertThat(batch.getConsentScreen(i), is(expected.getConsentScreen()));
+            assertThat(batch.getConsentLanguage(i), is(expected.getConsentLanguage()));
+            assertThat(batch.getVendorListVersion(i), is(expected.getVendorListVersion()));
+            assertThat(batch.getAllowedPurposesBits(i), is(expected.getAllowedPurposesBits()));
+            assertThat(batch.getMaxVendorId(i), is(expected.getMaxVendorId()));
+            assertThat(batch.getAllowedVendorIds(i), is(expected.getAllowedVendorIds()));
+            assertThat(batch.toByteArray(i), is(expected.toByteArray()));
+            for (int purposeId = 0; purposeId <= 25; purposeId++) {
+                assertThat(batch.isPurposeAllowed(i, purposeId), is(expected.isPurposeAllowed(purposeId)));
+            }
+            for (int vendorId = 0; vendorId <= expected.getMaxVendorId() + 1; vendorId++) {
+                assertThat(batch.isVendorAllowed(i, vendorId), is(expected.isVendorAllowed(vendorId)));
+            }
+        }
+    }
+
+    @Test
+    public void testFromByteArrays() {
+        // Given: consent bytes
+        final byte[] bytes = VendorConsentDecoder.fromBase64String(rangeString()).toByteArray();
+
+        // When: batch is created from byte arrays
+        final VendorConsentBatch batch = VendorConsentBatch.fromByteArrays(Arrays.asList(bytes, bytes));
+
+        // Then: consents are copied into the batch
+        assertThat(batch.size(), is(2));
+        assertThat(batch.getLength(1), is(bytes.length));
+        assertThat(batch.toByteArray(1), is(bytes));
+        assertTrue(batch.isVendorAllowed(1, 4));
+
+        // And: buffers over the arena compare by content
+        assertThat(batch.toByteBuffer(1), is(ByteBuffer.wrap(bytes)));
+        assertThat(batch.toByteBuffer(1).hashCode(), is(batch.toByteBuffer(0).hashCode()));
+        assertTrue(batch.toByteBuffer(1).isReadOnly());
+        assertFalse(batch.isVendorAllowed(1, 5));
+        assertFalse(batch.isVendorAllowed(1, 150));
+        assertTrue(batch.isVendorAllowed(1, 201));
+    }
+
+    @Test
+    public void testReusableView() {
+        // Given: batch of two different consents
+        final VendorConsentBatch batch = VendorConsentBatch.fromBase64Strings(Arrays.asList(BIT_FIELD_STRING, rangeString()));
+
+        // When: one view is moved across the batch
+        final VendorConsentBatch.View view = batch.newView();
+
+        // Then: view answers for the consent it is positioned at
+        assertThat(view.moveTo(0).getCmpId(), is(1));
+        assertThat(view.getConsentLanguage(), is("EN"));
+        assertThat(view.moveTo(1).getCmpId(), is(10));
+        assertThat(view.getConsentLanguage(), is("FR"));
+        assertThat(view.getAllowedPurposes(), is(new HashSet<>(Arrays.asList(STORAGE_AND_ACCESS, MEASUREMENT))));
+        assertFalse(view.isVendorAllowed(5));
+        assertThat(view.index(), is(1));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testViewOutOfBounds() {
+        // Given: batch of single consent
+        final VendorConsentBatch batch = VendorConsentBatch.fromBase64Strings(Collections.singletonList(BIT_FIELD_STRING));
+
+        // When: view is moved past the end of the batch
+        batch.newView().moveTo(1);
+
+        // Then: exception is thrown
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyConsentString() {
+        // Given: batch with empty consent string
+        final List<String> consentStrings = Arrays.asList(BIT_FIELD_STRING, "");
+
+        // When: batch is decoded
+        VendorConsentBatch.fromBase64Strings(consentStrings);
+
+        // Then: exception is thrown
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnknownVersion() {
+        // Given: consent bytes with version 2
+        final byte[] bytes = VendorConsentDecoder.fromBase64String(BIT_FIELD_STRING).toByteArray().clone();
+        bytes[0] = (byte) 0x08;
+
+        // When: batch is created
+        VendorConsentBatch.fromByteArrays(Collections.singletonList(bytes));
+
+        // Then: exception is thrown
+    }
+}
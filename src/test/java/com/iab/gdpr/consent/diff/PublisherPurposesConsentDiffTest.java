@@ -0,0 +1,61 @@
+package com.iab.gdpr.consent.diff;
+
+import com.iab.gdpr.consent.PublisherPurposesConsent;
+import com.iab.gdpr.consent.implementation.v1.PublisherPurposesConsentBuilder;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.*;
+
+public class PublisherPurposesConsentDiffTest {
+
+    private static PublisherPurposesConsent consent(Integer[] purposeIds, Integer[] customPurposeIds) {
+        return new PublisherPurposesConsentBuilder()
+                .withConsentRecordCreatedOn(Instant.EPOCH)
+                .withConsentRecordLastUpdatedOn(Instant.EPOCH)
+                .withConsentLanguage("EN")
+                .withVendorListVersion(1)
+                .withPublisherPurposesListVersion(1)
+                .withAllowedPurposeIds(new HashSet<>(Arrays.asList(purposeIds)))
+                .withCustomAllowedPurposeIds(new HashSet<>(Arrays.asList(customPurposeIds)))
+                .build();
+    }
+
+    @Test
+    public void testDiff() {
+        // Given: two versions with changed standard and custom purposes, more than 32 custom purposes
+        final PublisherPurposesConsent before = consent(new Integer[]{1, 2}, IntStream.rangeClosed(1, 40).boxed().toArray(Integer[]::new));
+        final PublisherPurposesConsent after = consent(new Integer[]{2, 4}, IntStream.rangeClosed(1, 50).boxed().toArray(Integer[]::new));
+
+        // When: consents are compared
+        final PublisherPurposesConsentDiff diff = PublisherPurposesConsentDiff.of(before, after);
+
+        // Then: masks match individual purpose checks
+        assertFalse(diff.isEmpty());
+        IntStream.rangeClosed(1, 24).forEach(id -> {
+            assertThat("granted " + id, (diff.getGrantedPurposesMask() & (1 << (id - 1))) != 0, is(after.isPurposeAllowed(id) && !before.isPurposeAllowed(id)));
+            assertThat("revoked " + id, (diff.getRevokedPurposesMask() & (1 << (id - 1))) != 0, is(before.isPurposeAllowed(id) && !after.isPurposeAllowed(id)));
+        });
+        IntStream.rangeClosed(1, 64).forEach(id -> {
+            assertThat("granted custom " + id, (diff.getGrantedCustomPurposesMask() & (1L << (id - 1))) != 0, is(after.isCustomPurposeAllowed(id) && !before.isCustomPurposeAllowed(id)));
+            assertThat("revoked custom " + id, (diff.getRevokedCustomPurposesMask() & (1L << (id - 1))) != 0, is(before.isCustomPurposeAllowed(id) && !after.isCustomPurposeAllowed(id)));
+        });
+        assertThat(diff.grantedCustomPurposeIds().nextInt(), is(41));
+        assertFalse(diff.revokedCustomPurposeIds().hasNext());
+    }
+
+    @Test
+    public void testSameConsent() {
+        // Given: same consent twice
+        final PublisherPurposesConsent consent = consent(new Integer[]{1}, new Integer[]{2});
+
+        // Then: diff is empty
+        assertTrue(PublisherPurposesConsentDiff.of(consent, consent).isEmpty());
+        assertFalse(PublisherPurposesConsentDiff.of(consent, consent).grantedCustomPurposeIds().hasNext());
+    }
+}
@@ -0,0 +1,74 @@
+package com.iab.gdpr.consent.diff;
+
+import com.iab.gdpr.consent.VendorConsent;
+import com.iab.gdpr.consent.implementation.v1.CompactVendorConsent;
+import com.iab.gdpr.consent.range.SingleRangeEntry;
+import com.iab.gdpr.consent.range.StartEndRangeEntry;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+import static com.iab.gdpr.util.Utils.vendorConsentBuilder;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.*;
+
+public class VendorConsentDiffTest {
+
+    private static List<Integer> toList(PrimitiveIterator.OfInt iterator) {
+        final List<Integer> ids = new ArrayList<>();
+        iterator.forEachRemaining((int id) -> ids.add(id));
+        return ids;
+    }
+
+    @Test
+    public void testDiff() {
+        // Given: old bit field consent and new range consent with higher max vendor ID
+        final VendorConsent before = vendorConsentBuilder(100, 1, 2, 3)
+                .withVendorEncodingType(0)
+                .withBitField(new HashSet<>(Arrays.asList(1, 5, 64, 65, 100)))
+                .build();
+        final VendorConsent after = vendorConsentBuilder(200, 1, 3, 5)
+                .withVendorEncodingType(1)
+                .withRangeEntries(Arrays.asList(new SingleRangeEntry(5), new StartEndRangeEntry(60, 70), new SingleRangeEntry(200)))
+                .build();
+
+        // When: consents are compared
+        final VendorConsentDiff diff = VendorConsentDiff.of(before, after);
+
+        // Then: granted and revoked vendors and purposes are reported
+        assertFalse(diff.isEmpty());
+        assertThat(toList(diff.grantedVendorIds()), is(Arrays.asList(60, 61, 62, 63, 66, 67, 68, 69, 70, 200)));
+        assertThat(toList(diff.revokedVendorIds()), is(Arrays.asList(1, 100)));
+        assertThat(diff.getGrantedVendorCount(), is(10));
+        assertTrue(diff.isVendorRevoked(100));
+        assertFalse(diff.isVendorGranted(5));
+        assertThat(diff.getGrantedPurposesMask(), is(0b10000));
+        assertThat(toList(diff.revokedPurposeIds()), is(Arrays.asList(2)));
+
+        // And: reversed comparison swaps granted and revoked
+        final VendorConsentDiff reversed = VendorConsentDiff.of(CompactVendorConsent.freeze(after), before);
+        assertThat(reversed.getGrantedVendorWords(), is(diff.getRevokedVendorWords()));
+        assertThat(reversed.getRevokedPurposesMask(), is(diff.getGrantedPurposesMask()));
+    }
+
+    @Test
+    public void testSameConsent() {
+        // Given: same consent in two encodings
+        final VendorConsent bitField = vendorConsentBuilder(10, 1)
+                .withVendorEncodingType(0)
+                .withBitField(new HashSet<>(Arrays.asList(2, 3, 4)))
+                .build();
+        final VendorConsent range = vendorConsentBuilder(10, 1)
+                .withVendorEncodingType(1)
+                .withRangeEntries(Arrays.asList(new StartEndRangeEntry(2, 4)))
+                .build();
+
+        // Then: diff is empty
+        assertTrue(VendorConsentDiff.of(bitField, range).isEmpty());
+        assertFalse(VendorConsentDiff.of(bitField, range).grantedVendorIds().hasNext());
+    }
+}
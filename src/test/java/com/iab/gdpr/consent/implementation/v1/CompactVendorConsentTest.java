@@ -0,0 +1,222 @@
+package com.iab.gdpr.consent.implementation.v1;
+
+import com.iab.gdpr.Bits;
+import com.iab.gdpr.GdprConstants;
+import com.iab.gdpr.consent.VendorConsent;
+import com.iab.gdpr.consent.VendorConsentDecoder;
+import com.iab.gdpr.consent.VendorConsentEncoder;
+import com.iab.gdpr.consent.range.SingleRangeEntry;
+import com.iab.gdpr.consent.range.StartEndRangeEntry;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.*;
+
+public class CompactVendorConsentTest {
+
+    private static final Instant NOW = LocalDateTime.of(2018, 6, 4, 12, 30, 0).toInstant(ZoneOffset.UTC);
+
+    private static VendorConsentBuilder builder() {
+        return new VendorConsentBuilder()
+                .withConsentRecordCreatedOn(NOW)
+                .withConsentRecordLastUpdatedOn(NOW.plusSeconds(60))
+                .withCmpID(15)
+                .withCmpVersion(5)
+                .withConsentScreenID(18)
+                .withConsentLanguage("EN")
+                .withVendorListVersion(150)
+                .withAllowedPurposeIds(new HashSet<>(Arrays.asList(1, 2, 24)));
+    }
+
+    private static void assertSameValues(VendorConsent expected, VendorConsent actual) {
+        assertThat(actual.getVersion(), is(expected.getVersion()));
+        assertThat(actual.getConsentRecordCreated(), is(expected.getConsentRecordCreated()));
+        assertThat(actual.getConsentRecordLastUpdated(), is(expected.getConsentRecordLastUpdated()));
+        assertThat(actual.getCmpId(), is(expected.getCmpId()));
+        assertThat(actual.getCmpVersion(), is(expected.getCmpVersion()));
+        assertThat(actual.getConsentScreen(), is(expected.getConsentScreen()));
+        assertThat(actual.getConsentLanguage(), is(expected.getConsentLanguage()));
+        assertThat(actual.getVendorListVersion(), is(expected.getVendorListVersion()));
+        assertThat(actual.getAllowedPurposesBits(), is(expected.getAllowedPurposesBits()));
+        assertThat(actual.getAllowedPurposeIds(), is(expected.getAllowedPurposeIds()));
+        assertThat(actual.getAllowedPurposes(), is(expected.getAllowedPurposes()));
+        assertThat(actual.getMaxVendorId(), is(expected.getMaxVendorId()));
+        assertThat(actual.getAllowedVendorIds(), is(expected.getAllowedVendorIds()));
+        for (int vendorId = 0; vendorId <= expected.getMaxVendorId() + 1; vendorId++) {
+            assertThat(actual.isVendorAllowed(vendorId), is(expected.isVendorAllowed(vendorId)));
+        }
+    }
+
+    @Test
+    public void testFreezeBitField() {
+        // Given: decoded bit field consent with many allowed vendors
+        final VendorConsent vendorConsent = VendorConsentDecoder.fromBase64String("BOOlLqOOOlLqTABABAENAk-AAAAXx7_______9______9uz_Gv_r_f__3nW8_39P3g_7_O3_7m_-zzV48_lrQV1yPAUCgA");
+
+        // When: consent is frozen
+        final CompactVendorConsent compact = CompactVendorConsent.freeze(vendorConsent);
+
+        // Then: all values are retained
+        assertSameValues(vendorConsent, compact);
+
+        // And: original bytes are returned
+        assertArrayEquals(vendorConsent.toByteArray(), compact.toByteArray());
+    }
+
+    @Test
+    public void testFreezeSparseHighMaxVendorId() {
+        // Given: bit field consent with large max vendor ID and only a few allowed vendors
+        final Set<Integer> allowedVendors = new HashSet<>(Arrays.asList(3, 700, 9000));
+        final ByteBufferBackedVendorConsent vendorConsent = (ByteBufferBackedVendorConsent) builder()
+                .withMaxVendorId(10000)
+                .withVendorEncodingType(0)
+                .withBitField(allowedVendors)
+                .build();
+
+        // When: consent is frozen
+        final CompactVendorConsent compact = vendorConsent.freeze();
+
+        // Then: all values are retained
+        assertSameValues(vendorConsent, compact);
+
+        // And: compact form is much smaller than the byte buffer backed one
+        assertThat(compact.estimatedRetainedBytes(), is(lessThan(vendorConsent.estimatedRetainedBytes() / 10)));
+
+        // And: bit field encoding is returned
+        assertArrayEquals(vendorConsent.toByteArray(), compact.toByteArray());
+    }
+
+    @Test
+    public void testFreezeRangeWithDefaultConsent() {
+        // Given: range consent where almost all vendors are allowed
+        final VendorConsent vendorConsent = builder()
+                .withMaxVendorId(5000)
+                .withVendorEncodingType(1)
+                .withDefaultConsent(true)
+                .withRangeEntries(Arrays.asList(new SingleRangeEntry(1), new StartEndRangeEntry(10, 20), new SingleRangeEntry(5000)))
+                .build();
+
+        // When: consent is frozen
+        final CompactVendorConsent compact = CompactVendorConsent.freeze(vendorConsent);
+
+        // Then: all values are retained
+        assertSameValues(vendorConsent, compact);
+        assertArrayEquals(vendorConsent.toByteArray(), compact.toByteArray());
+    }
+
+    @Test
+    public void testFreezeIntervals() {
+        // Given: bit field consent with few long runs of allowed vendors
+        final Set<Integer> allowedVendors = IntStream.concat(IntStream.rangeClosed(1, 400), IntStream.rangeClosed(900, 1500))
+                .boxed().collect(Collectors.toSet());
+        final VendorConsent vendorConsent = builder()
+                .withMaxVendorId(2000)
+                .withVendorEncodingType(0)
+                .withBitField(allowedVendors)
+                .build();
+
+        // When: consent is frozen
+        final CompactVendorConsent compact = CompactVendorConsent.freeze(vendorConsent);
+
+        // Then: all values are retained
+        assertSameValues(vendorConsent, compact);
+        assertArrayEquals(vendorConsent.toByteArray(), compact.toByteArray());
+    }
+
+    @Test
+    public void testToByteArrayKeepsOriginalEncoding() {
+        // Given: range consent with a single allowed vendor, shorter as bit field
+        final String consentString = VendorConsentEncoder.toBase64String(builder()
+                .withMaxVendorId(10)
+                .withVendorEncodingType(1)
+                .withRangeEntries(Arrays.asList(new SingleRangeEntry(3)))
+                .build());
+
+        // When: consent is frozen
+        final CompactVendorConsent compact = CompactVendorConsent.freeze(VendorConsentDecoder.fromBase64String(consentString));
+
+        // Then: consent string is encoded unchanged
+        assertThat(VendorConsentEncoder.toBase64String(compact), is(consentString));
+        assertEquals(compact, CompactVendorConsent.freeze(VendorConsentDecoder.fromBase64String(consentString)));
+
+        // And: returned array is a new one
+        compact.toByteArray()[0] = 0;
+        assertThat(VendorConsentEncoder.toBase64String(compact), is(consentString));
+    }
+
+    @Test
+    public void testToByteArrayMergesRangeEntries() {
+        // Given: range consent with adjacent entries
+        final VendorConsent vendorConsent = builder()
+                .withMaxVendorId(10)
+                .withVendorEncodingType(1)
+                .withRangeEntries(Arrays.asList(new SingleRangeEntry(4), new SingleRangeEntry(3)))
+                .build();
+
+        // When: consent is frozen and encoded
+        final CompactVendorConsent compact = CompactVendorConsent.freeze(vendorConsent);
+        final byte[] bytes = compact.toByteArray();
+
+        // Then: entries are merged into one and values are unchanged
+        assertThat(new Bits(bytes).getInt(GdprConstants.NUM_ENTRIES_OFFSET, GdprConstants.NUM_ENTRIES_SIZE), is(1));
+        assertSameValues(vendorConsent, VendorConsentDecoder.fromByteArray(bytes));
+        assertEquals(compact, CompactVendorConsent.freeze(VendorConsentDecoder.fromByteArray(bytes)));
+    }
+
+    @Test
+    public void testFreezeNoVendors() {
+        // Given: consent with max vendor ID 0
+        final byte[] bytes = builder()
+                .withMaxVendorId(1)
+                .withVendorEncodingType(1)
+                .withRangeEntries(Collections.emptyList())
+                .build()
+                .toByteArray();
+        new Bits(bytes).setInt(GdprConstants.MAX_VENDOR_ID_OFFSET, GdprConstants.MAX_VENDOR_ID_SIZE, 0);
+        final VendorConsent vendorConsent = VendorConsentDecoder.fromByteArray(bytes);
+
+        // When: consent is frozen
+        final CompactVendorConsent compact = CompactVendorConsent.freeze(vendorConsent);
+
+        // Then: no vendor is allowed and the same bytes are encoded
+        assertSameValues(vendorConsent, compact);
+        assertArrayEquals(bytes, compact.toByteArray());
+    }
+
+    @Test
+    public void testEquality() {
+        // Given: same vendors encoded with bit field and range encoding
+        final VendorConsent bitField = builder()
+                .withMaxVendorId(100)
+                .withVendorEncodingType(0)
+                .withBitField(new HashSet<>(Arrays.asList(10, 11, 12)))
+                .build();
+        final VendorConsent range = builder()
+                .withMaxVendorId(100)
+                .withVendorEncodingType(1)
+                .withRangeEntries(Arrays.asList(new StartEndRangeEntry(10, 12)))
+                .build();
+
+        // When: both are frozen
+        final CompactVendorConsent first = CompactVendorConsent.freeze(bitField);
+        final CompactVendorConsent second = CompactVendorConsent.freeze(range);
+
+        // Then: compact forms are equal only when they encode into the same bytes
+        assertEquals(first, CompactVendorConsent.freeze(VendorConsentDecoder.fromByteArray(bitField.toByteArray())));
+        assertThat(first.hashCode(), is(CompactVendorConsent.freeze(bitField).hashCode()));
+        assertNotEquals(first, second);
+
+        // And: freezing compact form returns the same instance
+        assertSame(first, CompactVendorConsent.freeze(first));
+    }
+}
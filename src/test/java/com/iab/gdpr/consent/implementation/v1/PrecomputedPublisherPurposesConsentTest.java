@@ -0,0 +1,115 @@
+package com.iab.gdpr.consent.implementation.v1;
+
+import com.iab.gdpr.Bits;
+import com.iab.gdpr.consent.PublisherPurposesConsent;
+import com.iab.gdpr.exception.VendorConsentParseException;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.iab.gdpr.GdprConstants.CUSTOM_PURPOSES_BITFIELD_OFFSET;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.*;
+
+public class PrecomputedPublisherPurposesConsentTest {
+
+    private static PublisherPurposesConsent build(Set<Integer> customPurposes) {
+        final Instant now = LocalDateTime.of(2018, 6, 4, 0, 0, 0).toInstant(ZoneOffset.UTC);
+        return new PublisherPurposesConsentBuilder()
+                .withConsentRecordCreatedOn(now)
+                .withConsentRecordLastUpdatedOn(now)
+                .withCmpID(1)
+                .withCmpVersion(2)
+                .withConsentScreenID(3)
+                .withConsentLanguage("EN")
+                .withVendorListVersion(10)
+                .withPublisherPurposesListVersion(4)
+                .withAllowedPurposeIds(new HashSet<>(Arrays.asList(1, 3, 24)))
+                .withCustomAllowedPurposeIds(customPurposes)
+                .build();
+    }
+
+    @Test
+    public void testSameValuesAsByteBufferBackedConsent() {
+        // Given: publisher purposes consent with few custom purposes
+        final PublisherPurposesConsent expected = build(new HashSet<>(Arrays.asList(1, 2, 3)));
+
+        // When: precomputed consent is created
+        final PrecomputedPublisherPurposesConsent consent = PrecomputedPublisherPurposesConsent.of(expected);
+
+        // Then: all values match byte buffer backed implementation
+        assertThat(consent.getVersion(), is(expected.getVersion()));
+        assertThat(consent.getConsentRecordCreated(), is(expected.getConsentRecordCreated()));
+        assertThat(consent.getCmpId(), is(expected.getCmpId()));
+        assertThat(consent.getCmpVersion(), is(expected.getCmpVersion()));
+        assertThat(consent.getConsentScreen(), is(expected.getConsentScreen()));
+        assertThat(consent.getConsentLanguage(), is(expected.getConsentLanguage()));
+        assertThat(consent.getVendorListVersion(), is(expected.getVendorListVersion()));
+        assertThat(consent.getPublisherPurposesVersion(), is(expected.getPublisherPurposesVersion()));
+        assertThat(consent.getAllowedPurposeIds(), is(expected.getAllowedPurposeIds()));
+        assertThat(consent.getAllowedPurposes(), is(expected.getAllowedPurposes()));
+        assertThat(consent.getAllowedPurposesBits(), is(expected.getAllowedPurposesBits()));
+        assertThat(consent.getCustomAllowedPurposeIds(), is(expected.getCustomAllowedPurposeIds()));
+        assertThat(consent.getCustomAllowedPurposesBits(), is(expected.getCustomAllowedPurposesBits()));
+        assertThat(consent.getCustomAllowedPurposesBitsAsLong(), is(7L));
+        for (int purposeId = 0; purposeId <= 65; purposeId++) {
+            assertThat(consent.isPurposeAllowed(purposeId), is(expected.isPurposeAllowed(purposeId)));
+            assertThat(consent.isCustomPurposeAllowed(purposeId), is(expected.isCustomPurposeAllowed(purposeId)));
+            if (purposeId >= 1 && purposeId <= 24)
+                assertThat((consent.getAllowedPurposesMask() & (1 << (purposeId - 1))) != 0, is(expected.isPurposeAllowed(purposeId)));
+        }
+    }
+
+    @Test
+    public void testMoreThan32CustomPurposes() {
+        // Given: publisher purposes consent with 40 custom purposes where custom purpose 2 is not allowed
+        final PublisherPurposesConsent built = build(IntStream.rangeClosed(1, 40).boxed().collect(Collectors.toSet()));
+        final Bits bits = new Bits(built.toByteArray());
+        bits.unsetBit(CUSTOM_PURPOSES_BITFIELD_OFFSET + 1);
+
+        // When: precomputed consent is created
+        final PrecomputedPublisherPurposesConsent consent = new PrecomputedPublisherPurposesConsent(bits);
+
+        // Then: all custom purposes are available through long accessors
+        assertThat(consent.getNumberCustomPurposes(), is(40));
+        assertThat(consent.getCustomAllowedPurposesBitsAsLong(), is(((1L << 40) - 1) & ~(1L << 38)));
+        assertThat(consent.getCustomAllowedPurposesMask(), is(((1L << 40) - 1) & ~(1L << 1)));
+        assertTrue(consent.isCustomPurposeAllowed(1));
+        assertFalse(consent.isCustomPurposeAllowed(2));
+        assertTrue(consent.isCustomPurposeAllowed(40));
+        assertFalse(consent.isCustomPurposeAllowed(41));
+        assertThat(consent.getCustomAllowedPurposeIds().size(), is(39));
+    }
+
+    @Test(expected = VendorConsentParseException.class)
+    public void testIntCustomPurposeBitsOverflow() {
+        // Given: publisher purposes consent with 40 custom purposes
+        final PublisherPurposesConsent built = build(IntStream.rangeClosed(1, 40).boxed().collect(Collectors.toSet()));
+
+        // When: int custom purposes bits are requested
+        PrecomputedPublisherPurposesConsent.of(built).getCustomAllowedPurposesBits();
+
+        // Then: exception is thrown
+    }
+
+    @Test
+    public void testEquality() {
+        // Given: two publisher purposes consents with the same bytes
+        final PublisherPurposesConsent built = build(new HashSet<>(Arrays.asList(1, 2)));
+
+        // When: precomputed consents are created
+        final PrecomputedPublisherPurposesConsent first = new PrecomputedPublisherPurposesConsent(new Bits(built.toByteArray()));
+        final PrecomputedPublisherPurposesConsent second = PrecomputedPublisherPurposesConsent.of(built);
+
+        // Then: they are equal
+        assertEquals(first, second);
+        assertThat(first.hashCode(), is(second.hashCode()));
+    }
+}
@@ -1,5 +1,6 @@
 package com.iab.gdpr.consent.implementation.v1;
 
+import com.iab.gdpr.consent.PublisherPurposesConsent;
 import com.iab.gdpr.exception.VendorConsentCreateException;
 import org.junit.Before;
 import org.junit.Test;
@@ -11,6 +12,9 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
 public class PublisherPurposesConsentBuilderTest {
 
     private Instant now;
@@ -76,4 +80,39 @@ public class PublisherPurposesConsentBuilderTest {
 
         // Then: exception is thrown
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testPurposeMasks() {
+        // Given: builder with header fields
+        final PublisherPurposesConsentBuilder builder = new PublisherPurposesConsentBuilder()
+                .withConsentRecordCreatedOn(now)
+                .withConsentRecordLastUpdatedOn(now)
+                .withConsentLanguage("EN")
+                .withVendorListVersion(1);
+
+        // When: purposes are given as sets and as masks
+        final byte[] fromSets = builder
+                .withAllowedPurposeIds(new HashSet<>(Arrays.asList(1, 3, 24)))
+                .withCustomAllowedPurposeIds(new HashSet<>(Arrays.asList(1, 2, 3, 4, 5)))
+                .build().toByteArray();
+        final PublisherPurposesConsent fromMasks = builder
+                .withAllowedPurposesMask(0b101 | 1 << 23)
+                .withCustomAllowedPurposesMask(0b11111L)
+                .build();
+
+        // Then: same consent is built
+        assertThat(fromMasks.toByteArray(), is(fromSets));
+        assertThat(fromMasks.isCustomPurposeAllowed(5), is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPurposesMask() {
+        // Given: mask with bit of purpose 25
+        final int mask = 1 << 24;
+
+        // When: passing mask to the builder
+        new PublisherPurposesConsentBuilder().withAllowedPurposesMask(mask);
+
+        // Then: exception is thrown
+    }
+}
@@ -1,27 +1,36 @@
 package com.iab.gdpr.consent.implementation.v1;
 
+import com.iab.gdpr.Bits;
 import com.iab.gdpr.Purpose;
 import com.iab.gdpr.consent.range.RangeEntry;
 import com.iab.gdpr.consent.range.SingleRangeEntry;
 import com.iab.gdpr.consent.range.StartEndRangeEntry;
 import com.iab.gdpr.consent.VendorConsent;
+import com.iab.gdpr.consent.VendorConsentDecoder;
 import com.iab.gdpr.exception.VendorConsentCreateException;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import static com.iab.gdpr.GdprConstants.*;
 import static com.iab.gdpr.Purpose.*;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class VendorConsentBuilderTest {
 
@@ -227,4 +236,251 @@ public class VendorConsentBuilderTest {
         assertFalse(vendorConsent.isVendorAllowed(50));
         assertFalse(vendorConsent.isVendorAllowed(240));
     }
-}
\ No newline at end of file
+
+    private VendorConsent buildWithAllowedVendorIds(int maxVendorId, Set<Integer> allowedVendorIds) {
+        return new VendorConsentBuilder()
+                .withConsentRecordCreatedOn(now)
+                .withConsentRecordLastUpdatedOn(now)
+                .withConsentLanguage("EN")
+                .withVendorListVersion(10)
+                .withMaxVendorId(maxVendorId)
+                .withAllowedVendorIds(allowedVendorIds)
+                .build();
+    }
+
+    private static void assertVendors(VendorConsent vendorConsent, int maxVendorId, Set<Integer> allowedVendorIds) {
+        for (int vendorId = 1; vendorId <= maxVendorId; vendorId++) {
+            assertThat(vendorConsent.isVendorAllowed(vendorId), is(allowedVendorIds.contains(vendorId)));
+        }
+    }
+
+    @Test
+    public void testAutomaticEncodingSelectsAllowedRanges() {
+        // Given: few allowed vendors out of many
+        final Set<Integer> allowedVendorIds = new HashSet<>(Arrays.asList(3, 100, 101, 102, 500));
+
+        // When: vendor consent is built with automatic encoding
+        final VendorConsent vendorConsent = buildWithAllowedVendorIds(600, allowedVendorIds);
+
+        // Then: ranges of allowed vendors are used
+        final Bits bits = new Bits(vendorConsent.toByteArray());
+        assertThat(bits.getInt(ENCODING_TYPE_OFFSET, ENCODING_TYPE_SIZE), is(VENDOR_ENCODING_RANGE));
+        assertFalse(bits.getBit(DEFAULT_CONSENT_OFFSET));
+        assertThat(bits.getInt(NUM_ENTRIES_OFFSET, NUM_ENTRIES_SIZE), is(3));
+        assertThat(vendorConsent.toByteArray().length, is((RANGE_ENTRY_OFFSET + 17 + 33 + 17 + 7) / 8));
+        assertVendors(vendorConsent, 600, allowedVendorIds);
+    }
+
+    @Test
+    public void testAutomaticEncodingSelectsDeniedRanges() {
+        // Given: all but few vendors allowed
+        final Set<Integer> allowedVendorIds = IntStream.rangeClosed(1, 600)
+                .filter(vendorId -> vendorId != 7 && vendorId != 300)
+                .boxed()
+                .collect(Collectors.toSet());
+
+        // When: vendor consent is built with automatic encoding
+        final VendorConsent vendorConsent = buildWithAllowedVendorIds(600, allowedVendorIds);
+
+        // Then: ranges of denied vendors with default consent are used
+        final Bits bits = new Bits(vendorConsent.toByteArray());
+        assertThat(bits.getInt(ENCODING_TYPE_OFFSET, ENCODING_TYPE_SIZE), is(VENDOR_ENCODING_RANGE));
+        assertTrue(bits.getBit(DEFAULT_CONSENT_OFFSET));
+        assertThat(bits.getInt(NUM_ENTRIES_OFFSET, NUM_ENTRIES_SIZE), is(2));
+        assertVendors(vendorConsent, 600, allowedVendorIds);
+    }
+
+    @Test
+    public void testAutomaticEncodingSelectsBitField() {
+        // Given: every other vendor allowed
+        final Set<Integer> allowedVendorIds = IntStream.rangeClosed(1, 100)
+                .filter(vendorId -> vendorId % 2 == 0)
+                .boxed()
+                .collect(Collectors.toSet());
+
+        // When: vendor consent is built with automatic encoding
+        final VendorConsent vendorConsent = buildWithAllowedVendorIds(100, allowedVendorIds);
+
+        // Then: bit field is used
+        final Bits bits = new Bits(vendorConsent.toByteArray());
+        assertThat(bits.getInt(ENCODING_TYPE_OFFSET, ENCODING_TYPE_SIZE), is(VENDOR_ENCODING_BIT_FIELD));
+        assertThat(vendorConsent.toByteArray().length, is((VENDOR_BITFIELD_OFFSET + 100 + 7) / 8));
+        assertVendors(vendorConsent, 100, allowedVendorIds);
+    }
+
+    @Test
+    public void testAutomaticEncodingWithoutAllowedVendors() {
+        // Given: no allowed vendors
+        final Set<Integer> allowedVendorIds = new HashSet<>();
+
+        // When: vendor consent is built with automatic encoding
+        final VendorConsent vendorConsent = buildWithAllowedVendorIds(1000, allowedVendorIds);
+
+        // Then: empty range section is used
+        assertThat(vendorConsent.toByteArray().length, is((RANGE_ENTRY_OFFSET + 7) / 8));
+        assertVendors(vendorConsent, 1000, allowedVendorIds);
+    }
+
+    @Test
+    public void testEncodedSizeWithAutomaticEncoding() {
+        // Given: builder with automatic encoding over explicit bit field values
+        final Set<Integer> allowedVendorIds = new HashSet<>(Arrays.asList(3, 100, 101, 102, 500));
+        final VendorConsentBuilder builder = new VendorConsentBuilder()
+                .withConsentRecordCreatedOn(now)
+                .withConsentRecordLastUpdatedOn(now)
+                .withConsentLanguage("EN")
+                .withVendorListVersion(10)
+                .withMaxVendorId(600)
+                .withVendorEncodingType(VENDOR_ENCODING_BIT_FIELD)
+                .withBitField(new int[]{1})
+                .withAllowedVendorIds(allowedVendorIds);
+
+        // When: size is computed and consent is built into a buffer
+        final int size = builder.getEncodedSize();
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        final int written = builder.buildInto(buffer);
+
+        // Then: size is the one of the selected range encoding and matches the bytes written
+        assertThat(size, is((RANGE_ENTRY_OFFSET + 17 + 33 + 17 + 7) / 8));
+        assertThat(builder.getEncodedSize(), is(size));
+        assertThat(written, is(size));
+        assertThat(buffer.array(), is(builder.build().toByteArray()));
+        assertVendors(VendorConsentDecoder.fromByteArray(buffer.array()), 600, allowedVendorIds);
+    }
+
+    @Test
+    public void testDerivedRangeEntries() {
+        // Given: builder with header fields
+        final VendorConsentBuilder builder = new VendorConsentBuilder()
+                .withConsentRecordCreatedOn(now)
+                .withConsentRecordLastUpdatedOn(now)
+                .withConsentLanguage("EN")
+                .withVendorListVersion(10)
+                .withMaxVendorId(100)
+                .withVendorEncodingType(VENDOR_ENCODING_RANGE);
+        final BitSet vendorIds = new BitSet();
+        vendorIds.set(5, 11);
+        vendorIds.set(50);
+
+        // When: range entries are derived from array, bit set and unsorted overlapping list
+        final byte[] fromArray = builder.withRangeEntries(new int[]{5, 6, 7, 8, 9, 10, 50}).build().toByteArray();
+        final byte[] fromBitSet = builder.withRangeEntries(vendorIds).build().toByteArray();
+        final VendorConsent fromList = builder.withNormalizedRangeEntries(Arrays.asList(
+                new SingleRangeEntry(50), new StartEndRangeEntry(8, 10), new StartEndRangeEntry(5, 8))).build();
+
+        // Then: all give the same two entries
+        assertThat(fromBitSet, is(fromArray));
+        assertThat(fromList.toByteArray(), is(fromArray));
+        assertThat(new Bits(fromArray).getInt(NUM_ENTRIES_OFFSET, NUM_ENTRIES_SIZE), is(2));
+        for (int vendorId = 1; vendorId <= 100; vendorId++) {
+            assertThat(fromList.isVendorAllowed(vendorId), is(vendorIds.get(vendorId)));
+        }
+    }
+
+    @Test
+    public void testPrimitiveBitField() {
+        // Given: builder with header fields and allowed vendors crossing word boundaries
+        final VendorConsentBuilder builder = new VendorConsentBuilder()
+                .withConsentRecordCreatedOn(now)
+                .withConsentRecordLastUpdatedOn(now)
+                .withConsentLanguage("EN")
+                .withVendorListVersion(10)
+                .withMaxVendorId(150);
+        final int[] vendorIds = {1, 8, 9, 63, 64, 65, 128, 129, 150};
+        final Set<Integer> vendorIdSet = Arrays.stream(vendorIds).boxed().collect(Collectors.toSet());
+        final BitSet vendorIdBitSet = new BitSet();
+        Arrays.stream(vendorIds).forEach(vendorIdBitSet::set);
+        final long[] words = new long[3];
+        Arrays.stream(vendorIds).forEach(vendorId -> words[(vendorId - 1) >>> 6] |= 1L << (vendorId - 1));
+
+        // When: bit field and purposes are given as sets, arrays, bit set, words and mask
+        final VendorConsent fromSet = builder.withBitField(vendorIdSet)
+                .withAllowedPurposeIds(new HashSet<>(Arrays.asList(2, 5))).build();
+        final byte[] fromArray = builder.withBitField(vendorIds).build().toByteArray();
+        final byte[] fromBitSet = builder.withBitField(vendorIdBitSet).build().toByteArray();
+        final byte[] fromWords = builder.withBitFieldWords(words).withAllowedPurposesMask(0b10010).build().toByteArray();
+
+        // Then: same consent is built
+        assertThat(fromArray, is(fromSet.toByteArray()));
+        assertThat(fromBitSet, is(fromSet.toByteArray()));
+        assertThat(fromWords, is(fromSet.toByteArray()));
+        assertThat(fromSet.getAllowedPurposeIds(), is(new HashSet<>(Arrays.asList(2, 5))));
+        for (int vendorId = 1; vendorId <= 150; vendorId++) {
+            assertThat(fromSet.isVendorAllowed(vendorId), is(vendorIdSet.contains(vendorId)));
+        }
+    }
+
+    @Test
+    public void testInvalidBitFieldVendorIds() {
+        // Given: vendor IDs outside of 1..65535
+        final int[] invalidVendorIds = {0, -1, 1 << MAX_VENDOR_ID_SIZE, Integer.MAX_VALUE};
+
+        for (int invalidVendorId : invalidVendorIds) {
+            // When: bit field is set through any of the overloads
+            // Then: vendor ID is rejected
+            final VendorConsentBuilder builder = new VendorConsentBuilder();
+            assertInvalidVendorId(() -> builder.withBitField(new HashSet<>(Arrays.asList(3, invalidVendorId))));
+            assertInvalidVendorId(() -> builder.withBitField(new int[]{3, invalidVendorId}));
+            if (invalidVendorId >= 0 && invalidVendorId <= 1 << MAX_VENDOR_ID_SIZE) {
+                final BitSet bitSet = new BitSet();
+                bitSet.set(3);
+                bitSet.set(invalidVendorId);
+                assertInvalidVendorId(() -> builder.withBitField(bitSet));
+            }
+        }
+        final long[] words = new long[(1 << MAX_VENDOR_ID_SIZE) / 64];
+        words[words.length - 1] = Long.MIN_VALUE;
+        assertInvalidVendorId(() -> new VendorConsentBuilder().withBitFieldWords(words));
+
+        // And: largest vendor ID is accepted
+        words[words.length - 1] = Long.MIN_VALUE >>> 1;
+        new VendorConsentBuilder().withBitFieldWords(words).withBitField(new int[]{(1 << MAX_VENDOR_ID_SIZE) - 1});
+    }
+
+    private static void assertInvalidVendorId(Runnable runnable) {
+        try {
+            runnable.run();
+            fail("Invalid vendor ID accepted");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), startsWith("Invalid vendor ID:"));
+        }
+    }
+
+    @Test
+    public void testBuildInto() {
+        // Given: builder with range encoding
+        final VendorConsentBuilder builder = new VendorConsentBuilder()
+                .withConsentRecordCreatedOn(now)
+                .withConsentRecordLastUpdatedOn(now)
+                .withConsentLanguage("EN")
+                .withVendorListVersion(10)
+                .withCmpID(7)
+                .withMaxVendorId(300)
+                .withAllowedPurposes(new HashSet<>(Arrays.asList(STORAGE_AND_ACCESS, MEASUREMENT)))
+                .withVendorEncodingType(VENDOR_ENCODING_RANGE)
+                .withRangeEntries(new int[]{3, 4, 5, 200});
+        final byte[] expected = builder.build().toByteArray();
+
+        // When: consent is built into arrays and buffers already holding other bytes
+        final byte[] array = new byte[builder.getEncodedSize() + 10];
+        Arrays.fill(array, (byte) -1);
+        final int written = builder.buildInto(array, 5);
+        final ByteBuffer heap = ByteBuffer.allocate(64);
+        heap.put((byte) -1);
+        builder.buildInto(heap);
+        final ByteBuffer direct = ByteBuffer.allocateDirect(64);
+        builder.buildInto(direct);
+
+        // Then: same bytes are written at the offset and surrounding bytes are untouched
+        assertThat(written, is(expected.length));
+        assertThat(Arrays.copyOfRange(array, 5, 5 + written), is(expected));
+        assertThat(array[4], is((byte) -1));
+        assertThat(array[5 + written], is((byte) -1));
+        assertThat(heap.position(), is(1 + expected.length));
+        assertThat(Arrays.copyOfRange(heap.array(), 1, 1 + expected.length), is(expected));
+        assertThat(direct.position(), is(expected.length));
+        final byte[] directBytes = new byte[expected.length];
+        ((ByteBuffer) direct.flip()).get(directBytes);
+        assertThat(directBytes, is(expected));
+    }
+}
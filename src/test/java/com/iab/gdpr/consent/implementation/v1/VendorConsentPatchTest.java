@@ -0,0 +1,177 @@
+package com.iab.gdpr.consent.implementation.v1;
+
+import com.iab.gdpr.Bits;
+import com.iab.gdpr.consent.VendorConsent;
+import com.iab.gdpr.consent.VendorConsentDecoder;
+import com.iab.gdpr.consent.VendorConsentEncoder;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.iab.gdpr.GdprConstants.*;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class VendorConsentPatchTest {
+
+    private static final Instant NOW = LocalDateTime.of(2018, 6, 4, 12, 30, 0).toInstant(ZoneOffset.UTC);
+
+    private static VendorConsentBuilder builder() {
+        return new VendorConsentBuilder()
+                .withConsentRecordCreatedOn(NOW)
+                .withConsentRecordLastUpdatedOn(NOW)
+                .withCmpID(15)
+                .withCmpVersion(5)
+                .withConsentScreenID(18)
+                .withConsentLanguage("EN")
+                .withVendorListVersion(150)
+                .withAllowedPurposeIds(new HashSet<>(Arrays.asList(1, 2)));
+    }
+
+    private static void assertVendors(VendorConsent vendorConsent, int maxVendorId, Set<Integer> allowedVendorIds) {
+        assertThat(vendorConsent.getMaxVendorId(), is(maxVendorId));
+        for (int vendorId = 1; vendorId <= maxVendorId + 10; vendorId++) {
+            assertThat("vendor " + vendorId, vendorConsent.isVendorAllowed(vendorId), is(allowedVendorIds.contains(vendorId)));
+        }
+    }
+
+    @Test
+    public void testHeaderPatch() {
+        // Given: vendor consent
+        final VendorConsent original = builder().withMaxVendorId(10).withBitField(new HashSet<>(Arrays.asList(2, 3))).build();
+        final byte[] originalBytes = original.toByteArray().clone();
+        final Instant updated = NOW.plusSeconds(3600);
+
+        // When: header fields and purposes are patched
+        final VendorConsent patched = VendorConsentPatch.of(original)
+                .withConsentRecordLastUpdatedOn(updated)
+                .withCmpID(7)
+                .withConsentScreenID(3)
+                .withConsentLanguage("DE")
+                .withVendorListVersion(151)
+                .withPurposeAllowed(1, false)
+                .withPurposeAllowed(5, true)
+                .build();
+
+        // Then: same consent as built with new values is returned
+        final VendorConsent expected = builder()
+                .withConsentRecordLastUpdatedOn(updated)
+                .withCmpID(7)
+                .withConsentScreenID(3)
+                .withConsentLanguage("DE")
+                .withVendorListVersion(151)
+                .withAllowedPurposeIds(new HashSet<>(Arrays.asList(2, 5)))
+                .withMaxVendorId(10)
+                .withBitField(new HashSet<>(Arrays.asList(2, 3)))
+                .build();
+        assertThat(patched.toByteArray(), is(expected.toByteArray()));
+
+        // And: original is not modified
+        assertThat(original.toByteArray(), is(originalBytes));
+    }
+
+    @Test
+    public void testBitFieldPatch() {
+        // Given: bit field encoded consent
+        final VendorConsent original = builder().withMaxVendorId(20).withBitField(new HashSet<>(Arrays.asList(2, 3, 20))).build();
+
+        // When: vendors are changed, including one above max vendor ID
+        final VendorConsent patched = VendorConsentPatch.of(original)
+                .withVendorAllowed(3, false)
+                .withVendorAllowed(5, true)
+                .withVendorAllowed(70, true)
+                .build();
+
+        // Then: bits are flipped and bit field is extended
+        assertVendors(patched, 70, new HashSet<>(Arrays.asList(2, 5, 20, 70)));
+        assertThat(patched.toByteArray(), is(builder().withMaxVendorId(70)
+                .withBitField(new HashSet<>(Arrays.asList(2, 5, 20, 70))).build().toByteArray()));
+    }
+
+    @Test
+    public void testBitFieldPatchFallsBackToRebuild() {
+        // Given: bit field encoded consent
+        final VendorConsent original = builder().withMaxVendorId(20).withBitField(new HashSet<>(Arrays.asList(2, 3))).build();
+
+        // When: vendor far above max vendor ID is allowed
+        final VendorConsent patched = VendorConsentPatch.of(original).withVendorAllowed(3000, true).build();
+
+        // Then: consent is encoded again with the shorter range encoding instead of extending the bit field
+        assertVendors(patched, 3000, new HashSet<>(Arrays.asList(2, 3, 3000)));
+        assertThat(new Bits(patched.toByteArray()).getInt(ENCODING_TYPE_OFFSET, ENCODING_TYPE_SIZE), is(VENDOR_ENCODING_RANGE));
+        assertThat(patched.getCmpId(), is(15));
+    }
+
+    @Test
+    public void testRangePatch() {
+        // Given: range encoded consent of allowed vendors
+        final VendorConsent original = builder()
+                .withMaxVendorId(100)
+                .withVendorEncodingType(VENDOR_ENCODING_RANGE)
+                .withRangeEntries(new int[]{10, 11, 12, 13, 14, 50})
+                .build();
+
+        // When: vendor in a range is denied and vendors next to entries are allowed
+        final VendorConsent patched = VendorConsentPatch.of(original)
+                .withVendorAllowed(12, false)
+                .withVendorAllowed(49, true)
+                .withVendorAllowed(51, true)
+                .build();
+
+        // Then: range section is spliced
+        assertVendors(patched, 100, new HashSet<>(Arrays.asList(10, 11, 13, 14, 49, 50, 51)));
+        assertThat(new Bits(patched.toByteArray()).getInt(NUM_ENTRIES_OFFSET, NUM_ENTRIES_SIZE), is(3));
+    }
+
+    @Test
+    public void testRangePatchWithDefaultConsent() {
+        // Given: range encoded consent of denied vendors
+        final VendorConsent original = builder()
+                .withMaxVendorId(30)
+                .withVendorEncodingType(VENDOR_ENCODING_RANGE)
+                .withDefaultConsent(true)
+                .withRangeEntries(new int[]{5})
+                .build();
+
+        // When: vendors are changed, including one above max vendor ID
+        final VendorConsent patched = VendorConsentPatch.of(original)
+                .withVendorAllowed(5, true)
+                .withVendorAllowed(6, false)
+                .withVendorAllowed(40, true)
+                .build();
+
+        // Then: vendors between old and new max vendor ID stay denied
+        final Set<Integer> allowed = IntStream.rangeClosed(1, 30).filter(vendorId -> vendorId != 6).boxed().collect(Collectors.toSet());
+        allowed.add(40);
+        assertVendors(patched, 40, allowed);
+    }
+
+    @Test
+    public void testRangePatchFallsBackToRebuild() {
+        // Given: range encoded consent with every other vendor allowed, as many entries as range encoding holds
+        final int[] vendorIds = IntStream.rangeClosed(1, 4095).map(i -> i * 2).toArray();
+        final VendorConsent original = builder()
+                .withMaxVendorId(10000)
+                .withVendorEncodingType(VENDOR_ENCODING_RANGE)
+                .withRangeEntries(vendorIds)
+                .build();
+
+        // When: one more single vendor is allowed
+        final VendorConsent patched = VendorConsentPatch.of(original).withVendorAllowed(9001, true).build();
+
+        // Then: consent is encoded again and keeps the values
+        final Set<Integer> allowed = Arrays.stream(vendorIds).boxed().collect(Collectors.toSet());
+        allowed.add(9001);
+        assertVendors(patched, 10000, allowed);
+        assertThat(new Bits(patched.toByteArray()).getInt(ENCODING_TYPE_OFFSET, ENCODING_TYPE_SIZE), is(VENDOR_ENCODING_BIT_FIELD));
+        assertThat(patched.getCmpId(), is(15));
+        assertThat(VendorConsentDecoder.fromBase64String(VendorConsentEncoder.toBase64String(patched)).getAllowedVendorIds(), is(allowed));
+    }
+}
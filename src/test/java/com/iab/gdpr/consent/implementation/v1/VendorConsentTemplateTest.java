@@ -0,0 +1,84 @@
+package com.iab.gdpr.consent.implementation.v1;
+
+import com.iab.gdpr.consent.VendorConsent;
+import com.iab.gdpr.consent.VendorConsentEncoder;
+import com.iab.gdpr.exception.VendorConsentCreateException;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static com.iab.gdpr.GdprConstants.VENDOR_ENCODING_RANGE;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class VendorConsentTemplateTest {
+
+    private static final Instant NOW = LocalDateTime.of(2018, 6, 4, 12, 30, 0).toInstant(ZoneOffset.UTC);
+
+    private static VendorConsentBuilder builder(Instant created, Instant updated, int consentScreen) {
+        return new VendorConsentBuilder()
+                .withConsentRecordCreatedOn(created)
+                .withConsentRecordLastUpdatedOn(updated)
+                .withCmpID(15)
+                .withCmpVersion(5)
+                .withConsentScreenID(consentScreen)
+                .withConsentLanguage("EN")
+                .withVendorListVersion(150)
+                .withAllowedPurposeIds(new HashSet<>(Arrays.asList(1, 2, 24)))
+                .withMaxVendorId(300)
+                .withVendorEncodingType(VENDOR_ENCODING_RANGE)
+                .withRangeEntries(new int[]{1, 2, 3, 200});
+    }
+
+    @Test
+    public void testIssuedStringsMatchBuilder() {
+        // Given: template from prototype consent
+        final VendorConsentTemplate template = VendorConsentTemplate.of(builder(NOW, NOW, 1).build());
+
+        // When: strings are issued for other timestamps and screens
+        for (int i = 1; i <= 20; i++) {
+            final Instant created = NOW.plusMillis(i * 123_456_700L);
+            final Instant updated = created.plusSeconds(i * 37);
+            final int screen = i * 3 % 64;
+
+            // Then: they equal strings built from scratch
+            assertThat(template.toBase64String(created, updated),
+                    is(VendorConsentEncoder.toBase64String(builder(created, updated, 1).build())));
+            assertThat(template.toBase64String(created, updated, screen),
+                    is(VendorConsentEncoder.toBase64String(builder(created, updated, screen).build())));
+        }
+    }
+
+    @Test
+    public void testEncodeIntoArray() {
+        // Given: template and destination array
+        final VendorConsent prototype = builder(NOW, NOW, 1).build();
+        final VendorConsentTemplate template = VendorConsentTemplate.of(prototype);
+        final byte[] dst = new byte[template.encodedLength() + 2];
+        final Instant updated = NOW.plusSeconds(600);
+
+        // When: string is issued into the array
+        final int written = template.encode(NOW, updated, 9, dst, 2);
+
+        // Then: ASCII text of the consent is written
+        assertThat(written, is(template.encodedLength()));
+        assertThat(new String(dst, 2, written, StandardCharsets.US_ASCII),
+                is(VendorConsentEncoder.toBase64String(builder(NOW, updated, 9).build())));
+    }
+
+    @Test(expected = VendorConsentCreateException.class)
+    public void testInvalidConsentScreen() {
+        // Given: template
+        final VendorConsentTemplate template = VendorConsentTemplate.of(builder(NOW, NOW, 1).build());
+
+        // When: string is issued with screen that does not fit six bits
+        template.toBase64String(NOW, NOW, 64);
+
+        // Then: exception is thrown
+    }
+}
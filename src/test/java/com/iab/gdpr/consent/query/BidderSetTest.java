@@ -0,0 +1,122 @@
+package com.iab.gdpr.consent.query;
+
+import com.iab.gdpr.Purpose;
+import com.iab.gdpr.consent.VendorConsent;
+import com.iab.gdpr.consent.VendorConsentEncoder;
+import com.iab.gdpr.consent.batch.VendorConsentBatch;
+import com.iab.gdpr.consent.implementation.v1.CompactVendorConsent;
+import com.iab.gdpr.consent.range.StartEndRangeEntry;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.iab.gdpr.util.Utils.vendorConsentBuilder;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.*;
+
+public class BidderSetTest {
+
+    private static BidderSet bidders() {
+        final BidderSet.Builder builder = new BidderSet.Builder()
+                .withBidder(5, Purpose.STORAGE_AND_ACCESS)
+                .withBidder(5, Purpose.STORAGE_AND_ACCESS, Purpose.PERSONALIZATION)
+                .withBidder(10)
+                .withBidder(250, new HashSet<>(Arrays.asList(1, 3)));
+        // Enough bidders to need more than one word
+        for (int vendorId = 100; vendorId < 170; vendorId++) {
+            builder.withBidder(vendorId, Collections.singleton(1));
+        }
+        return builder.build();
+    }
+
+    private static List<VendorConsent> consents() {
+        final VendorConsent range = vendorConsentBuilder(300, 1, 3)
+                .withVendorEncodingType(1)
+                .withRangeEntries(Arrays.asList(new StartEndRangeEntry(5, 10), new StartEndRangeEntry(120, 250)))
+                .build();
+        final VendorConsent bitField = vendorConsentBuilder(300, 1, 2)
+                .withVendorEncodingType(0)
+                .withBitField(new HashSet<>(Arrays.asList(5, 10, 101, 169)))
+                .build();
+        final VendorConsent everything = vendorConsentBuilder(300, 1, 2, 3)
+                .withVendorEncodingType(1)
+                .withDefaultConsent(true)
+                .withRangeEntries(Collections.emptyList())
+                .build();
+        return Arrays.asList(range, bitField, range, CompactVendorConsent.freeze(everything), everything, bitField);
+    }
+
+    private static void assertMatchesVendorChecks(BidderSet bidderSet, List<VendorConsent> consents, long[] eligibility) {
+        assertThat(eligibility.length, is(consents.size() * bidderSet.wordCount()));
+        for (int request = 0; request < consents.size(); request++) {
+            final VendorConsent vendorConsent = consents.get(request);
+            for (int bidder = 0; bidder < bidderSet.size(); bidder++) {
+                final boolean expected = vendorConsent.isVendorAllowed(bidderSet.getVendorId(bidder))
+                        && (bidder != 1 || vendorConsent.isPurposeAllowed(2))
+                        && (bidder == 2 || vendorConsent.isPurposeAllowed(1))
+                        && (bidder != 3 || vendorConsent.isPurposeAllowed(3));
+                assertThat("request " + request + ", bidder " + bidder, bidderSet.isEligible(eligibility, request, bidder), is(expected));
+            }
+        }
+    }
+
+    @Test
+    public void testEvaluateList() {
+        // Given: bidder set and batch of consents with duplicates
+        final BidderSet bidderSet = bidders();
+        final List<VendorConsent> consents = consents();
+
+        // When: batch is evaluated
+        final long[] eligibility = bidderSet.evaluate(consents);
+
+        // Then: eligibility matches individual checks
+        assertThat(bidderSet.wordCount(), is(2));
+        assertMatchesVendorChecks(bidderSet, consents, eligibility);
+
+        // And: single consent evaluation gives same mask
+        assertThat(bidderSet.evaluate(consents.get(1)), is(Arrays.copyOfRange(eligibility, 2, 4)));
+    }
+
+    @Test
+    public void testEvaluateBatch() {
+        // Given: bidder set and consent batch decoded from strings
+        final BidderSet bidderSet = bidders();
+        final List<VendorConsent> consents = consents();
+        final List<String> consentStrings = consents.stream().map(VendorConsentEncoder::toBase64String).collect(Collectors.toList());
+
+        // When: batch is evaluated
+        final long[] eligibility = bidderSet.evaluate(VendorConsentBatch.fromBase64Strings(consentStrings));
+
+        // Then: eligibility matches individual checks
+        assertMatchesVendorChecks(bidderSet, consents, eligibility);
+    }
+
+    @Test
+    public void testLargeBatch() {
+        // Given: micro batch of 256 requests
+        final BidderSet bidderSet = bidders();
+        final List<VendorConsent> consents = new ArrayList<>();
+        for (int i = 0; i < 256; i++) {
+            consents.add(vendorConsentBuilder(300, 1, 2, 3)
+                    .withVendorEncodingType(1)
+                    .withRangeEntries(Collections.singletonList(new StartEndRangeEntry(1, 100 + i % 100)))
+                    .build());
+        }
+
+        // Then: eligibility matches individual checks
+        assertMatchesVendorChecks(bidderSet, consents, bidderSet.evaluate(consents));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPurpose() {
+        // Given: bidder with undefined purpose
+        new BidderSet.Builder().withBidder(1, Purpose.UNDEFINED);
+
+        // Then: exception is thrown
+    }
+}
@@ -0,0 +1,117 @@
+package com.iab.gdpr.consent.query;
+
+import com.iab.gdpr.Purpose;
+import com.iab.gdpr.consent.VendorConsent;
+import com.iab.gdpr.consent.VendorConsentDecoder;
+import com.iab.gdpr.consent.VendorConsentEncoder;
+import com.iab.gdpr.consent.batch.VendorConsentBatch;
+import com.iab.gdpr.consent.implementation.v1.CompactVendorConsent;
+import com.iab.gdpr.consent.implementation.v1.VendorConsentBuilder;
+import com.iab.gdpr.consent.range.StartEndRangeEntry;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.*;
+
+public class VendorBatchQueryTest {
+
+    private static VendorConsent consent(int seed) {
+        final VendorConsentBuilder builder = new VendorConsentBuilder()
+                .withConsentRecordCreatedOn(Instant.EPOCH)
+                .withConsentRecordLastUpdatedOn(Instant.EPOCH)
+                .withConsentLanguage("EN")
+                .withVendorListVersion(1)
+                .withAllowedPurposeIds(seed % 5 == 0 ? new HashSet<>(Arrays.asList(1, 3)) : new HashSet<>(Arrays.asList(1, 2, 3)))
+                .withMaxVendorId(40 + seed % 20);
+        if (seed % 2 == 0) {
+            return builder
+                    .withVendorEncodingType(0)
+                    .withBitField(IntStream.rangeClosed(1, 40).filter(id -> (id + seed) % 3 == 0).boxed().collect(Collectors.toSet()))
+                    .build();
+        }
+        return builder
+                .withVendorEncodingType(1)
+                .withDefaultConsent(seed % 3 == 0)
+                .withRangeEntries(Collections.singletonList(new StartEndRangeEntry(seed % 39 + 1, 40)))
+                .build();
+    }
+
+    private static BitSet expected(List<VendorConsent> consents, int vendorId) {
+        final BitSet expected = new BitSet();
+        for (int i = 0; i < consents.size(); i++) {
+            final VendorConsent vendorConsent = consents.get(i);
+            if (vendorConsent.isVendorAllowed(vendorId) && vendorConsent.isPurposeAllowed(1) && vendorConsent.isPurposeAllowed(2))
+                expected.set(i);
+        }
+        return expected;
+    }
+
+    @Test
+    public void testSmallBatch() {
+        // Given: consents with both encodings and query for vendor with purposes 1 and 2
+        final List<VendorConsent> consents = IntStream.range(0, 200).mapToObj(VendorBatchQueryTest::consent).collect(Collectors.toList());
+        final List<String> consentStrings = consents.stream().map(VendorConsentEncoder::toBase64String).collect(Collectors.toList());
+        final List<VendorConsent> decoded = consentStrings.stream().map(VendorConsentDecoder::fromBase64String).collect(Collectors.toList());
+        final List<VendorConsent> compact = consents.stream().map(CompactVendorConsent::freeze).collect(Collectors.toList());
+
+        for (int vendorId : new int[]{1, 12, 40, 45, 300}) {
+            final VendorBatchQuery query = new VendorBatchQuery(vendorId, Purpose.STORAGE_AND_ACCESS, Purpose.PERSONALIZATION);
+            final BitSet expected = expected(consents, vendorId);
+
+            // Then: all inputs give same answers as individual checks
+            assertThat("vendor " + vendorId, query.evaluate(decoded), is(expected));
+            assertThat("vendor " + vendorId, query.evaluate(compact), is(expected));
+            assertThat("vendor " + vendorId, query.evaluateStrings(consentStrings), is(expected));
+            assertThat("vendor " + vendorId, query.evaluate(VendorConsentBatch.fromBase64Strings(consentStrings)), is(expected));
+        }
+    }
+
+    @Test
+    public void testParallelBatch() {
+        // Given: batch larger than parallel threshold
+        final List<String> distinct = IntStream.range(0, 60).mapToObj(seed -> VendorConsentEncoder.toBase64String(consent(seed))).collect(Collectors.toList());
+        final List<String> consentStrings = new ArrayList<>();
+        for (int i = 0; i < VendorBatchQuery.PARALLEL_THRESHOLD * 3 + 17; i++) {
+            consentStrings.add(distinct.get(i % distinct.size()));
+        }
+        final List<VendorConsent> consents = consentStrings.stream().map(VendorConsentDecoder::fromBase64String).collect(Collectors.toList());
+        final VendorBatchQuery query = new VendorBatchQuery(20, new HashSet<>(Arrays.asList(1, 2)));
+
+        // When: batch is evaluated
+        final BitSet result = query.evaluateStrings(consentStrings);
+
+        // Then: result matches individual checks
+        assertThat(result, is(expected(consents, 20)));
+        assertThat(query.evaluate(consents), is(result));
+        assertTrue(result.cardinality() > 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnsupportedVersion() {
+        // Given: version 2 consent string
+        final String consentString = "CAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA";
+
+        // When: string is queried
+        new VendorBatchQuery(1).test(consentString);
+
+        // Then: exception is thrown
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidVendorId() {
+        // When: query for invalid vendor is created
+        new VendorBatchQuery(0);
+
+        // Then: exception is thrown
+    }
+}
@@ -0,0 +1,97 @@
+package com.iab.gdpr.consent.query;
+
+import com.iab.gdpr.consent.VendorConsent;
+import com.iab.gdpr.consent.implementation.v1.CompactVendorConsent;
+import com.iab.gdpr.consent.implementation.v1.VendorConsentBuilder;
+import com.iab.gdpr.consent.range.StartEndRangeEntry;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.*;
+
+public class VendorConsentAccumulatorTest {
+
+    private static VendorConsent consent(int seed) {
+        final VendorConsentBuilder builder = new VendorConsentBuilder()
+                .withConsentRecordCreatedOn(Instant.EPOCH)
+                .withConsentRecordLastUpdatedOn(Instant.EPOCH)
+                .withConsentLanguage("EN")
+                .withVendorListVersion(1)
+                .withMaxVendorId(100 + seed % 7 * 20);
+        if (seed % 2 == 0) {
+            return builder
+                    .withVendorEncodingType(0)
+                    .withBitField(IntStream.rangeClosed(1, 100).filter(id -> id % (seed % 5 + 2) != 0).boxed().collect(Collectors.toSet()))
+                    .build();
+        }
+        return builder
+                .withVendorEncodingType(1)
+                .withDefaultConsent(seed % 3 == 0)
+                .withRangeEntries(Collections.singletonList(new StartEndRangeEntry(seed % 30 + 1, 90)))
+                .build();
+    }
+
+    private static void assertMatchesVendorChecks(List<VendorConsent> consents, VendorConsentAccumulator accumulator) {
+        assertThat(accumulator.getConsentCount(), is(consents.size()));
+        for (int vendorId = 1; vendorId <= 250; vendorId++) {
+            final int id = vendorId;
+            final long count = consents.stream().filter(consent -> consent.isVendorAllowed(id)).count();
+            assertThat("count " + vendorId, accumulator.getCount(vendorId), is((int) count));
+            assertThat("any " + vendorId, accumulator.isAllowedByAny(vendorId), is(count > 0));
+            assertThat("all " + vendorId, accumulator.isAllowedByAll(vendorId), is(count == consents.size()));
+        }
+    }
+
+    @Test
+    public void testAccumulate() {
+        // Given: consents with different encodings and max vendor IDs
+        final List<VendorConsent> consents = IntStream.range(0, 50).mapToObj(VendorConsentAccumulatorTest::consent).collect(Collectors.toList());
+
+        // When: consents are accumulated one by one
+        final VendorConsentAccumulator accumulator = new VendorConsentAccumulator();
+        consents.forEach(accumulator::add);
+
+        // Then: union, intersection and counts match individual checks
+        assertMatchesVendorChecks(consents, accumulator);
+        assertThat(accumulator.unionVendorIds().nextInt(), is(1));
+    }
+
+    @Test
+    public void testParallelCollect() {
+        // Given: many consents, some of them compact
+        final List<VendorConsent> consents = IntStream.range(0, 2000)
+                .mapToObj(seed -> seed % 10 == 0 ? CompactVendorConsent.freeze(consent(seed)) : consent(seed))
+                .collect(Collectors.toList());
+
+        // When: consents are collected in parallel
+        final VendorConsentAccumulator parallel = consents.parallelStream().collect(VendorConsentAccumulator.collector());
+
+        // Then: result is same as sequential accumulation
+        final VendorConsentAccumulator sequential = new VendorConsentAccumulator();
+        consents.forEach(sequential::add);
+        assertThat(parallel.getUnionWords(), is(sequential.getUnionWords()));
+        assertThat(parallel.getIntersectionWords(), is(sequential.getIntersectionWords()));
+        assertMatchesVendorChecks(consents, parallel);
+    }
+
+    @Test
+    public void testCombineEmpty() {
+        // Given: accumulator of a single consent
+        final VendorConsent consent = consent(2);
+        final VendorConsentAccumulator accumulator = new VendorConsentAccumulator().add(consent);
+
+        // When: empty accumulators are combined on both sides
+        final VendorConsentAccumulator combined = new VendorConsentAccumulator().combine(accumulator).combine(new VendorConsentAccumulator());
+
+        // Then: result matches single consent
+        assertMatchesVendorChecks(Arrays.asList(consent), combined);
+        assertFalse(new VendorConsentAccumulator().isAllowedByAll(1));
+    }
+}
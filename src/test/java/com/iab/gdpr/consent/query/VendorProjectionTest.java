@@ -0,0 +1,105 @@
+package com.iab.gdpr.consent.query;
+
+import com.iab.gdpr.consent.VendorConsent;
+import com.iab.gdpr.consent.implementation.v1.CompactVendorConsent;
+import com.iab.gdpr.consent.range.SingleRangeEntry;
+import com.iab.gdpr.consent.range.StartEndRangeEntry;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.iab.gdpr.util.Utils.vendorConsentBuilder;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class VendorProjectionTest {
+
+    private static VendorConsent bitField() {
+        return vendorConsentBuilder(300)
+                .withVendorEncodingType(0)
+                .withBitField(IntStream.rangeClosed(1, 300).filter(id -> id % 3 == 0).boxed().collect(Collectors.toSet()))
+                .build();
+    }
+
+    private static VendorConsent range(boolean defaultConsent) {
+        return vendorConsentBuilder(300)
+                .withVendorEncodingType(1)
+                .withDefaultConsent(defaultConsent)
+                .withRangeEntries(Arrays.asList(new StartEndRangeEntry(10, 50), new SingleRangeEntry(7), new StartEndRangeEntry(45, 120)))
+                .build();
+    }
+
+    private static void assertMatchesVendorChecks(VendorProjection projection, VendorConsent vendorConsent) {
+        final long[] words = projection.applyWords(vendorConsent);
+        assertThat(words.length, is(projection.wordCount()));
+        for (int i = 0; i < projection.size(); i++) {
+            final boolean allowed = (words[i >>> 6] & (1L << i)) != 0;
+            assertThat("vendor " + projection.vendorIdAt(i), allowed, is(vendorConsent.isVendorAllowed(projection.vendorIdAt(i))));
+        }
+    }
+
+    @Test
+    public void testSmallProjection() {
+        // Given: projection of few vendors, including vendors above max vendor ID, in random order with duplicates
+        final VendorProjection projection = VendorProjection.of(400, 7, 9, 10, 7, 300, 121, 120, 1);
+
+        // Then: VendorIds are sorted and distinct
+        assertThat(projection.size(), is(8));
+        assertThat(projection.vendorIdAt(0), is(1));
+        assertThat(projection.indexOf(300), is(6));
+
+        // And: projection gives same answers as individual vendor checks
+        for (VendorConsent vendorConsent : Arrays.asList(bitField(), range(false), range(true), CompactVendorConsent.freeze(range(true)))) {
+            assertMatchesVendorChecks(projection, vendorConsent);
+        }
+
+        // And: single long mask is returned for range consent without default consent
+        assertThat(projection.apply(range(false)), is(0b011010L));
+    }
+
+    @Test
+    public void testLargeProjection() {
+        // Given: projection of more than 64 vendors
+        final VendorProjection projection = VendorProjection.of(IntStream.rangeClosed(1, 310).filter(id -> id % 2 == 1).boxed().collect(Collectors.toSet()));
+
+        // Then: projection gives same answers as individual vendor checks
+        assertThat(projection.wordCount(), is(3));
+        for (VendorConsent vendorConsent : Arrays.asList(bitField(), range(false), range(true))) {
+            assertMatchesVendorChecks(projection, vendorConsent);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testLongMaskOverflow() {
+        // Given: projection of more than 64 vendors
+        final VendorProjection projection = VendorProjection.of(IntStream.rangeClosed(1, 65).toArray());
+
+        // When: single long mask is requested
+        projection.apply(bitField());
+
+        // Then: exception is thrown
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidVendorId() {
+        // Given: projection with invalid vendor ID
+        final int[] vendorIds = {0, 1, 2};
+
+        // When: projection is compiled
+        VendorProjection.of(vendorIds);
+
+        // Then: exception is thrown
+    }
+
+    @Test
+    public void testEmptyProjection() {
+        // Given: projection without vendors
+        final VendorProjection projection = VendorProjection.of(new HashSet<>());
+
+        // Then: empty mask is returned
+        assertThat(projection.apply(range(true)), is(0L));
+    }
+}
@@ -0,0 +1,71 @@
+package com.iab.gdpr.consent.query;
+
+import com.iab.gdpr.consent.VendorConsent;
+import com.iab.gdpr.consent.range.SingleRangeEntry;
+import com.iab.gdpr.consent.range.StartEndRangeEntry;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.iab.gdpr.util.Utils.vendorConsentBuilder;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.*;
+
+public class VendorWordsTest {
+
+    private static void assertMatchesVendorChecks(VendorConsent vendorConsent) {
+        final long[] words = VendorWords.of(vendorConsent);
+        assertThat(words.length, is(VendorWords.wordCount(vendorConsent.getMaxVendorId())));
+        for (int vendorId = 1; vendorId <= words.length * Long.SIZE; vendorId++) {
+            assertThat("vendor " + vendorId, VendorWords.isSet(words, vendorId), is(vendorConsent.isVendorAllowed(vendorId)));
+        }
+    }
+
+    @Test
+    public void testBitField() {
+        // Given: bit field consents with max vendor ID not aligned to bytes or words
+        for (int maxVendorId : new int[]{1, 7, 64, 65, 203}) {
+            final VendorConsent vendorConsent = vendorConsentBuilder(maxVendorId)
+                    .withVendorEncodingType(0)
+                    .withBitField(IntStream.rangeClosed(1, maxVendorId).filter(id -> id % 3 != 1).boxed().collect(Collectors.toSet()))
+                    .build();
+
+            // Then: words give same answers as individual vendor checks
+            assertMatchesVendorChecks(vendorConsent);
+        }
+    }
+
+    @Test
+    public void testRange() {
+        // Given: range consents crossing word boundaries, with and without default consent
+        for (boolean defaultConsent : new boolean[]{false, true}) {
+            final VendorConsent vendorConsent = vendorConsentBuilder(300)
+                    .withVendorEncodingType(1)
+                    .withDefaultConsent(defaultConsent)
+                    .withRangeEntries(Arrays.asList(new StartEndRangeEntry(60, 200), new SingleRangeEntry(1), new StartEndRangeEntry(64, 65), new SingleRangeEntry(300)))
+                    .build();
+
+            // Then: words give same answers as individual vendor checks
+            assertMatchesVendorChecks(vendorConsent);
+        }
+    }
+
+    @Test
+    public void testSetRange() {
+        // Given: words for 192 vendors
+        final long[] words = new long[3];
+
+        // When: ranges are set and flipped
+        VendorWords.setRange(words, 3, 130);
+        VendorWords.flipRange(words, 1, 64);
+
+        // Then: bits match ranges
+        assertThat(words[0], is(0b11L));
+        assertThat(words[1], is(-1L));
+        assertThat(words[2], is(0b11L));
+        assertFalse(VendorWords.isSet(words, 0));
+        assertFalse(VendorWords.isSet(words, 193));
+    }
+}
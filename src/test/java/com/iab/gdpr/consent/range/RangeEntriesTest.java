@@ -0,0 +1,94 @@
+package com.iab.gdpr.consent.range;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class RangeEntriesTest {
+
+    private static List<String> describe(List<RangeEntry> entries) {
+        return entries.stream()
+                .map(entry -> entry instanceof SingleRangeEntry
+                        ? String.valueOf(entry.getStartVendorId())
+                        : entry.getStartVendorId() + "-" + entry.getEndVendorId())
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testOfSortedVendorIds() {
+        // Given: sorted vendor IDs with runs and duplicates
+        final int[] vendorIds = {1, 2, 3, 5, 7, 7, 8, 20};
+
+        // When: range entries are derived
+        final List<RangeEntry> entries = RangeEntries.of(vendorIds);
+
+        // Then: runs are merged
+        assertThat(describe(entries), is(Arrays.asList("1-3", "5", "7-8", "20")));
+        assertThat(RangeEntries.size(entries), is(33 + 17 + 33 + 17));
+    }
+
+    @Test
+    public void testOfBitSet() {
+        // Given: set of vendor IDs
+        final BitSet vendorIds = new BitSet();
+        vendorIds.set(4);
+        vendorIds.set(10, 16);
+        vendorIds.set(100);
+
+        // When: range entries are derived
+        final List<RangeEntry> entries = RangeEntries.of(vendorIds);
+
+        // Then: runs are merged
+        assertThat(describe(entries), is(Arrays.asList("4", "10-15", "100")));
+        assertThat(RangeEntries.of(new BitSet()), is(empty()));
+    }
+
+    @Test
+    public void testNormalize() {
+        // Given: unsorted, overlapping and adjacent entries
+        final List<RangeEntry> rangeEntries = Arrays.asList(
+                new StartEndRangeEntry(10, 20),
+                new SingleRangeEntry(3),
+                new StartEndRangeEntry(15, 25),
+                new SingleRangeEntry(26),
+                new SingleRangeEntry(4),
+                new StartEndRangeEntry(40, 40),
+                new SingleRangeEntry(12));
+
+        // When: entries are normalized
+        final List<RangeEntry> entries = RangeEntries.normalize(rangeEntries);
+
+        // Then: shortest sorted entries are returned
+        assertThat(describe(entries), is(Arrays.asList("3-4", "10-26", "40")));
+        assertThat(RangeEntries.normalize(Collections.emptyList()), is(empty()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsortedVendorIds() {
+        // Given: unsorted vendor IDs
+        final int[] vendorIds = {5, 3};
+
+        // When: range entries are derived
+        RangeEntries.of(vendorIds);
+
+        // Then: exception is thrown
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRangeEntry() {
+        // Given: entry ending before its start
+        final List<RangeEntry> rangeEntries = Collections.singletonList(new StartEndRangeEntry(5, 3));
+
+        // When: entries are normalized
+        RangeEntries.normalize(rangeEntries);
+
+        // Then: exception is thrown
+    }
+}
@@ -0,0 +1,164 @@
+package com.iab.gdpr.consent.range;
+
+import com.iab.gdpr.Bits;
+import com.iab.gdpr.consent.VendorConsent;
+import com.iab.gdpr.exception.VendorConsentParseException;
+import com.iab.gdpr.util.Utils;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.iab.gdpr.util.Utils.vendorConsentBuilder;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.*;
+
+public class RangeEntryCursorTest {
+
+    private static List<String> entries(RangeEntryCursor cursor) {
+        final List<String> entries = new ArrayList<>();
+        while (cursor.next()) {
+            entries.add(cursor.isRange() ? cursor.getStartVendorId() + "-" + cursor.getEndVendorId() : String.valueOf(cursor.getStartVendorId()));
+        }
+        return entries;
+    }
+
+    @Test
+    public void testRangeEncoding() {
+        // Given: range encoded consent with default consent
+        final VendorConsent vendorConsent = vendorConsentBuilder(400)
+                .withVendorEncodingType(1)
+                .withDefaultConsent(true)
+                .withRangeEntries(Arrays.asList(new StartEndRangeEntry(100, 200), new SingleRangeEntry(5), new SingleRangeEntry(400)))
+                .build();
+
+        // When: cursor is created
+        final RangeEntryCursor cursor = RangeEntryCursor.of(vendorConsent);
+
+        // Then: encoded entries are returned in encoding order
+        assertTrue(cursor.isRangeEncoding());
+        assertTrue(cursor.isDefaultConsent());
+        assertThat(cursor.getMaxVendorId(), is(400));
+        assertThat(entries(cursor), is(Arrays.asList("100-200", "5", "400")));
+
+        // And: cursor can be walked again after reset
+        cursor.reset();
+        assertTrue(cursor.next());
+        final RangeEntry rangeEntry = cursor.toRangeEntry();
+        assertThat(rangeEntry.getStartVendorId(), is(100));
+        assertThat(rangeEntry.getEndVendorId(), is(200));
+        assertThat(rangeEntry.size(), is(33));
+    }
+
+    @Test
+    public void testBitFieldEncoding() {
+        // Given: bit field encoded consent with runs crossing byte boundaries
+        final VendorConsent vendorConsent = vendorConsentBuilder(100)
+                .withVendorEncodingType(0)
+                .withBitField(new HashSet<>(Arrays.asList(1, 2, 3, 9, 20, 21, 22, 23, 24, 25, 26, 27, 28, 29, 30, 31, 32, 33, 34, 100)))
+                .build();
+
+        // When: cursor is created
+        final RangeEntryCursor cursor = RangeEntryCursor.of(vendorConsent);
+
+        // Then: maximal runs of allowed vendors are returned
+        assertFalse(cursor.isRangeEncoding());
+        assertFalse(cursor.isDefaultConsent());
+        assertThat(entries(cursor), is(Arrays.asList("1-3", "9", "20-34", "100")));
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    public void testEmptyBitField() {
+        // Given: bit field encoded consent without allowed vendors
+        final VendorConsent vendorConsent = vendorConsentBuilder(1000)
+                .withVendorEncodingType(0)
+                .withBitField(new HashSet<>())
+                .build();
+
+        // When: cursor is created
+        final RangeEntryCursor cursor = RangeEntryCursor.of(vendorConsent);
+
+        // Then: no entries are returned
+        assertFalse(cursor.next());
+    }
+
+    @Test(expected = VendorConsentParseException.class)
+    public void testInvalidRangeEntry() {
+        // Given: range entry with end vendor ID greater than max vendor ID
+        final String binaryString = "000001" + // Version
+                "001110001110110011010000101000000000" +  // Created
+                "001110001110110011010000101000000000" +  // Updated
+                "000000001111"                         +  // CMP ID
+                "000000000101"                         +  // CMP version
+                "010010"                               +  // Content screen ID
+                "000100001101"                         +  // Language code
+                "000010010110"                         +  // Vendor list version
+                "111110000000001000000001"             +  // Allowed purposes bitmap
+                "0000000000100000"                     +  // Max vendor ID
+                "1"                                    +  // Range encoding
+                "0"                                    +  // Default 0=No Consent
+                "000000000001"                         +  // Number of entries = 1
+                "1"                                    +  // Range entry
+                "0000000000000010"                     +  // Start vendor ID 2
+                "0000000000100001";                       // End vendor ID 33
+
+        // When: cursor is moved to the entry
+        new RangeEntryCursor(Utils.fromBinaryString(binaryString)).next();
+
+        // Then: exception is thrown
+    }
+
+    @Test
+    public void testTruncatedBitField() {
+        // Given: bit field encoded consents with all and no vendors allowed, cut off inside the bit field
+        for (Set<Integer> allowedVendors : Arrays.asList(IntStream.rangeClosed(1, 100).boxed().collect(Collectors.toSet()), new HashSet<Integer>())) {
+            final byte[] bytes = vendorConsentBuilder(100)
+                    .withVendorEncodingType(0)
+                    .withBitField(allowedVendors)
+                    .build()
+                    .toByteArray();
+            final RangeEntryCursor cursor = new RangeEntryCursor(new Bits(Arrays.copyOf(bytes, 26)));
+
+            // When: cursor is walked
+            try {
+                entries(cursor);
+                fail("Expected VendorConsentParseException");
+            } catch (VendorConsentParseException e) {
+                // Then: parse exception is thrown
+            }
+        }
+    }
+
+    @Test
+    public void testDefaultVendorIds() {
+        // Given: range entry implementation without VendorId accessors
+        final StartEndRangeEntry delegate = new StartEndRangeEntry(7, 12);
+        final RangeEntry rangeEntry = new RangeEntry() {
+            @Override
+            public int size() {
+                return delegate.size();
+            }
+
+            @Override
+            public int appendTo(Bits buffer, int currentOffset) {
+                return delegate.appendTo(buffer, currentOffset);
+            }
+
+            @Override
+            public boolean valid(int maxVendorId) {
+                return delegate.valid(maxVendorId);
+            }
+        };
+
+        // Then: VendorIds are read from the encoded entry
+        assertThat(rangeEntry.getStartVendorId(), is(7));
+        assertThat(rangeEntry.getEndVendorId(), is(12));
+        assertThat(RangeEntries.normalize(Arrays.asList(rangeEntry, new SingleRangeEntry(13))).get(0).getEndVendorId(), is(13));
+    }
+}
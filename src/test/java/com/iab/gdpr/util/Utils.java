@@ -1,6 +1,11 @@
 package com.iab.gdpr.util;
 
 import com.iab.gdpr.Bits;
+import com.iab.gdpr.consent.implementation.v1.VendorConsentBuilder;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
 
 /**
  * Testing utility functions
@@ -25,4 +30,20 @@ public class Utils {
 
         return bits;
     }
+
+    /**
+     * Create vendor consent builder with fixed header fields, vendor section is left to the caller
+     * @param maxVendorId max vendor ID
+     * @param purposeIds allowed purpose IDs
+     * @return builder
+     */
+    public static VendorConsentBuilder vendorConsentBuilder(int maxVendorId, Integer... purposeIds) {
+        return new VendorConsentBuilder()
+                .withConsentRecordCreatedOn(Instant.EPOCH)
+                .withConsentRecordLastUpdatedOn(Instant.EPOCH)
+                .withConsentLanguage("EN")
+                .withVendorListVersion(1)
+                .withAllowedPurposeIds(new HashSet<>(Arrays.asList(purposeIds)))
+                .withMaxVendorId(maxVendorId);
+    }
 }
@@ -0,0 +1,139 @@
+package com.iab.gdpr.vendorlist;
+
+import com.iab.gdpr.consent.VendorConsent;
+import com.iab.gdpr.consent.implementation.v1.CompactVendorConsent;
+import com.iab.gdpr.consent.query.VendorWords;
+import com.iab.gdpr.consent.range.StartEndRangeEntry;
+import com.iab.gdpr.exception.VendorListParseException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.iab.gdpr.util.Utils.vendorConsentBuilder;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.*;
+
+public class VendorListLoaderTest {
+
+    private static VendorListPolicy load() throws IOException, URISyntaxException {
+        final Path path = Paths.get(VendorListLoaderTest.class.getResource("/vendorlist.json").toURI());
+        return VendorListLoader.load(path);
+    }
+
+    private static Set<Integer> permitted(VendorListPolicy policy, VendorConsent vendorConsent) {
+        final long[] words = policy.permittedVendors(vendorConsent);
+        return IntStream.rangeClosed(1, policy.getMaxVendorId()).filter(id -> VendorWords.isSet(words, id)).boxed().collect(Collectors.toSet());
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+        // When: vendor list file is loaded
+        final VendorListPolicy policy = load();
+
+        // Then: version and vendors are compiled
+        assertThat(policy.getVendorListVersion(), is(51));
+        assertThat(policy.getMaxVendorId(), is(130));
+        assertThat(policy.wordCount(), is(3));
+        assertTrue(policy.isKnownVendor(2));
+        assertFalse(policy.isKnownVendor(4));
+        assertFalse(policy.isKnownVendor(5));
+
+        // And: only consent purposes are required, legitimate interest purposes are not
+        assertTrue(policy.isPurposeRequired(3, 2));
+        assertFalse(policy.isPurposeRequired(3, 3));
+        assertFalse(policy.isPurposeRequired(2, 1));
+        assertTrue(policy.isPurposeRequired(130, 5));
+    }
+
+    @Test
+    public void testPermittedVendors() throws Exception {
+        // Given: compiled policy
+        final VendorListPolicy policy = load();
+
+        // And: consent allowing all vendors with purposes 1 and 3
+        final VendorConsent vendorConsent = vendorConsentBuilder(200, 1, 3)
+                .withVendorEncodingType(1)
+                .withDefaultConsent(true)
+                .withRangeEntries(Collections.emptyList())
+                .build();
+
+        // Then: vendors that need purpose 2 or other purposes are not permitted
+        assertThat(permitted(policy, vendorConsent), is(new HashSet<>(Arrays.asList(1, 2, 70))));
+
+        // And: consent without any purposes permits only legitimate interest vendor
+        final VendorConsent noPurposes = vendorConsentBuilder(200)
+                .withVendorEncodingType(0)
+                .withBitField(IntStream.rangeClosed(1, 200).boxed().collect(Collectors.toSet()))
+                .build();
+        assertThat(permitted(policy, noPurposes), is(Collections.singleton(2)));
+    }
+
+    @Test
+    public void testPermittedVendorsMatchesVendorChecks() throws Exception {
+        // Given: compiled policy
+        final VendorListPolicy policy = load();
+
+        // And: consents with different encodings and purposes
+        final VendorConsent range = vendorConsentBuilder(200, 1, 2, 3)
+                .withVendorEncodingType(1)
+                .withRangeEntries(Arrays.asList(new StartEndRangeEntry(2, 3), new StartEndRangeEntry(60, 140)))
+                .build();
+        final VendorConsent bitField = vendorConsentBuilder(200, 1, 2, 3, 4, 5)
+                .withVendorEncodingType(0)
+                .withBitField(new HashSet<>(Arrays.asList(1, 3, 4, 130)))
+                .build();
+
+        // Then: word evaluation gives same answers as individual checks
+        for (VendorConsent vendorConsent : Arrays.asList(range, bitField, CompactVendorConsent.freeze(range))) {
+            final long[] words = policy.permittedVendors(vendorConsent);
+            for (int vendorId = 1; vendorId <= policy.getMaxVendorId(); vendorId++) {
+                assertThat("vendor " + vendorId, VendorWords.isSet(words, vendorId), is(policy.isVendorPermitted(vendorConsent, vendorId)));
+            }
+        }
+        assertThat(permitted(policy, bitField), is(new HashSet<>(Arrays.asList(1, 3, 130))));
+    }
+
+    @Test(expected = VendorListParseException.class)
+    public void testInvalidJson() {
+        // Given: truncated vendor list
+        final String json = "{\"vendorListVersion\": 1, \"vendors\": [";
+
+        // When: vendor list is parsed
+        VendorListLoader.parse(json);
+
+        // Then: exception is thrown
+    }
+
+    @Test(expected = VendorListParseException.class)
+    public void testDeeplyNestedJson() {
+        // Given: vendor with a value nested far deeper than any vendor list
+        final StringBuilder nested = new StringBuilder();
+        for (int i = 0; i < 100000; i++) nested.append('[');
+        final String json = "{\"vendorListVersion\": 1, \"vendors\": [{\"id\": 1, \"purposeIds\": " + nested + "}]}";
+
+        // When: vendor list is parsed
+        VendorListLoader.parse(json);
+
+        // Then: exception is thrown instead of StackOverflowError
+    }
+
+    @Test(expected = VendorListParseException.class)
+    public void testInvalidPurposeId() {
+        // Given: vendor list with purpose outside of consent string purposes
+        final String json = "{\"vendorListVersion\": 1, \"vendors\": [{\"id\": 1, \"purposeIds\": [25]}]}";
+
+        // When: vendor list is parsed
+        VendorListLoader.parse(json);
+
+        // Then: exception is thrown
+    }
+}
@@ -0,0 +1,77 @@
+package com.iab.gdpr.vendorlist;
+
+import com.iab.gdpr.consent.implementation.v1.VendorConsentBuilder;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class VendorListRegistryTest {
+
+    private static VendorListPolicy policy(int vendorListVersion, int vendorId) {
+        return VendorListLoader.parse("{\"vendorListVersion\": " + vendorListVersion + ", \"vendors\": [{\"id\": " + vendorId + ", \"purposeIds\": [1]}]}");
+    }
+
+    @Test
+    public void testPutAndGet() {
+        // Given: registry with two versions
+        final VendorListRegistry registry = new VendorListRegistry();
+        final VendorListPolicy v1 = policy(1, 10);
+        final VendorListPolicy v2 = policy(2, 20);
+        assertThat(registry.put(v2), is(nullValue()));
+        assertThat(registry.put(v1), is(nullValue()));
+
+        // Then: policies are found by version and latest is highest version
+        assertThat(registry.get(1), is(sameInstance(v1)));
+        assertThat(registry.get(3), is(nullValue()));
+        assertThat(registry.latest(), is(sameInstance(v2)));
+        assertThat(registry.get(new VendorConsentBuilder()
+                .withConsentRecordCreatedOn(Instant.EPOCH)
+                .withConsentRecordLastUpdatedOn(Instant.EPOCH)
+                .withConsentLanguage("EN")
+                .withVendorListVersion(2)
+                .withMaxVendorId(1)
+                .withBitField(Collections.emptySet())
+                .build()), is(sameInstance(v2)));
+
+        // When: version is swapped
+        final VendorListPolicy replacement = policy(2, 30);
+        assertThat(registry.put(replacement), is(sameInstance(v2)));
+
+        // Then: new policy is returned
+        assertThat(registry.get(2), is(sameInstance(replacement)));
+        assertThat(registry.remove(1), is(sameInstance(v1)));
+        assertThat(registry.snapshot().keySet(), is(Collections.singleton(2)));
+    }
+
+    @Test
+    public void testReplaceAll() {
+        // Given: registry with a policy
+        final VendorListRegistry registry = new VendorListRegistry();
+        registry.put(policy(1, 10));
+
+        // When: all policies are replaced
+        registry.replaceAll(Arrays.asList(policy(5, 1), policy(4, 1)));
+
+        // Then: only new policies are registered
+        assertThat(registry.get(1), is(nullValue()));
+        assertThat(registry.latest().getVendorListVersion(), is(5));
+        assertThat(registry.snapshot().size(), is(2));
+    }
+
+    @Test
+    public void testEmpty() {
+        // Given: empty registry
+        final VendorListRegistry registry = new VendorListRegistry();
+
+        // Then: nothing is found
+        assertThat(registry.latest(), is(nullValue()));
+        assertThat(registry.remove(1), is(nullValue()));
+    }
+}